@@ -0,0 +1,114 @@
+package com.learnwiremock.benchmark;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.learnwiremock.MovieAppBootApplication;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.service.MoviesRestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.learnwiremock.constants.MoviesAppConstants.ADD_MOVIE_V1;
+import static com.learnwiremock.constants.MoviesAppConstants.GET_ALL_MOVIES_V1;
+
+/**
+ * End to end calls of the {@link MoviesRestClient} bean against an in-process WireMock server, with the client logger
+ * at INFO, where the per request logs are skipped, and at DEBUG, where they are written. The log lines go to a file,
+ * as they would in production, the console appender is off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class MoviesRestClientLoggingBenchmark {
+
+    @Param({"info", "debug"})
+    String logLevel;
+
+    WireMockServer wireMockServer;
+    ConfigurableApplicationContext context;
+    MoviesRestClient moviesRestClient;
+    Movie movie;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        // started first, WireMock would otherwise log its startup before Spring Boot has configured the logging
+        context = new SpringApplicationBuilder(MovieAppBootApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("movieapp.baseUrl=http://localhost:" + port,
+                        "logging.level.com.learnwiremock.service.MoviesRestClient=" + logLevel,
+                        "logging.file=build/reports/jmh/movies-rest-client-" + logLevel + ".log",
+                        "logging.pattern.console=",
+                        "spring.main.banner-mode=off")
+                .run();
+        moviesRestClient = context.getBean(MoviesRestClient.class);
+        movie = new Movie(null, "Toy Story 4", 2019, "Tom Hanks, Tim Allen", LocalDate.of(2019, 6, 20));
+
+        wireMockServer = new WireMockServer(wireMockConfig()
+                .port(port)
+                .usingFilesUnderDirectory("src/test/resources")
+                .disableRequestJournal());
+        wireMockServer.start();
+        wireMockServer.stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+        wireMockServer.stubFor(post(urlPathEqualTo(ADD_MOVIE_V1))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.CREATED.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("add-movie.json")));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        wireMockServer.stop();
+    }
+
+    @Benchmark
+    public List<Movie> retrieveAllMovies() {
+        return moviesRestClient.retrieveAllMovies();
+    }
+
+    @Benchmark
+    public Movie addNewMovie() {
+        return moviesRestClient.addNewMovie(movie);
+    }
+}
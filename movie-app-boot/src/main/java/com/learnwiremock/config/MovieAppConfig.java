@@ -1,9 +1,36 @@
 package com.learnwiremock.config;
 
+import com.learnwiremock.service.AdaptiveConcurrencyLimiter;
+import com.learnwiremock.service.CircuitBreakerFilter;
+import com.learnwiremock.service.ConcurrencyLimitFilter;
+import com.learnwiremock.service.DeadlineFilter;
+import com.learnwiremock.service.ExpectedErrorFilter;
+import com.learnwiremock.service.FailureLog;
+import com.learnwiremock.service.MovieBulkheads;
+import com.learnwiremock.service.MovieCache;
+import com.learnwiremock.service.MovieCircuitBreaker;
+import com.learnwiremock.service.MovieConnectionProvider;
+import com.learnwiremock.service.MovieConnectionWarmer;
+import com.learnwiremock.service.MovieDeadlines;
+import com.learnwiremock.service.MovieHedging;
+import com.learnwiremock.service.MovieJson;
+import com.learnwiremock.service.MovieRateLimiter;
+import com.learnwiremock.service.MovieTransport;
+import com.learnwiremock.service.MoviesClientMetrics;
+import com.learnwiremock.service.MoviesRestClient;
+import com.learnwiremock.service.NotFoundCache;
+import com.learnwiremock.service.RateLimitFilter;
+import com.learnwiremock.service.RetryBudget;
+import com.learnwiremock.service.RetryFilter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
@@ -11,24 +38,211 @@ import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
 import reactor.netty.tcp.TcpClient;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
+@EnableConfigurationProperties(MovieAppProperties.class)
 public class MovieAppConfig {
 
     @Value("${movieapp.baseUrl}")
     private String baseUrl;
 
+    @Bean(destroyMethod = "dispose")
+    public MovieConnectionProvider movieConnectionProvider(MovieAppProperties movieAppProperties) {
+        MovieAppProperties.Pool pool = movieAppProperties.getHttp().getPool();
+        return MovieConnectionProvider.builder(pool.getName())
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .acquireTimeout(pool.getAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .build();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public MovieTransport movieTransport(MovieAppProperties movieAppProperties) {
+        MovieAppProperties.Transport transport = movieAppProperties.getHttp().getTransport();
+        return MovieTransport.builder("movies")
+                .eventLoopThreads(transport.getEventLoopThreads())
+                .preferNative(transport.isPreferNative())
+                .tcpNoDelay(transport.isTcpNoDelay())
+                .keepAlive(transport.isKeepAlive())
+                .receiveBufferSize(transport.getReceiveBufferSize())
+                .sendBufferSize(transport.getSendBufferSize())
+                .build();
+    }
+
     @Bean
-    public WebClient webClient(){
+    public WebClient webClient(MovieConnectionProvider movieConnectionProvider, MovieTransport movieTransport, MovieAppProperties movieAppProperties,
+                               ObjectProvider<CircuitBreakerFilter> circuitBreakerFilter, ObjectProvider<RetryFilter> retryFilter,
+                               ObjectProvider<ConcurrencyLimitFilter> concurrencyLimitFilter, ObjectProvider<RateLimitFilter> rateLimitFilter){
+
+        // calls are bounded by their deadline, see MovieDeadlines, a stalled exchange by the read and write timeouts
+        TcpClient tcpClient = movieTransport.configure(TcpClient.create(movieConnectionProvider))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000);
 
-        TcpClient tcpClient = TcpClient.create()
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
-                .doOnConnected(connection -> {
-                    connection.addHandlerLast(new ReadTimeoutHandler(5))
-                            .addHandlerLast(new WriteTimeoutHandler(5));
+        long readTimeoutMillis = movieAppProperties.getHttp().getReadTimeout().toMillis();
+        long writeTimeoutMillis = movieAppProperties.getHttp().getWriteTimeout().toMillis();
+        HttpClient httpClient = HttpClient.from(tcpClient)
+                .compress(movieAppProperties.getHttp().isCompression())
+                .doOnRequest((request, connection) -> {
+                    // added for this exchange only, reactor netty removes them when the connection goes back to the pool
+                    if (readTimeoutMillis > 0) {
+                        connection.addHandlerLast(new ReadTimeoutHandler(readTimeoutMillis, TimeUnit.MILLISECONDS));
+                    }
+                    if (writeTimeoutMillis > 0) {
+                        connection.addHandlerLast(new WriteTimeoutHandler(writeTimeoutMillis, TimeUnit.MILLISECONDS));
+                    }
                 });
 
-        return WebClient.builder().clientConnector(new ReactorClientHttpConnector(HttpClient.from(tcpClient)))
-                .baseUrl(baseUrl).build();
+        WebClient.Builder webClientBuilder = WebClient.builder().clientConnector(new ReactorClientHttpConnector(httpClient))
+                .baseUrl(baseUrl);
+        if (movieAppProperties.getHttp().isTunedJson()) {
+            webClientBuilder.exchangeStrategies(MovieJson.exchangeStrategies(MovieJson.objectMapper()));
+        }
+        // outermost first, every retry takes a token, needs a permit and passes the circuit breaker,
+        // waiting for a token holds no permit, an attempt cut off by its deadline counts as a timeout
+        retryFilter.ifAvailable(webClientBuilder::filter);
+        rateLimitFilter.ifAvailable(webClientBuilder::filter);
+        concurrencyLimitFilter.ifAvailable(webClientBuilder::filter);
+        circuitBreakerFilter.ifAvailable(webClientBuilder::filter);
+        webClientBuilder.filter(new DeadlineFilter());
+        if (movieAppProperties.getErrors().isLightweight()) {
+            webClientBuilder.filter(new ExpectedErrorFilter());
+        }
+        return webClientBuilder.build();
+
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "movieapp.circuit-breaker", name = "enabled", havingValue = "true")
+    public CircuitBreakerFilter circuitBreakerFilter(MovieAppProperties movieAppProperties) {
+        MovieAppProperties.CircuitBreaker circuitBreaker = movieAppProperties.getCircuitBreaker();
+        return new CircuitBreakerFilter(circuitBreaker(circuitBreaker, "reads"), circuitBreaker(circuitBreaker, "writes"));
+    }
+
+    private static MovieCircuitBreaker circuitBreaker(MovieAppProperties.CircuitBreaker circuitBreaker, String name) {
+        return MovieCircuitBreaker.builder(name)
+                .failureRateThreshold(circuitBreaker.getFailureRateThreshold())
+                .slowCallRateThreshold(circuitBreaker.getSlowCallRateThreshold())
+                .slowCallDuration(circuitBreaker.getSlowCallDuration())
+                .slidingWindowSize(circuitBreaker.getSlidingWindowSize())
+                .minimumNumberOfCalls(circuitBreaker.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(circuitBreaker.getWaitDurationInOpenState())
+                .permittedCallsInHalfOpenState(circuitBreaker.getPermittedCallsInHalfOpenState())
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "movieapp.retry", name = "enabled", havingValue = "true")
+    public RetryFilter retryFilter(MovieAppProperties movieAppProperties) {
+        MovieAppProperties.Retry retry = movieAppProperties.getRetry();
+        return RetryFilter.builder()
+                .maxAttempts(retry.getMaxAttempts())
+                .firstBackoff(retry.getFirstBackoff())
+                .maxBackoff(retry.getMaxBackoff())
+                .retryBudget(new RetryBudget(retry.getBudgetRatio(), retry.getBudgetMaxTokens()))
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "movieapp.concurrency-limit", name = "enabled", havingValue = "true")
+    public ConcurrencyLimitFilter concurrencyLimitFilter(MovieAppProperties movieAppProperties, MoviesClientMetrics moviesClientMetrics) {
+        MovieAppProperties.ConcurrencyLimit concurrencyLimit = movieAppProperties.getConcurrencyLimit();
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder("movies")
+                .initialLimit(concurrencyLimit.getInitialLimit())
+                .minLimit(concurrencyLimit.getMinLimit())
+                .maxLimit(concurrencyLimit.getMaxLimit())
+                .maxWait(concurrencyLimit.getMaxWait())
+                .maxQueueSize(concurrencyLimit.getMaxQueueSize())
+                .build();
+        moviesClientMetrics.monitor(limiter);
+        return new ConcurrencyLimitFilter(limiter);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "movieapp.bulkhead", name = "enabled", havingValue = "true")
+    public MovieBulkheads movieBulkheads(MovieAppProperties movieAppProperties, MoviesClientMetrics moviesClientMetrics) {
+        MovieAppProperties.Bulkhead bulkhead = movieAppProperties.getBulkhead();
+        MovieBulkheads movieBulkheads = new MovieBulkheads(bulkhead.getReads(), bulkhead.getWrites(), bulkhead.getAllMovies());
+        moviesClientMetrics.monitor(movieBulkheads.getReads());
+        moviesClientMetrics.monitor(movieBulkheads.getWrites());
+        moviesClientMetrics.monitor(movieBulkheads.getAllMovies());
+        return movieBulkheads;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "movieapp.rate-limit", name = "enabled", havingValue = "true")
+    public RateLimitFilter rateLimitFilter(MovieAppProperties movieAppProperties, MoviesClientMetrics moviesClientMetrics) {
+        Map<String, MovieRateLimiter> limiters = new LinkedHashMap<>();
+        movieAppProperties.getRateLimit().getOperations().forEach((operationName, operation) -> {
+            MovieRateLimiter limiter = MovieRateLimiter.builder(operationName)
+                    .ratePerSecond(operation.getRatePerSecond())
+                    .burst(operation.getBurst())
+                    .maxWait(operation.getMaxWait())
+                    .maxPause(operation.getMaxPause())
+                    .build();
+            moviesClientMetrics.monitor(limiter);
+            limiters.put(operationName, limiter);
+        });
+        return new RateLimitFilter(limiters);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "movieapp.hedging", name = "enabled", havingValue = "true")
+    public MovieHedging movieHedging(MovieAppProperties movieAppProperties) {
+        MovieAppProperties.Hedging hedging = movieAppProperties.getHedging();
+        return MovieHedging.builder()
+                .delay(hedging.getDelay())
+                .percentile(hedging.getPercentile())
+                .hedgeBudget(new RetryBudget(hedging.getBudgetRatio(), hedging.getBudgetMaxTokens()))
+                .build();
+    }
+
+    @Bean
+    public MovieDeadlines movieDeadlines(MovieAppProperties movieAppProperties) {
+        MovieAppProperties.Deadline deadline = movieAppProperties.getDeadline();
+        MovieDeadlines.Builder builder = MovieDeadlines.builder()
+                .defaultTimeout(deadline.getDefaultTimeout());
+        deadline.getOperations().forEach(builder::timeout);
+        return builder.build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "movieapp.warmup", name = "enabled", havingValue = "true")
+    public MovieConnectionWarmer movieConnectionWarmer(WebClient webClient, MovieAppProperties movieAppProperties) {
+        MovieAppProperties.Warmup warmup = movieAppProperties.getWarmup();
+        return new MovieConnectionWarmer(webClient, warmup.getConnections(), warmup.getRequests(), warmup.getMovieId(),
+                warmup.getTimeout(), warmup.isBlocking());
+    }
+
+    @Bean
+    public MoviesClientMetrics moviesClientMetrics(MeterRegistry meterRegistry) {
+        return new MoviesClientMetrics(meterRegistry);
+    }
 
+    @Bean
+    public FailureLog failureLog(MovieAppProperties movieAppProperties) {
+        return new FailureLog(LoggerFactory.getLogger(MoviesRestClient.class), movieAppProperties.getLogging().getFailureInterval());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "movieapp.cache", name = "enabled", havingValue = "true")
+    public MovieCache movieCache(MovieAppProperties movieAppProperties, MoviesClientMetrics moviesClientMetrics) {
+        MovieAppProperties.Cache cache = movieAppProperties.getCache();
+        MovieCache movieCache = new MovieCache(cache.getMaximumSize(), cache.getTimeToLive());
+        moviesClientMetrics.monitor(movieCache);
+        return movieCache;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "movieapp.not-found-cache", name = "enabled", havingValue = "true")
+    public NotFoundCache notFoundCache(MovieAppProperties movieAppProperties, MoviesClientMetrics moviesClientMetrics) {
+        MovieAppProperties.NotFoundCache notFoundCache = movieAppProperties.getNotFoundCache();
+        NotFoundCache cache = new NotFoundCache(notFoundCache.getMaximumSize(), notFoundCache.getTimeToLive());
+        moviesClientMetrics.monitor(cache);
+        return cache;
     }
 }
@@ -0,0 +1,403 @@
+package com.learnwiremock.config;
+
+import com.learnwiremock.service.FailureLog;
+import com.learnwiremock.service.MovieBulkheads;
+import com.learnwiremock.service.RetryBudget;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "movieapp")
+public class MovieAppProperties {
+
+    private Cache cache = new Cache();
+
+    private NotFoundCache notFoundCache = new NotFoundCache();
+
+    private ConditionalGet conditionalGet = new ConditionalGet();
+
+    private Http http = new Http();
+
+    private Errors errors = new Errors();
+
+    private Logging logging = new Logging();
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    private Retry retry = new Retry();
+
+    private Hedging hedging = new Hedging();
+
+    private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
+    private Bulkhead bulkhead = new Bulkhead();
+
+    private RateLimit rateLimit = new RateLimit();
+
+    private Deadline deadline = new Deadline();
+
+    private Warmup warmup = new Warmup();
+
+    /**
+     * movieapp.cache.* - read-through cache for retrieveMovieById.
+     */
+    @Data
+    public static class Cache {
+
+        private boolean enabled = false;
+
+        private long maximumSize = 10_000;
+
+        private Duration timeToLive = Duration.ofMinutes(10);
+    }
+
+    /**
+     * movieapp.not-found-cache.* - short lived cache of 404 lookups by id, name and year.
+     */
+    @Data
+    public static class NotFoundCache {
+
+        private boolean enabled = false;
+
+        private long maximumSize = 10_000;
+
+        private Duration timeToLive = Duration.ofSeconds(30);
+    }
+
+    /**
+     * movieapp.conditional-get.* - revalidate the all movies catalog with ETag / Last-Modified instead of downloading it again.
+     */
+    @Data
+    public static class ConditionalGet {
+
+        private boolean enabled = false;
+    }
+
+    /**
+     * movieapp.http.* - the HTTP client used to call the movies service.
+     */
+    @Data
+    public static class Http {
+
+        private Pool pool = new Pool();
+
+        private Transport transport = new Transport();
+
+        /**
+         * The longest the movies service may stay silent while a response is awaited or read, 0 for none. Unlike
+         * the deadlines it does not end a long download that keeps receiving data.
+         */
+        private Duration readTimeout = Duration.ofSeconds(5);
+
+        /**
+         * The longest a request may take to be written, 0 for none.
+         */
+        private Duration writeTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Asks for gzip compressed responses, gzip and deflate bodies are decompressed before they reach Jackson.
+         */
+        private boolean compression = false;
+
+        /**
+         * Decodes and encodes the JSON bodies with the tuned mapper of MovieJson instead of the default one of Spring.
+         */
+        private boolean tunedJson = false;
+    }
+
+    /**
+     * movieapp.http.transport.* - the event loops and socket options of the HTTP client. NIO unless prefer-native is set
+     * and netty-transport-native-epoll is on the classpath, see {@link com.learnwiremock.service.MovieTransport}.
+     */
+    @Data
+    public static class Transport {
+
+        /**
+         * 0 runs the client on the event loops shared with the WebFlux server.
+         */
+        private int eventLoopThreads = 0;
+
+        private boolean preferNative = false;
+
+        private boolean tcpNoDelay = true;
+
+        private boolean keepAlive = false;
+
+        /**
+         * 0 leaves SO_RCVBUF to the OS.
+         */
+        private int receiveBufferSize = 0;
+
+        /**
+         * 0 leaves SO_SNDBUF to the OS.
+         */
+        private int sendBufferSize = 0;
+    }
+
+    /**
+     * movieapp.http.pool.* - the connection pool of the HTTP client, the defaults are the ones of Reactor Netty.
+     */
+    @Data
+    public static class Pool {
+
+        private String name = "movies";
+
+        private int maxConnections = ConnectionProvider.DEFAULT_POOL_MAX_CONNECTIONS;
+
+        /**
+         * -1 means unbounded.
+         */
+        private int pendingAcquireMaxCount = -1;
+
+        private Duration acquireTimeout = Duration.ofMillis(ConnectionProvider.DEFAULT_POOL_ACQUIRE_TIMEOUT);
+
+        /**
+         * Not set means idle connections are kept open.
+         */
+        private Duration maxIdleTime;
+
+        /**
+         * Not set means connections are kept open regardless of their age.
+         */
+        private Duration maxLifeTime;
+    }
+
+    /**
+     * movieapp.errors.* - lightweight=true signals 4xx and 503 responses as stackless MovieErrorResponses with the status code,
+     * method, path and a body excerpt, unexpected errors keep their stack traces.
+     */
+    @Data
+    public static class Errors {
+
+        private boolean lightweight = false;
+    }
+
+    /**
+     * movieapp.logging.* - failures of the same method, status and exception are logged once per failure-interval,
+     * as one line with their count. 0s logs every failure.
+     */
+    @Data
+    public static class Logging {
+
+        private Duration failureInterval = FailureLog.DEFAULT_INTERVAL;
+    }
+
+    /**
+     * movieapp.circuit-breaker.* - one circuit breaker for the reads and one for the writes, see MovieCircuitBreaker.
+     */
+    @Data
+    public static class CircuitBreaker {
+
+        private boolean enabled = false;
+
+        private float failureRateThreshold = 50;
+
+        private float slowCallRateThreshold = 100;
+
+        private Duration slowCallDuration = Duration.ofSeconds(2);
+
+        private int slidingWindowSize = 20;
+
+        private int minimumNumberOfCalls = 10;
+
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+
+        private int permittedCallsInHalfOpenState = 3;
+    }
+
+    /**
+     * movieapp.retry.* - retries of reads and of writes with an idempotency key, see RetryFilter and RetryBudget.
+     */
+    @Data
+    public static class Retry {
+
+        private boolean enabled = false;
+
+        /**
+         * All attempts including the first one.
+         */
+        private int maxAttempts = 3;
+
+        private Duration firstBackoff = Duration.ofMillis(100);
+
+        private Duration maxBackoff = Duration.ofSeconds(2);
+
+        /**
+         * The retries allowed per request, 0.1 allows at most 10% extra load.
+         */
+        private double budgetRatio = RetryBudget.DEFAULT_RETRY_RATIO;
+
+        private int budgetMaxTokens = RetryBudget.DEFAULT_MAX_TOKENS;
+    }
+
+    /**
+     * movieapp.hedging.* - hedged requests for retrieveMovieById, see MovieHedging.
+     */
+    @Data
+    public static class Hedging {
+
+        private boolean enabled = false;
+
+        /**
+         * The hedge delay until enough latencies are known, or always when the percentile is 0.
+         */
+        private Duration delay = Duration.ofMillis(100);
+
+        /**
+         * The latency percentile used as hedge delay, 0 uses the fixed delay.
+         */
+        private double percentile = 0.95;
+
+        /**
+         * The hedges allowed per request, 0.1 hedges at most 10% of the requests.
+         */
+        private double budgetRatio = 0.1;
+
+        private int budgetMaxTokens = RetryBudget.DEFAULT_MAX_TOKENS;
+    }
+
+    /**
+     * movieapp.concurrency-limit.* - adaptive limit of the calls in flight, see AdaptiveConcurrencyLimiter.
+     */
+    @Data
+    public static class ConcurrencyLimit {
+
+        private boolean enabled = false;
+
+        private int initialLimit = 20;
+
+        private int minLimit = 1;
+
+        private int maxLimit = 200;
+
+        /**
+         * How long a call over the limit waits for a permit, zero rejects it right away.
+         */
+        private Duration maxWait = Duration.ZERO;
+
+        private int maxQueueSize = 100;
+    }
+
+    /**
+     * movieapp.bulkhead.* - the concurrent calls allowed per group, see MovieBulkheads.
+     * Keep their sum at or below movieapp.http.pool.max-connections.
+     */
+    @Data
+    public static class Bulkhead {
+
+        private boolean enabled = false;
+
+        /**
+         * retrieveMovieById, retrieveMovieByName and retreieveMovieByYear.
+         */
+        private int reads = MovieBulkheads.DEFAULT_READS;
+
+        /**
+         * addNewMovie, updateMovie, deleteMovieById and deleteMovieByName.
+         */
+        private int writes = MovieBulkheads.DEFAULT_WRITES;
+
+        /**
+         * retrieveAllMovies and streamAllMovies.
+         */
+        private int allMovies = MovieBulkheads.DEFAULT_ALL_MOVIES;
+    }
+
+    /**
+     * movieapp.rate-limit.* - token bucket rate limits per operation, see MovieRateLimiter.
+     */
+    @Data
+    public static class RateLimit {
+
+        private boolean enabled = false;
+
+        /**
+         * The limit of each limited operation, keyed by the operation name, for example
+         * movieapp.rate-limit.operations.retrieveMovieById.rate-per-second. Other operations are not limited.
+         */
+        private Map<String, Operation> operations = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class Operation {
+
+        private double ratePerSecond = 100;
+
+        /**
+         * How many calls may go out at once after a quiet period.
+         */
+        private int burst = 10;
+
+        /**
+         * How long a call waits for its token, zero rejects calls that find the bucket empty.
+         */
+        private Duration maxWait = Duration.ofMillis(500);
+
+        /**
+         * The longest pause taken from a Retry-After header of a 429 or 503 response.
+         */
+        private Duration maxPause = Duration.ofSeconds(30);
+    }
+
+    /**
+     * movieapp.deadline.* - the time a call may take, including its retries and reading the response, see MovieDeadlines.
+     * A deadline of the caller in the Reactor context applies when it ends earlier.
+     */
+    @Data
+    public static class Deadline {
+
+        /**
+         * The timeout of the operations without one of their own.
+         */
+        private Duration defaultTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Timeouts keyed by the operation name, for example movieapp.deadline.operations.retrieveAllMovies=30s, 0 for none.
+         * streamAllMovies has none unless it is set here.
+         */
+        private Map<String, Duration> operations = new LinkedHashMap<>();
+
+        public Deadline() {
+            operations.put("retrieveAllMovies", Duration.ofSeconds(30));
+        }
+    }
+
+    /**
+     * movieapp.warmup.* - opens connections to the movies service and warms the client up at startup, see MovieConnectionWarmer.
+     */
+    @Data
+    public static class Warmup {
+
+        private boolean enabled = false;
+
+        /**
+         * How many pooled connections are opened, at most movieapp.http.pool.max-connections.
+         */
+        private int connections = 4;
+
+        /**
+         * How many requests are sent over the connections once they are open, 0 only opens them.
+         */
+        private int requests = 0;
+
+        /**
+         * The movie looked up by the warm-up requests.
+         */
+        private int movieId = 1;
+
+        /**
+         * After which the warm-up is given up and the application starts regardless.
+         */
+        private Duration timeout = Duration.ofSeconds(10);
+
+        /**
+         * true delays the startup until the warm-up is done, false warms up once the application is ready.
+         */
+        private boolean blocking = true;
+    }
+}
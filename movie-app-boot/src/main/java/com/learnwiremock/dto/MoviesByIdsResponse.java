@@ -0,0 +1,19 @@
+package com.learnwiremock.dto;
+
+import com.learnwiremock.exception.MovieErrorResponse;
+import lombok.Data;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Result of a bulk lookup by movie ids.
+ * Ids that were found end up in {@code movies}, ids whose lookup failed end up in {@code failures}.
+ */
+@Data
+public class MoviesByIdsResponse {
+
+    private final Map<Integer, Movie> movies = new ConcurrentHashMap<>();
+    private final Map<Integer, MovieErrorResponse> failures = new ConcurrentHashMap<>();
+
+}
@@ -0,0 +1,18 @@
+package com.learnwiremock.exception;
+
+/**
+ * Signalled instead of calling the movies service while all permits of the bulkhead of the call are in use.
+ */
+public class BulkheadFullException extends MovieErrorResponse {
+
+    private final String bulkheadName;
+
+    public BulkheadFullException(String bulkheadName, int maxConcurrentCalls) {
+        super("Bulkhead " + bulkheadName + " is full with " + maxConcurrentCalls + " calls, the call was not sent");
+        this.bulkheadName = bulkheadName;
+    }
+
+    public String getBulkheadName() {
+        return bulkheadName;
+    }
+}
@@ -0,0 +1,18 @@
+package com.learnwiremock.exception;
+
+/**
+ * Signalled instead of calling the movies service while the circuit breaker of the call is open.
+ */
+public class CircuitBreakerOpenException extends MovieErrorResponse {
+
+    private final String circuitBreakerName;
+
+    public CircuitBreakerOpenException(String circuitBreakerName) {
+        super("Circuit breaker " + circuitBreakerName + " is open, the call was not permitted");
+        this.circuitBreakerName = circuitBreakerName;
+    }
+
+    public String getCircuitBreakerName() {
+        return circuitBreakerName;
+    }
+}
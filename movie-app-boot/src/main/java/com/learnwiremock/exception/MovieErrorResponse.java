@@ -1,11 +1,123 @@
 package com.learnwiremock.exception;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+
 public class MovieErrorResponse extends  RuntimeException {
 
+    /**
+     * The longest response body excerpt kept by an {@link #expected} error.
+     */
+    public static final int MAX_BODY_EXCERPT = 256;
+
+    private final Integer statusCode;
+    private final String method;
+    private final String path;
+    private final String responseBody;
+    private final Duration retryAfter;
+
     public MovieErrorResponse(String message, Throwable cause) {
         super(message, cause);
+        WebClientResponseException responseException = cause instanceof WebClientResponseException ? (WebClientResponseException) cause : null;
+        this.statusCode = responseException != null ? responseException.getRawStatusCode() : null;
+        this.method = null;
+        this.path = null;
+        this.responseBody = responseException != null ? responseException.getResponseBodyAsString() : null;
+        this.retryAfter = null;
     }
     public MovieErrorResponse(Throwable cause) {
         super(cause);
+        this.statusCode = null;
+        this.method = null;
+        this.path = null;
+        this.responseBody = null;
+        this.retryAfter = null;
+    }
+
+    /**
+     * For errors raised by the client itself, without a response. They have no stack trace either.
+     */
+    protected MovieErrorResponse(String message) {
+        super(message, null, false, false);
+        this.statusCode = null;
+        this.method = null;
+        this.path = null;
+        this.responseBody = null;
+        this.retryAfter = null;
+    }
+
+    private MovieErrorResponse(int statusCode, String statusText, String method, String path, String responseBody, Duration retryAfter) {
+        super(statusText, null, false, false);
+        this.statusCode = statusCode;
+        this.method = method;
+        this.path = path;
+        this.responseBody = responseBody;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * An error for an HTTP failure the caller is expected to handle, see {@link #isExpected(int)}.
+     * It has neither a stack trace nor a cause, so it is cheap to create and can be shared, for example by a cache.
+     *
+     * @param responseBody - cut to {@link #MAX_BODY_EXCERPT} characters
+     */
+    public static MovieErrorResponse expected(int statusCode, String method, String path, String responseBody) {
+        return expected(statusCode, method, path, responseBody, null);
+    }
+
+    /**
+     * @param retryAfter - the wait the Retry-After header of the response asked for, null when it had none
+     */
+    public static MovieErrorResponse expected(int statusCode, String method, String path, String responseBody, Duration retryAfter) {
+        HttpStatus httpStatus = HttpStatus.resolve(statusCode);
+        String statusText = httpStatus != null ? httpStatus.getReasonPhrase() : String.valueOf(statusCode);
+        String bodyExcerpt = responseBody != null && responseBody.length() > MAX_BODY_EXCERPT
+                ? responseBody.substring(0, MAX_BODY_EXCERPT)
+                : responseBody;
+        return new MovieErrorResponse(statusCode, statusText, method, path, bodyExcerpt, retryAfter);
+    }
+
+    /**
+     * 4xx responses and 503 Service Unavailable are part of normal operation, a stack trace adds nothing to them.
+     */
+    public static boolean isExpected(int statusCode) {
+        return (statusCode >= 400 && statusCode < 500) || statusCode == HttpStatus.SERVICE_UNAVAILABLE.value();
+    }
+
+    /**
+     * @return - the HTTP status of the error response, null when no response was received
+     */
+    public Integer getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return - the HTTP method of the failed request, only known for {@link #expected} errors
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return - the path of the failed request, only known for {@link #expected} errors
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return - the body of the error response, an excerpt for {@link #expected} errors
+     */
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    /**
+     * @return - the wait the Retry-After header asked for, only known for {@link #expected} errors
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
     }
 }
@@ -0,0 +1,44 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.dto.Movie;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+
+/**
+ * The last catalog returned by the all movies endpoint, along with the validators needed to revalidate it.
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogSnapshot {
+
+    private final String eTag;
+    private final String lastModified;
+    private final List<Movie> movies;
+
+    /**
+     * @return - a snapshot of the response, or null when the response carries neither an ETag nor a Last-Modified header
+     */
+    public static CatalogSnapshot of(HttpHeaders headers, List<Movie> movies) {
+        String eTag = headers.getETag();
+        String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        if (eTag == null && lastModified == null) {
+            return null;
+        }
+        return new CatalogSnapshot(eTag, lastModified, movies);
+    }
+
+    /**
+     * Adds If-None-Match / If-Modified-Since, so the service can answer with a 304 when the catalog is unchanged.
+     */
+    public void addValidators(HttpHeaders headers) {
+        if (eTag != null) {
+            headers.setIfNoneMatch(eTag);
+        }
+        if (lastModified != null) {
+            headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
+    }
+}
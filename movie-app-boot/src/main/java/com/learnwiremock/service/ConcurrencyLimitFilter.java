@@ -0,0 +1,74 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.exception.CircuitBreakerOpenException;
+import com.learnwiremock.exception.MovieErrorResponse;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sends the exchanges through an {@link AdaptiveConcurrencyLimiter}. A call holds its permit until its response status
+ * arrives, that time is the round trip time the limit adapts to.
+ * 429, 503 and 504 responses, connection failures and timeouts are overload and shrink the limit.
+ * Other 4xx responses are often answered without doing the work and calls rejected by a circuit breaker further down
+ * were never sent, neither changes the limit.
+ */
+public class ConcurrencyLimitFilter implements ExchangeFilterFunction {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return limiter.acquire().flatMap(permit -> {
+            long start = System.nanoTime();
+            return next.exchange(request)
+                    .doOnNext(response -> release(permit, start, response.rawStatusCode()))
+                    .doOnError(ex -> {
+                        if (ex instanceof CircuitBreakerOpenException) {
+                            permit.cancel();
+                        } else {
+                            release(permit, start, statusCode(ex));
+                        }
+                    })
+                    .doOnCancel(permit::cancel);
+        });
+    }
+
+    /**
+     * @param statusCode - the response status, null when no response was received
+     */
+    private static void release(AdaptiveConcurrencyLimiter.Permit permit, long start, Integer statusCode) {
+        if (statusCode == null || isOverload(statusCode)) {
+            permit.release(System.nanoTime() - start, true);
+        } else if (statusCode >= 400 && statusCode < 500) {
+            permit.cancel();
+        } else {
+            permit.release(System.nanoTime() - start, false);
+        }
+    }
+
+    static boolean isOverload(int statusCode) {
+        return statusCode == 429 || statusCode == 503 || statusCode == 504;
+    }
+
+    private static Integer statusCode(Throwable ex) {
+        if (ex instanceof MovieErrorResponse) {
+            return ((MovieErrorResponse) ex).getStatusCode();
+        }
+        if (ex instanceof WebClientResponseException) {
+            return ((WebClientResponseException) ex).getRawStatusCode();
+        }
+        return null;
+    }
+
+    public AdaptiveConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+}
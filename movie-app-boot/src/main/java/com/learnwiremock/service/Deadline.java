@@ -0,0 +1,63 @@
+package com.learnwiremock.service;
+
+import reactor.util.context.Context;
+
+import java.time.Duration;
+
+/**
+ * The point in time by which a call has to be done, on the {@link System#nanoTime()} clock.
+ * <p>
+ * A caller hands its own deadline, for example what is left of the deadline of an incoming request, to the
+ * non blocking methods of the client through the Reactor context:
+ * <pre>
+ * moviesRestClient.retrieveMovieByIdMono(1)
+ *         .subscriberContext(Deadline.after(Duration.ofMillis(300)).asContext())
+ * </pre>
+ * The earlier of the caller deadline and the default of the operation applies, see {@link MovieDeadlines}.
+ */
+public final class Deadline {
+
+    private final long deadlineNanos;
+    private final Duration timeout;
+
+    private Deadline(long deadlineNanos, Duration timeout) {
+        this.deadlineNanos = deadlineNanos;
+        this.timeout = timeout;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos(), timeout);
+    }
+
+    /**
+     * @return - the time left, zero once the deadline has passed
+     */
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @return - this deadline or the other one, whichever ends first
+     */
+    public Deadline earlier(Deadline other) {
+        return other.deadlineNanos - deadlineNanos < 0 ? other : this;
+    }
+
+    /**
+     * @return - the time the deadline was set for
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return - a context carrying this deadline, for {@code subscriberContext}
+     */
+    public Context asContext() {
+        return Context.of(Deadline.class, this);
+    }
+}
@@ -0,0 +1,32 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.exception.MovieErrorResponse;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * Turns expected error responses (4xx, 503) into stackless {@link MovieErrorResponse#expected} errors right at the exchange,
+ * before {@code retrieve()} gets to build a {@code WebClientResponseException} with its stack trace and copied body.
+ * The error keeps the Retry-After header of the response, the other headers are dropped.
+ * Every other response, including unexpected 5xx, is passed on unchanged.
+ */
+public class ExpectedErrorFilter implements ExchangeFilterFunction {
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return next.exchange(request)
+                .flatMap(response -> {
+                    if (!MovieErrorResponse.isExpected(response.rawStatusCode())) {
+                        return Mono.just(response);
+                    }
+                    return response.bodyToMono(String.class)
+                            .defaultIfEmpty("")
+                            .flatMap(body -> Mono.error(MovieErrorResponse.expected(response.rawStatusCode(),
+                                    request.method().name(), request.url().getPath(), body,
+                                    RateLimitFilter.retryAfter(response.headers().asHttpHeaders()))));
+                });
+    }
+}
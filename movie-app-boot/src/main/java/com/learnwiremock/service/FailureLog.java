@@ -0,0 +1,83 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.exception.MovieErrorResponse;
+import org.slf4j.Logger;
+import reactor.core.Exceptions;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate limited error logging of failed calls.
+ * Failures are grouped into classes by method, HTTP status and exception. The first failure of a class is logged right away,
+ * later ones are only counted until the interval has passed, then the next failure logs one summary line with the count.
+ * Failures without an HTTP status are unexpected and logged with their stack trace, expected ones without.
+ * An interval of zero logs every failure.
+ */
+public class FailureLog {
+
+    public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(10);
+
+    private final Logger log;
+    private final long intervalNanos;
+    private final ConcurrentMap<String, FailureClass> failureClasses = new ConcurrentHashMap<>();
+
+    public FailureLog(Logger log, Duration interval) {
+        this.log = log;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    /**
+     * @return - true when the failure was logged, false when it was only counted
+     */
+    public boolean record(String method, MovieErrorResponse movieErrorResponse) {
+        if (!log.isErrorEnabled()) {
+            return false;
+        }
+        Integer statusCode = movieErrorResponse.getStatusCode();
+        Throwable cause = movieErrorResponse.getCause() != null
+                ? Exceptions.unwrap(movieErrorResponse.getCause())
+                : movieErrorResponse;
+        String exception = cause.getClass().getSimpleName();
+        String status = statusCode != null ? String.valueOf(statusCode) : "NONE";
+
+        FailureClass failureClass = failureClasses.computeIfAbsent(method + ' ' + status + ' ' + exception,
+                key -> new FailureClass(System.nanoTime() - intervalNanos));
+        long count = failureClass.countAndReset(System.nanoTime(), intervalNanos);
+        if (count == 0) {
+            return false;
+        }
+        if (statusCode != null) {
+            log.error("Request failed method={} status={} exception={} count={} message=\"{}\" body=\"{}\"",
+                    method, status, exception, count, movieErrorResponse.getMessage(), movieErrorResponse.getResponseBody());
+        } else {
+            log.error("Request failed method={} status={} exception={} count={} message=\"{}\"",
+                    method, status, exception, count, movieErrorResponse.getMessage(), cause);
+        }
+        return true;
+    }
+
+    private static class FailureClass {
+
+        private final AtomicLong lastLogged;
+        private final AtomicLong failures = new AtomicLong();
+
+        FailureClass(long lastLogged) {
+            this.lastLogged = new AtomicLong(lastLogged);
+        }
+
+        /**
+         * @return - the failures since the last line when this failure gets to log one, 0 when it is only counted
+         */
+        long countAndReset(long now, long intervalNanos) {
+            failures.incrementAndGet();
+            long last = lastLogged.get();
+            if (now - last < intervalNanos || !lastLogged.compareAndSet(last, now)) {
+                return 0;
+            }
+            return failures.getAndSet(0);
+        }
+    }
+}
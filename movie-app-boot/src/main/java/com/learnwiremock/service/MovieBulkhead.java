@@ -0,0 +1,78 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.exception.BulkheadFullException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed number of concurrent calls for one group of operations. A call holds its permit until it completes, fails
+ * or is cancelled, including the time to read the response body. Calls over the limit are not queued, they fail right
+ * away with a {@link BulkheadFullException}, so a group that is saturated cannot hold up callers of another group.
+ */
+public class MovieBulkhead {
+
+    private final String name;
+    private final int maxConcurrentCalls;
+    private final AtomicInteger activeCalls = new AtomicInteger();
+    private final AtomicLong rejectedCalls = new AtomicLong();
+
+    public MovieBulkhead(String name, int maxConcurrentCalls) {
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    public <T> Mono<T> execute(Mono<T> call) {
+        return execute(call.flux()).singleOrEmpty();
+    }
+
+    public <T> Flux<T> execute(Flux<T> call) {
+        return Flux.defer(() -> {
+            if (!tryAcquirePermission()) {
+                rejectedCalls.incrementAndGet();
+                return Flux.error(new BulkheadFullException(name, maxConcurrentCalls));
+            }
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    activeCalls.decrementAndGet();
+                }
+            };
+            return call.doOnTerminate(release)
+                    .doOnCancel(release);
+        });
+    }
+
+    private boolean tryAcquirePermission() {
+        int active;
+        do {
+            active = activeCalls.get();
+            if (active >= maxConcurrentCalls) {
+                return false;
+            }
+        } while (!activeCalls.compareAndSet(active, active + 1));
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public int getActiveCalls() {
+        return activeCalls.get();
+    }
+
+    /**
+     * @return - how many calls were rejected because all permits were in use
+     */
+    public long getRejectedCallCount() {
+        return rejectedCalls.get();
+    }
+}
@@ -0,0 +1,83 @@
+package com.learnwiremock.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.learnwiremock.dto.Movie;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Size bounded cache of movies by id.
+ * Entries expire after the configured time to live and are evicted with Caffeine's W-TinyLFU policy once the maximum size is reached.
+ * <p>
+ * Every invalidation bumps the generation of the movie id, a lookup reads the generation before it goes to the movies
+ * service and only caches its result if no invalidation happened in the meantime, so a lookup that raced an update or
+ * a delete cannot put the old movie back. Generations are striped by id to keep them bounded, an invalidation may
+ * therefore also skip the caching of an unrelated lookup, which is only a miss.
+ */
+public class MovieCache {
+
+    private static final int GENERATION_STRIPES = 64;
+
+    private final Cache<Integer, Movie> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public MovieCache(long maximumSize, Duration timeToLive) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive.toNanos(), TimeUnit.NANOSECONDS)
+                .recordStats()
+                .build();
+    }
+
+    public Movie get(Integer movieId) {
+        return cache.getIfPresent(movieId);
+    }
+
+    /**
+     * @return - the invalidation generation of the movie id, to be handed to {@link #put(Integer, Movie, long)}
+     */
+    public long generation(Integer movieId) {
+        return generations.get(stripe(movieId));
+    }
+
+    /**
+     * Caches the movie unless it was invalidated after the given generation was read.
+     * The check runs under the lock of the entry, an invalidation either sees the new entry or makes the check fail.
+     */
+    public void put(Integer movieId, Movie movie, long generation) {
+        cache.asMap().compute(movieId, (id, cachedMovie) -> generation(id) == generation ? movie : cachedMovie);
+    }
+
+    public void invalidate(Integer movieId) {
+        generations.incrementAndGet(stripe(movieId));
+        cache.invalidate(movieId);
+    }
+
+    public void invalidateByName(String movieName) {
+        // the id of a movie that is still being looked up is unknown here
+        for (int stripe = 0; stripe < GENERATION_STRIPES; stripe++) {
+            generations.incrementAndGet(stripe);
+        }
+        cache.asMap().values().removeIf(movie -> movieName != null && movieName.equals(movie.getName()));
+    }
+
+    Cache<Integer, Movie> cache() {
+        return cache;
+    }
+
+    /**
+     * @return - hit, miss and eviction counters of the cache
+     */
+    public CacheStats stats() {
+        cache.cleanUp();
+        return cache.stats();
+    }
+
+    private static int stripe(Integer movieId) {
+        return (movieId != null ? movieId.hashCode() : 0) & (GENERATION_STRIPES - 1);
+    }
+}
@@ -0,0 +1,105 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.dto.Movie;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.learnwiremock.constants.MoviesAppConstants.MOVIE_BY_ID_PATH_PARAM_V1;
+
+/**
+ * Opens connections to the movies service and warms up the client before the first real calls, so they do not pay
+ * for the DNS lookup, the TCP connects, the pool and codec initialization and the interpreted code.
+ * <p>
+ * Reactor Netty only opens a pooled connection for a request, so the warm-up looks up one movie by id on that many
+ * connections at once, then sends the extra requests over them, decoding each movie like {@link MoviesRestClient}
+ * does. It goes through the same connector and codecs as the client, but none of its filters: the warm-up neither
+ * takes rate limiter tokens nor counts for the circuit breakers. Failed requests, a 404 included, are only counted,
+ * the connections they opened stay in the pool.
+ * <p>
+ * Blocking, it runs once all singletons are created and holds the startup up to the timeout, otherwise it starts on
+ * {@link ApplicationReadyEvent} while the application already serves.
+ */
+@Slf4j
+public class MovieConnectionWarmer implements SmartInitializingSingleton, ApplicationListener<ApplicationReadyEvent> {
+
+    private final WebClient webClient;
+    private final int connections;
+    private final int requests;
+    private final int movieId;
+    private final Duration timeout;
+    private final boolean blocking;
+
+    /**
+     * @param webClient   - the client of the movies service, its filters are left out
+     * @param connections - how many connections are opened, by as many concurrent requests
+     * @param requests    - how many requests are sent over them afterwards
+     * @param movieId     - the id of the movie looked up, a 404 warms the connection but not the movie decoding
+     * @param timeout     - after which the warm-up is given up
+     * @param blocking    - whether the warm-up delays the startup or runs once the application is ready
+     */
+    public MovieConnectionWarmer(WebClient webClient, int connections, int requests, int movieId, Duration timeout, boolean blocking) {
+        this.webClient = webClient.mutate()
+                .filters(List::clear)
+                .build();
+        this.connections = Math.max(connections, 1);
+        this.requests = Math.max(requests, 0);
+        this.movieId = movieId;
+        this.timeout = timeout;
+        this.blocking = blocking;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (blocking) {
+            warmUp().block();
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!blocking) {
+            warmUp().subscribe();
+        }
+    }
+
+    /**
+     * @return - the number of requests that decoded a movie, never an error
+     */
+    public Mono<Long> warmUp() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Flux.range(0, connections + requests)
+                    .flatMap(request -> lookUpMovie(), connections)
+                    .filter(decoded -> decoded)
+                    .count()
+                    .timeout(timeout)
+                    .doOnNext(decoded -> log.info("Warmed up {} connections to the movies service with {} requests in {}ms, {} decoded a movie",
+                            connections, connections + requests, Duration.ofNanos(System.nanoTime() - start).toMillis(), decoded))
+                    .onErrorResume(ex -> {
+                        log.warn("Warm-up of the connections to the movies service gave up after {}: {}", timeout, ex.toString());
+                        return Mono.just(0L);
+                    });
+        });
+    }
+
+    private Mono<Boolean> lookUpMovie() {
+        return webClient.get().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId)
+                .attribute(MoviesRestClient.OPERATION_ATTRIBUTE, "warmUp")
+                .exchange()
+                .flatMap(clientResponse -> clientResponse.statusCode().is2xxSuccessful()
+                        ? clientResponse.bodyToMono(Movie.class).map(movie -> true)
+                        : clientResponse.bodyToMono(Void.class).thenReturn(false))
+                .onErrorResume(ex -> {
+                    log.debug("Warm-up request to the movies service failed", ex);
+                    return Mono.just(false);
+                });
+    }
+}
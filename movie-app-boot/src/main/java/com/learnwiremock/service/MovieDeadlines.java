@@ -0,0 +1,153 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.exception.DeadlineExceededException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deadlines for the calls of the client, a default timeout per operation plus the {@link Deadline} of the caller,
+ * whichever ends first.
+ * <p>
+ * The deadline covers the whole call: waiting for a rate limiter token or a concurrency permit, every attempt and
+ * the backoff between them, and reading the response body. Once it passes, the call fails with a
+ * {@link DeadlineExceededException} and the exchange in flight is cancelled. Each attempt only gets what is left of
+ * the deadline, see {@link DeadlineFilter}, and the {@link RetryFilter} does not start a retry that cannot finish in time.
+ * <p>
+ * {@link MoviesRestClient#streamAllMovies()} has no timeout of its own by default, an export of the whole catalog
+ * takes as long as it takes while the movies keep arriving, and only the deadline of the caller ends it. A server that
+ * stops sending is caught by the read timeout of the connection instead.
+ * <p>
+ * A lookup shared by several callers, see {@link SingleFlight}, runs under {@link #executeShared}, bounded by the
+ * timeout of the operation only, while each caller waits for it under {@link #execute} up to its own deadline.
+ * A caller with a short deadline that joins a slow lookup gives up on time, and does not cut the lookup short for
+ * the callers that joined it with more time.
+ */
+public class MovieDeadlines {
+
+    /**
+     * The attempt in flight fails at the deadline by itself, which the circuit breaker and the concurrency limit
+     * count as a timeout. The call as a whole is only cut off a little later, in case it was not waiting on an attempt.
+     */
+    private static final Duration ATTEMPT_GRACE = Duration.ofMillis(10);
+
+    /**
+     * The operations without a total deadline unless one is set for them.
+     */
+    private static final String[] UNBOUNDED_OPERATIONS = {"streamAllMovies"};
+
+    private static final int RUNNING = 0;
+    private static final int COMPLETED = 1;
+    private static final int EXPIRED = 2;
+
+    private final Duration defaultTimeout;
+    private final Map<String, Duration> timeouts;
+
+    private MovieDeadlines(Builder builder) {
+        this.defaultTimeout = builder.defaultTimeout;
+        this.timeouts = Collections.unmodifiableMap(new LinkedHashMap<>(builder.timeouts));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public <T> Mono<T> execute(String operation, Mono<T> call) {
+        return execute(operation, call.flux()).singleOrEmpty();
+    }
+
+    public <T> Flux<T> execute(String operation, Flux<T> call) {
+        return Mono.subscriberContext().flatMapMany(context -> execute(operation, call, deadline(operation, context.getOrDefault(Deadline.class, null))));
+    }
+
+    /**
+     * Runs a call whose result is shared by several callers under the timeout of the operation alone, the deadline of
+     * the caller that happens to start it does not apply to its attempts. The callers apply their own deadlines
+     * around the shared call with {@link #execute(String, Mono)}.
+     */
+    public <T> Mono<T> executeShared(String operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            Duration timeout = getTimeout(operation);
+            return execute(operation, call.flux(), timeout != null ? Deadline.after(timeout) : null)
+                    .singleOrEmpty()
+                    .subscriberContext(context -> timeout != null ? context : context.delete(Deadline.class));
+        });
+    }
+
+    private <T> Flux<T> execute(String operation, Flux<T> call, Deadline deadline) {
+        if (deadline == null) {
+            return call;
+        }
+        if (deadline.isExpired()) {
+            return Flux.error(new DeadlineExceededException(operation, deadline.getTimeout()));
+        }
+        AtomicInteger state = new AtomicInteger(RUNNING);
+        Mono<Long> expiry = Mono.delay(deadline.remaining().plus(ATTEMPT_GRACE))
+                .filter(tick -> state.compareAndSet(RUNNING, EXPIRED))
+                .switchIfEmpty(Mono.never());
+        return call.doOnComplete(() -> state.compareAndSet(RUNNING, COMPLETED))
+                .takeUntilOther(expiry)
+                .concatWith(Mono.defer(() -> state.get() == EXPIRED
+                        ? Mono.error(new DeadlineExceededException(operation, deadline.getTimeout()))
+                        : Mono.empty()))
+                .subscriberContext(innerContext -> innerContext.put(Deadline.class, deadline));
+    }
+
+    /**
+     * @param callerDeadline - the deadline of the caller, null when it has none
+     * @return - the deadline of a call starting now, null when neither the operation nor the caller has one
+     */
+    Deadline deadline(String operation, Deadline callerDeadline) {
+        Duration timeout = getTimeout(operation);
+        if (timeout == null) {
+            return callerDeadline;
+        }
+        Deadline operationDeadline = Deadline.after(timeout);
+        return callerDeadline != null ? operationDeadline.earlier(callerDeadline) : operationDeadline;
+    }
+
+    /**
+     * @return - the default timeout of the operation, null when it has none
+     */
+    public Duration getTimeout(String operation) {
+        Duration timeout = timeouts.getOrDefault(operation, defaultTimeout);
+        return timeout != null && !timeout.isZero() && !timeout.isNegative() ? timeout : null;
+    }
+
+    public static class Builder {
+
+        private Duration defaultTimeout;
+        private final Map<String, Duration> timeouts = new LinkedHashMap<>();
+
+        private Builder() {
+            for (String operation : UNBOUNDED_OPERATIONS) {
+                timeouts.put(operation, Duration.ZERO);
+            }
+        }
+
+        /**
+         * The timeout of the operations without one of their own, none by default.
+         */
+        public Builder defaultTimeout(Duration defaultTimeout) {
+            this.defaultTimeout = defaultTimeout;
+            return this;
+        }
+
+        /**
+         * The timeout of one operation, named like its method, for example retrieveAllMovies, zero for none.
+         */
+        public Builder timeout(String operation, Duration timeout) {
+            this.timeouts.put(operation, timeout);
+            return this;
+        }
+
+        public MovieDeadlines build() {
+            return new MovieDeadlines(this);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.learnwiremock.service;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedged calls: when a call has not completed after the hedge delay, an identical second call is started.
+ * Whichever completes first is used and the other one is cancelled.
+ * <p>
+ * The hedge delay is either fixed, or a percentile (p95 by default) of the latencies of recent first calls, which
+ * hedges about the slowest 5% of the calls. Until enough latencies are known the fixed delay is used.
+ * Hedges are paid for from a {@link RetryBudget}, which caps them at a share of the calls.
+ * The latencies are sampled without locking, the percentile is an estimate.
+ * Only use hedging for idempotent reads.
+ */
+public class MovieHedging {
+
+    private static final int MIN_SAMPLES = 100;
+    private static final int RECOMPUTE_EVERY = 100;
+
+    private final long delayNanos;
+    private final double percentile;
+    private final RetryBudget hedgeBudget;
+    private final long[] latencies;
+    private final AtomicLong sampleCount = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private volatile long percentileNanos = -1;
+
+    private MovieHedging(Builder builder) {
+        this.delayNanos = builder.delay.toNanos();
+        this.percentile = builder.percentile;
+        this.hedgeBudget = builder.hedgeBudget;
+        this.latencies = new long[builder.latencySamples];
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public <T> Mono<T> hedge(Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            hedgeBudget.onRequest();
+            long start = System.nanoTime();
+            Mono<T> first = call.get()
+                    .doOnSuccess(result -> recordLatency(System.nanoTime() - start))
+                    // a first call that lost to its hedge took at least this long
+                    .doOnCancel(() -> recordLatency(System.nanoTime() - start));
+            Mono<T> hedge = Mono.delay(Duration.ofNanos(currentDelayNanos()))
+                    .then(Mono.defer(() -> {
+                        if (!hedgeBudget.tryRetry()) {
+                            return Mono.never();
+                        }
+                        hedges.incrementAndGet();
+                        return call.get();
+                    }));
+            return Mono.first(first, hedge);
+        });
+    }
+
+    /**
+     * @return - the current hedge delay, the latency percentile when enough latencies are known, the fixed delay otherwise
+     */
+    public Duration getDelay() {
+        return Duration.ofNanos(currentDelayNanos());
+    }
+
+    /**
+     * @return - how many hedges were started
+     */
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    private long currentDelayNanos() {
+        long delay = percentileNanos;
+        return delay >= 0 ? delay : delayNanos;
+    }
+
+    private void recordLatency(long latencyNanos) {
+        if (percentile <= 0) {
+            return;
+        }
+        long sample = sampleCount.getAndIncrement();
+        latencies[(int) (sample % latencies.length)] = latencyNanos;
+        if (sample + 1 >= MIN_SAMPLES && (sample + 1) % RECOMPUTE_EVERY == 0) {
+            long[] window = Arrays.copyOf(latencies, (int) Math.min(sample + 1, latencies.length));
+            Arrays.sort(window);
+            percentileNanos = window[(int) Math.min(window.length - 1, Math.ceil(percentile * window.length) - 1)];
+        }
+    }
+
+    public static class Builder {
+
+        private Duration delay = Duration.ofMillis(100);
+        private double percentile = 0.95;
+        private int latencySamples = 1000;
+        private RetryBudget hedgeBudget = new RetryBudget(0.1, RetryBudget.DEFAULT_MAX_TOKENS);
+
+        private Builder() {
+        }
+
+        /**
+         * The hedge delay while too few latencies are known, or always when the percentile is 0. 100ms by default.
+         */
+        public Builder delay(Duration delay) {
+            this.delay = delay;
+            return this;
+        }
+
+        /**
+         * The latency percentile used as hedge delay, 0.95 by default, 0 uses the fixed {@link #delay(Duration)}.
+         */
+        public Builder percentile(double percentile) {
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * How many recent latencies the percentile is computed from, 1000 by default.
+         */
+        public Builder latencySamples(int latencySamples) {
+            this.latencySamples = latencySamples;
+            return this;
+        }
+
+        /**
+         * Caps the hedges, by default at 10% of the calls with up to 10 hedges saved up.
+         */
+        public Builder hedgeBudget(RetryBudget hedgeBudget) {
+            this.hedgeBudget = hedgeBudget;
+            return this;
+        }
+
+        public MovieHedging build() {
+            return new MovieHedging(this);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.learnwiremock.service;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import reactor.core.Disposable;
+import reactor.netty.http.HttpResources;
+import reactor.netty.resources.LoopResources;
+import reactor.netty.tcp.TcpClient;
+
+/**
+ * The event loops and socket options of the connections to the movies service.
+ * <p>
+ * By default Reactor Netty runs every client and server of the JVM on the same shared event loops, so a slow handler
+ * elsewhere delays the movie calls and the other way round. With {@link Builder#eventLoopThreads(int)} the client gets
+ * its own daemon event loops, named after the transport. With {@link Builder#preferNative(boolean)} the loops use the
+ * native epoll transport when netty-transport-native-epoll is on the classpath and loads on this platform, and NIO
+ * otherwise, {@link #getChannelType()} tells which one it is. Epoll saves the selector wake-ups and the copies of
+ * the JDK selector, which shows at high request rates.
+ * <p>
+ * Epoll is an opt-in: the build only has netty-transport-native-epoll on the test classpath. An application that wants
+ * it adds the jar to its runtime classpath and sets preferNative. Once the jar is there Reactor Netty also moves every
+ * other client and server on its shared event loops to epoll, since reactor.netty.native defaults to true, start the JVM
+ * with -Dreactor.netty.native=false to keep those on NIO.
+ * <p>
+ * The caller owns the dedicated event loops and disposes them, once the connection pool using them is disposed.
+ */
+public class MovieTransport implements Disposable {
+
+    private final String name;
+    private final LoopResources loopResources;
+    private final boolean dedicatedLoops;
+    private final boolean preferNative;
+    private final boolean tcpNoDelay;
+    private final boolean keepAlive;
+    private final int receiveBufferSize;
+    private final int sendBufferSize;
+
+    private MovieTransport(Builder builder) {
+        this.name = builder.name;
+        this.dedicatedLoops = builder.eventLoopThreads > 0;
+        this.loopResources = dedicatedLoops ? LoopResources.create(builder.name, builder.eventLoopThreads, true) : HttpResources.get();
+        this.preferNative = builder.preferNative;
+        this.tcpNoDelay = builder.tcpNoDelay;
+        this.keepAlive = builder.keepAlive;
+        this.receiveBufferSize = builder.receiveBufferSize;
+        this.sendBufferSize = builder.sendBufferSize;
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * Runs the client on the event loops of this transport, with its socket options.
+     */
+    public TcpClient configure(TcpClient tcpClient) {
+        TcpClient configured = tcpClient.runOn(loopResources, preferNative)
+                .option(ChannelOption.TCP_NODELAY, tcpNoDelay)
+                .option(ChannelOption.SO_KEEPALIVE, keepAlive);
+        if (receiveBufferSize > 0) {
+            configured = configured.option(ChannelOption.SO_RCVBUF, receiveBufferSize);
+        }
+        if (sendBufferSize > 0) {
+            configured = configured.option(ChannelOption.SO_SNDBUF, sendBufferSize);
+        }
+        return configured;
+    }
+
+    /**
+     * @return - the channel class the connections are opened with, EpollSocketChannel for the native transport
+     * and NioSocketChannel otherwise
+     */
+    public Class<? extends Channel> getChannelType() {
+        return loopResources.onChannel(loopResources.onClient(preferNative));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Shuts the dedicated event loops down, the shared ones are left alone.
+     */
+    @Override
+    public void dispose() {
+        if (dedicatedLoops) {
+            loopResources.dispose();
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return dedicatedLoops && loopResources.isDisposed();
+    }
+
+    public static class Builder {
+
+        private final String name;
+        private int eventLoopThreads;
+        private boolean preferNative;
+        private boolean tcpNoDelay = true;
+        private boolean keepAlive;
+        private int receiveBufferSize;
+        private int sendBufferSize;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * The number of threads of the dedicated event loops, 0 (the default) runs on the event loops shared with the
+         * rest of the JVM. One or two threads keep up with thousands of requests per second, Reactor Netty defaults
+         * to one per core.
+         */
+        public Builder eventLoopThreads(int eventLoopThreads) {
+            this.eventLoopThreads = eventLoopThreads;
+            return this;
+        }
+
+        /**
+         * Uses the native epoll transport when it is available, false by default so the client stays on NIO like the rest
+         * of the JVM even when netty-transport-native-epoll is on the classpath.
+         */
+        public Builder preferNative(boolean preferNative) {
+            this.preferNative = preferNative;
+            return this;
+        }
+
+        /**
+         * Disables Nagle's algorithm, true by default, so small requests are sent without waiting for the ack
+         * of the previous segment.
+         */
+        public Builder tcpNoDelay(boolean tcpNoDelay) {
+            this.tcpNoDelay = tcpNoDelay;
+            return this;
+        }
+
+        /**
+         * Sends TCP keep-alive probes on idle connections, false by default. The probe interval is the one of the OS,
+         * hours on most Linux installs, see {@link MovieConnectionProvider.Builder#maxIdleTime} for pooled connections.
+         */
+        public Builder keepAlive(boolean keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * SO_RCVBUF in bytes, 0 (the default) leaves it to the OS, which auto-tunes it unless it is set.
+         */
+        public Builder receiveBufferSize(int receiveBufferSize) {
+            this.receiveBufferSize = receiveBufferSize;
+            return this;
+        }
+
+        /**
+         * SO_SNDBUF in bytes, 0 (the default) leaves it to the OS, which auto-tunes it unless it is set.
+         */
+        public Builder sendBufferSize(int sendBufferSize) {
+            this.sendBufferSize = sendBufferSize;
+            return this;
+        }
+
+        public MovieTransport build() {
+            return new MovieTransport(this);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.exception.MovieErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer instrumentation of the {@link MoviesRestClient} operations.
+ * <ul>
+ * <li>movies.client.requests - timer with a percentile histogram, tagged by method, outcome, status and exception</li>
+ * <li>movies.client.errors - counter of failed calls, tagged by method, status and exception</li>
+ * <li>movies.client.requests.active - gauge of the calls in flight, tagged by method</li>
+ * <li>movies.client.concurrency.limit, .inflight, .queued - gauges of an {@link AdaptiveConcurrencyLimiter}, tagged by limiter</li>
+ * <li>movies.client.concurrency.rejected - counter of the calls rejected by the limiter, tagged by limiter</li>
+ * <li>movies.client.bulkhead.max, .active - gauges of the permits and the permits in use of a {@link MovieBulkhead},
+ * tagged by bulkhead</li>
+ * <li>movies.client.bulkhead.rejected - counter of the calls rejected by the bulkhead, tagged by bulkhead</li>
+ * <li>movies.client.ratelimit.rejected, .pauses - counters of the calls rejected by a {@link MovieRateLimiter} and of
+ * its pauses for a Retry-After, tagged by limiter</li>
+ * <li>movies.client.coalesced - counter of the lookups served by an identical request already in flight, tagged by lookup</li>
+ * <li>cache.gets, cache.puts, cache.evictions, cache.size and the other meters of Micrometer's {@link CaffeineCacheMetrics}
+ * for the {@link MovieCache} and the {@link NotFoundCache}, tagged cache=movies and cache=moviesNotFound</li>
+ * </ul>
+ * The status tag is the HTTP status of an error response, 2xx for a successful call and NONE when no response was received.
+ * The exception tag is the cause of the {@link MovieErrorResponse}, the exception the caller actually sees wraps it.
+ * Stackless expected errors have no cause and are tagged MovieErrorResponse.
+ */
+public class MoviesClientMetrics {
+
+    static final String REQUESTS = "movies.client.requests";
+    static final String ERRORS = "movies.client.errors";
+    static final String ACTIVE_REQUESTS = "movies.client.requests.active";
+    static final String CONCURRENCY_LIMIT = "movies.client.concurrency.limit";
+    static final String CONCURRENCY_IN_FLIGHT = "movies.client.concurrency.inflight";
+    static final String CONCURRENCY_QUEUED = "movies.client.concurrency.queued";
+    static final String CONCURRENCY_REJECTED = "movies.client.concurrency.rejected";
+    static final String BULKHEAD_MAX = "movies.client.bulkhead.max";
+    static final String BULKHEAD_ACTIVE = "movies.client.bulkhead.active";
+    static final String BULKHEAD_REJECTED = "movies.client.bulkhead.rejected";
+    static final String RATE_LIMIT_REJECTED = "movies.client.ratelimit.rejected";
+    static final String RATE_LIMIT_PAUSES = "movies.client.ratelimit.pauses";
+    static final String COALESCED = "movies.client.coalesced";
+    static final String MOVIE_CACHE = "movies";
+    static final String NOT_FOUND_CACHE = "moviesNotFound";
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, AtomicInteger> activeRequests = new ConcurrentHashMap<>();
+
+    public MoviesClientMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Mono<T> timed(String method, Mono<T> call) {
+        return timed(method, call.flux()).singleOrEmpty();
+    }
+
+    public <T> Flux<T> timed(String method, Flux<T> call) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            AtomicInteger active = activeRequests(method);
+            AtomicBoolean recorded = new AtomicBoolean();
+            AtomicBoolean ended = new AtomicBoolean();
+            Runnable end = () -> {
+                if (ended.compareAndSet(false, true)) {
+                    active.decrementAndGet();
+                }
+            };
+            active.incrementAndGet();
+            // not doFinally, it runs after a blocked caller has already been released
+            return call.doOnComplete(() -> record(recorded, method, sample, "SUCCESS", null))
+                    .doOnError(ex -> record(recorded, method, sample, null, ex))
+                    .doOnTerminate(end)
+                    .doOnCancel(() -> {
+                        end.run();
+                        record(recorded, method, sample, "CANCELLED", null);
+                    });
+        });
+    }
+
+    public void monitor(AdaptiveConcurrencyLimiter limiter) {
+        Tags tags = Tags.of("limiter", limiter.getName());
+        Gauge.builder(CONCURRENCY_LIMIT, limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .tags(tags)
+                .strongReference(true)
+                .register(meterRegistry);
+        Gauge.builder(CONCURRENCY_IN_FLIGHT, limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .tags(tags)
+                .strongReference(true)
+                .register(meterRegistry);
+        Gauge.builder(CONCURRENCY_QUEUED, limiter, AdaptiveConcurrencyLimiter::getQueueSize)
+                .tags(tags)
+                .strongReference(true)
+                .register(meterRegistry);
+        FunctionCounter.builder(CONCURRENCY_REJECTED, limiter, AdaptiveConcurrencyLimiter::getRejectedCallCount)
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    public void monitor(MovieBulkhead bulkhead) {
+        Tags tags = Tags.of("bulkhead", bulkhead.getName());
+        Gauge.builder(BULKHEAD_MAX, bulkhead, MovieBulkhead::getMaxConcurrentCalls)
+                .tags(tags)
+                .strongReference(true)
+                .register(meterRegistry);
+        Gauge.builder(BULKHEAD_ACTIVE, bulkhead, MovieBulkhead::getActiveCalls)
+                .tags(tags)
+                .strongReference(true)
+                .register(meterRegistry);
+        FunctionCounter.builder(BULKHEAD_REJECTED, bulkhead, MovieBulkhead::getRejectedCallCount)
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    public void monitor(MovieRateLimiter limiter) {
+        Tags tags = Tags.of("limiter", limiter.getName());
+        FunctionCounter.builder(RATE_LIMIT_REJECTED, limiter, MovieRateLimiter::getRejectedCallCount)
+                .tags(tags)
+                .register(meterRegistry);
+        FunctionCounter.builder(RATE_LIMIT_PAUSES, limiter, MovieRateLimiter::getPauseCount)
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    public void monitor(String lookup, SingleFlight<?, ?> calls) {
+        FunctionCounter.builder(COALESCED, calls, SingleFlight::getCoalescedCalls)
+                .tags("lookup", lookup)
+                .register(meterRegistry);
+    }
+
+    public void monitor(MovieCache movieCache) {
+        CaffeineCacheMetrics.monitor(meterRegistry, movieCache.cache(), MOVIE_CACHE);
+    }
+
+    public void monitor(NotFoundCache notFoundCache) {
+        CaffeineCacheMetrics.monitor(meterRegistry, notFoundCache.cache(), NOT_FOUND_CACHE);
+    }
+
+    private AtomicInteger activeRequests(String method) {
+        return activeRequests.computeIfAbsent(method,
+                key -> meterRegistry.gauge(ACTIVE_REQUESTS, Tags.of("method", key), new AtomicInteger()));
+    }
+
+    private void record(AtomicBoolean recorded, String method, Timer.Sample sample, String outcome, Throwable error) {
+        if (!recorded.compareAndSet(false, true)) {
+            return;
+        }
+        String status = "2xx";
+        String exception = "none";
+        if (error != null) {
+            Throwable cause = error instanceof MovieErrorResponse && error.getCause() != null
+                    ? Exceptions.unwrap(error.getCause())
+                    : Exceptions.unwrap(error);
+            Integer statusCode = error instanceof MovieErrorResponse ? ((MovieErrorResponse) error).getStatusCode() : null;
+            if (statusCode == null && cause instanceof WebClientResponseException) {
+                statusCode = ((WebClientResponseException) cause).getRawStatusCode();
+            }
+            if (statusCode != null) {
+                int rawStatusCode = statusCode;
+                status = String.valueOf(rawStatusCode);
+                outcome = rawStatusCode >= 500 ? "SERVER_ERROR" : "CLIENT_ERROR";
+            } else {
+                status = "NONE";
+                outcome = "ERROR";
+            }
+            exception = cause.getClass().getSimpleName();
+            Counter.builder(ERRORS)
+                    .tags("method", method, "status", status, "exception", exception)
+                    .register(meterRegistry)
+                    .increment();
+        } else if ("CANCELLED".equals(outcome)) {
+            status = "NONE";
+        }
+        sample.stop(Timer.builder(REQUESTS)
+                .tags("method", method, "outcome", outcome, "status", status, "exception", exception)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
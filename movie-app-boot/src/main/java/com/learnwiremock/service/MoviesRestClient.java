@@ -1,16 +1,38 @@
 package com.learnwiremock.service;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.learnwiremock.config.MovieAppProperties;
 import com.learnwiremock.dto.Movie;
+import com.learnwiremock.dto.MoviesByIdsResponse;
 import com.learnwiremock.exception.MovieErrorResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.net.URI;
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static com.learnwiremock.constants.MoviesAppConstants.*;
 
@@ -19,9 +41,73 @@ import static com.learnwiremock.constants.MoviesAppConstants.*;
 @Component
 public class MoviesRestClient {
 
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+    public static final MediaType APPLICATION_NDJSON = MediaType.valueOf("application/x-ndjson");
+    /**
+     * The request attribute that names the client operation an exchange belongs to, for example retrieveMovieById.
+     */
+    public static final String OPERATION_ATTRIBUTE = MoviesRestClient.class.getName() + ".operation";
+
+    /**
+     * How many movies {@link #streamAllMovies()} requests ahead of the consumer.
+     */
+    private static final int STREAM_BATCH_SIZE = 256;
+    private static final ResolvableType MOVIE_TYPE = ResolvableType.forClass(Movie.class);
+
+    /**
+     * The default codecs of Spring 5.1 do not read application/x-ndjson, a Jackson decoder splits it into movies as the lines arrive.
+     */
+    private static final Jackson2JsonDecoder NDJSON_DECODER = new Jackson2JsonDecoder(Jackson2ObjectMapperBuilder.json().build(), APPLICATION_NDJSON);
+    private static final Jackson2JsonDecoder TUNED_NDJSON_DECODER = new Jackson2JsonDecoder(MovieJson.objectMapper(), APPLICATION_NDJSON);
+
     @Autowired
     private WebClient webClient;
 
+    /**
+     * Only present when movieapp.cache.enabled=true.
+     */
+    @Autowired(required = false)
+    private MovieCache movieCache;
+
+    /**
+     * Only present when movieapp.not-found-cache.enabled=true.
+     */
+    @Autowired(required = false)
+    private NotFoundCache notFoundCache;
+
+    /**
+     * Only present when movieapp.bulkhead.enabled=true.
+     */
+    @Autowired(required = false)
+    private MovieBulkheads bulkheads;
+
+    /**
+     * Only present when movieapp.hedging.enabled=true.
+     */
+    @Autowired(required = false)
+    private MovieHedging hedging;
+
+    @Autowired
+    private MovieAppProperties movieAppProperties;
+
+    @Autowired
+    private MoviesClientMetrics metrics;
+
+    @Autowired
+    private FailureLog failureLog;
+
+    @Autowired
+    private MovieDeadlines deadlines;
+
+    private final AtomicReference<CatalogSnapshot> catalogSnapshot = new AtomicReference<>();
+    private final SingleFlight<Integer, Movie> movieByIdCalls = new SingleFlight<>();
+    private final SingleFlight<String, List<Movie>> movieListCalls = new SingleFlight<>();
+
+    @PostConstruct
+    void monitorCoalescedCalls() {
+        metrics.monitor("movieById", movieByIdCalls);
+        metrics.monitor("movieList", movieListCalls);
+    }
 
     /**
      * Retrieve all the movies from the service.
@@ -29,65 +115,231 @@ public class MoviesRestClient {
      * @return
      */
     public List<Movie> retrieveAllMovies() {
-        List<Movie> movieList;
-        try {
-            log.info("Inside retrieve all movies");
-            movieList = webClient.get().uri(GET_ALL_MOVIES_V1)
-                    .retrieve() // actual call is made to the api
-                    .bodyToFlux(Movie.class) //body is converted to flux(Represents multiple items)
-                    .collectList() // collecting the httpResponse as a list\
-                    .block(); // This call makes the Webclient to behave as a synchronous client.
-            log.info("after the call");
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException - Error Message is : {} ", ex, ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception - The Error Message is {} and exception is ", ex.getMessage() + ex);
-            throw new MovieErrorResponse(ex.getMessage(), ex);
+        if (log.isDebugEnabled()) {
+            log.debug("Inside retrieve all movies");
+        }
+        List<Movie> movieList = retrieveAllMoviesFlux()
+                .collectList() // collecting the httpResponse as a list\
+                .block(); // This call makes the Webclient to behave as a synchronous client.
+        if (log.isDebugEnabled()) {
+            log.debug("after the call, {} movies", movieList.size());
         }
         return movieList;
     }
 
+    /**
+     * Retrieve all the movies from the service without blocking the caller thread.
+     *
+     * @return - Flux<Movie>, errors are signalled as {@link MovieErrorResponse}
+     */
+    public Flux<Movie> retrieveAllMoviesFlux() {
+        Flux<Movie> allMovies;
+        if (movieAppProperties.getConditionalGet().isEnabled()) {
+            allMovies = retrieveAllMoviesConditionally()
+                    .flatMapIterable(movieList -> movieList);
+        } else {
+            allMovies = deadlines.execute("retrieveAllMovies", withBulkhead(MovieBulkheads::getAllMovies, webClient.get().uri(GET_ALL_MOVIES_V1)
+                    .attribute(OPERATION_ATTRIBUTE, "retrieveAllMovies")
+                    .retrieve() // actual call is made to the api
+                    .bodyToFlux(Movie.class))); //body is converted to flux(Represents multiple items)
+        }
+        return metrics.timed("retrieveAllMovies", allMovies
+                .onErrorMap(ex -> {
+                    if (ex instanceof WebClientResponseException || ex instanceof MovieErrorResponse) {
+                        return toMovieErrorResponse("retrieveAllMovies", ex);
+                    }
+                    RuntimeException exception = Exceptions.propagate(ex);
+                    MovieErrorResponse movieErrorResponse = new MovieErrorResponse(exception.getMessage(), exception);
+                    failureLog.record("retrieveAllMovies", movieErrorResponse);
+                    return movieErrorResponse;
+                }));
+    }
+
+    /**
+     * Revalidates the last catalog with If-None-Match / If-Modified-Since.
+     * On a 304 the last catalog is returned as is, without reading or decoding a response body.
+     */
+    private Mono<List<Movie>> retrieveAllMoviesConditionally() {
+        return Mono.defer(() -> {
+            CatalogSnapshot snapshot = catalogSnapshot.get();
+            return deadlines.execute("retrieveAllMovies", withBulkhead(MovieBulkheads::getAllMovies, webClient.get().uri(GET_ALL_MOVIES_V1)
+                    .attribute(OPERATION_ATTRIBUTE, "retrieveAllMovies")
+                    .headers(headers -> {
+                        if (snapshot != null) {
+                            snapshot.addValidators(headers);
+                        }
+                    })
+                    .exchange()
+                    .flatMap(response -> {
+                        if (snapshot != null && response.statusCode() == HttpStatus.NOT_MODIFIED) {
+                            return response.bodyToMono(Void.class)
+                                    .thenReturn(snapshot.getMovies());
+                        }
+                        if (response.statusCode().isError()) {
+                            return toResponseException(response).flatMap(Mono::error);
+                        }
+                        return response.bodyToFlux(Movie.class)
+                                .collectList()
+                                .doOnNext(movieList -> catalogSnapshot.set(CatalogSnapshot.of(response.headers().asHttpHeaders(), movieList)));
+                    })));
+        });
+    }
+
+    /**
+     * Streams the catalog without collecting it into a list first, movies are decoded as the response arrives and
+     * only as fast as the caller consumes them.
+     * The returned {@link Stream} must be closed, closing it early cancels the download.
+     *
+     * @return - Stream<Movie>, errors are thrown as {@link MovieErrorResponse} while iterating
+     */
+    public Stream<Movie> streamAllMovies() {
+        return streamAllMoviesFlux()
+                .toStream(STREAM_BATCH_SIZE);
+    }
+
+    /**
+     * Non blocking version of {@link #streamAllMovies()}.
+     * Accepts both a JSON array and newline delimited JSON ({@code application/x-ndjson}), whichever the service sends.
+     */
+    public Flux<Movie> streamAllMoviesFlux() {
+        return metrics.timed("streamAllMovies", deadlines.execute("streamAllMovies", withBulkhead(MovieBulkheads::getAllMovies, webClient.get().uri(GET_ALL_MOVIES_V1)
+                .attribute(OPERATION_ATTRIBUTE, "streamAllMovies")
+                .accept(APPLICATION_NDJSON, MediaType.APPLICATION_JSON)
+                .exchange()
+                .flatMapMany(response -> {
+                    if (response.statusCode().isError()) {
+                        return toResponseException(response).flatMapMany(Mono::error);
+                    }
+                    boolean ndjson = response.headers().contentType()
+                            .filter(APPLICATION_NDJSON::isCompatibleWith)
+                            .isPresent();
+                    if (ndjson) {
+                        Jackson2JsonDecoder ndjsonDecoder = movieAppProperties.getHttp().isTunedJson() ? TUNED_NDJSON_DECODER : NDJSON_DECODER;
+                        return ndjsonDecoder.decode(response.body(BodyExtractors.toDataBuffers()), MOVIE_TYPE, APPLICATION_NDJSON, Collections.emptyMap())
+                                .cast(Movie.class);
+                    }
+                    return response.bodyToFlux(Movie.class);
+                })))
+                .onErrorMap(ex -> toMovieErrorResponse("streamAllMovies", ex)));
+    }
+
+    private <T> Mono<T> withBulkhead(Function<MovieBulkheads, MovieBulkhead> group, Mono<T> call) {
+        return bulkheads != null ? group.apply(bulkheads).execute(call) : call;
+    }
+
+    private <T> Flux<T> withBulkhead(Function<MovieBulkheads, MovieBulkhead> group, Flux<T> call) {
+        return bulkheads != null ? group.apply(bulkheads).execute(call) : call;
+    }
+
+    /**
+     * Builds the same exception {@code retrieve()} signals for a 4xx/5xx, for calls that need {@code exchange()}.
+     */
+    private static Mono<WebClientResponseException> toResponseException(ClientResponse response) {
+        return response.bodyToMono(byte[].class)
+                .defaultIfEmpty(new byte[0])
+                .map(body -> WebClientResponseException.create(response.rawStatusCode(),
+                        response.statusCode().getReasonPhrase(),
+                        response.headers().asHttpHeaders(),
+                        body,
+                        response.headers().contentType().map(MediaType::getCharset).orElse(StandardCharsets.ISO_8859_1)));
+    }
+
     public Movie retrieveMovieById(Integer movieId) {
-        Movie movie;
-        try {
-            movie = webClient.get().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId) //mapping the movie id to the url
-                    .retrieve()
-                    .bodyToMono(Movie.class) //body is converted to Mono(Represents single item)
-                    .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException - Exception is {} and the Error Message is : {}", ex, ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception - The Error Message is {} ", ex.getMessage());
-            throw new MovieErrorResponse(ex);
+        return retrieveMovieByIdMono(movieId)
+                .block();
+    }
+
+    /**
+     * Served from the movie cache when it is enabled, concurrent lookups of the same id share a single request.
+     */
+    public Mono<Movie> retrieveMovieByIdMono(Integer movieId) {
+        Mono<Movie> lookup = withNotFoundCache("movieId:" + movieId, fetchMovieById(movieId));
+        if (movieCache == null) {
+            return metrics.timed("retrieveMovieById", lookup);
         }
-        return movie;
+        return metrics.timed("retrieveMovieById", Mono.defer(() -> {
+            Movie cachedMovie = movieCache.get(movieId);
+            return cachedMovie != null ? Mono.just(cachedMovie) : lookup;
+        }));
+    }
+
+    private Mono<Movie> fetchMovieById(Integer movieId) {
+        Supplier<Mono<Movie>> call = () -> webClient.get().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId) //mapping the movie id to the url
+                .attribute(OPERATION_ATTRIBUTE, "retrieveMovieById")
+                .retrieve()
+                .bodyToMono(Movie.class); //body is converted to Mono(Represents single item)
+        // every caller waits up to its own deadline, the shared lookup runs under the timeout of the operation
+        return deadlines.execute("retrieveMovieById", movieByIdCalls.execute(movieId, () -> {
+            // read before the request, an update or delete that completes while it is in flight keeps the old movie out of the cache
+            long generation = movieCache != null ? movieCache.generation(movieId) : 0;
+            return deadlines.executeShared("retrieveMovieById", withBulkhead(MovieBulkheads::getReads, hedging != null ? hedging.hedge(call) : call.get()))
+                    .doOnNext(movie -> {
+                        if (movieCache != null) {
+                            movieCache.put(movieId, movie, generation);
+                        }
+                    });
+        }))
+                .onErrorMap(ex -> toMovieErrorResponse("retrieveMovieById", ex));
+    }
+
+    /**
+     * Retrieves several movies by id, issuing at most {@link #DEFAULT_MAX_IN_FLIGHT} requests at a time.
+     */
+    public MoviesByIdsResponse retrieveMoviesByIds(Collection<Integer> movieIds) {
+        return retrieveMoviesByIds(movieIds, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public MoviesByIdsResponse retrieveMoviesByIds(Collection<Integer> movieIds, int maxInFlight) {
+        return retrieveMoviesByIdsMono(movieIds, maxInFlight)
+                .block();
+    }
+
+    /**
+     * Retrieves several movies by id concurrently.
+     * Duplicate ids are requested only once and a failed lookup is reported in {@link MoviesByIdsResponse#getFailures()}
+     * instead of failing the whole batch.
+     *
+     * @param movieIds    - the ids to look up
+     * @param maxInFlight - the maximum number of requests in flight at any time
+     */
+    public Mono<MoviesByIdsResponse> retrieveMoviesByIdsMono(Collection<Integer> movieIds, int maxInFlight) {
+        return metrics.timed("retrieveMoviesByIds", Mono.defer(() -> {
+            MoviesByIdsResponse response = new MoviesByIdsResponse();
+            return Flux.fromIterable(new LinkedHashSet<>(movieIds))
+                    .filter(Objects::nonNull)
+                    .flatMap(movieId -> retrieveMovieByIdMono(movieId)
+                            .doOnNext(movie -> response.getMovies().put(movieId, movie))
+                            .onErrorResume(MovieErrorResponse.class, ex -> {
+                                response.getFailures().put(movieId, ex);
+                                return Mono.empty();
+                            }), maxInFlight)
+                    .then(Mono.just(response));
+        }));
     }
 
 
     public List<Movie> retrieveMovieByName(String movieName) {
+        return retrieveMovieByNameFlux(movieName)
+                .collectList()
+                .block();
+    }
 
-        List<Movie> movieList = null;
+    /**
+     * Concurrent lookups of the same name share a single request.
+     */
+    public Flux<Movie> retrieveMovieByNameFlux(String movieName) {
         String retrieveByNameUri = UriComponentsBuilder.fromUriString( MOVIE_BY_NAME_QUERY_PARAM_V1)
                 .queryParam("movie_name", movieName)
                 .buildAndExpand()
                 .toUriString();
 
-        try {
-            movieList = webClient.get().uri(retrieveByNameUri)
-                    .retrieve()
-                    .bodyToFlux(Movie.class)
-                    .collectList()
-                    .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException - Exception is {} and the Error Message is : {}", ex, ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception - The Error Message is {} ", ex.getMessage());
-            throw new MovieErrorResponse(ex);
-        }
-        return movieList;
+        return metrics.timed("retrieveMovieByName", withNotFoundCache("movie_name:" + movieName, deadlines.execute("retrieveMovieByName", movieListCalls.execute(retrieveByNameUri, () -> deadlines.executeShared("retrieveMovieByName", withBulkhead(MovieBulkheads::getReads, webClient.get().uri(retrieveByNameUri)
+                .attribute(OPERATION_ATTRIBUTE, "retrieveMovieByName")
+                .retrieve()
+                .bodyToFlux(Movie.class)
+                .collectList()))))
+                .onErrorMap(ex -> toMovieErrorResponse("retrieveMovieByName", ex)))
+                .flatMapIterable(movieList -> movieList));
     }
 
 
@@ -98,26 +350,31 @@ public class MoviesRestClient {
      * @return - List<Movie>
      */
     public List<Movie> retreieveMovieByYear(Integer year) {
+        return retreieveMovieByYearFlux(year)
+                .collectList()
+                .block();
+    }
+
+    /**
+     * Non blocking version of {@link #retreieveMovieByYear(Integer)}.
+     * Concurrent lookups of the same year share a single request.
+     *
+     * @param year - Integer (Example : 2012,2013 etc.,)
+     * @return - Flux<Movie>
+     */
+    public Flux<Movie> retreieveMovieByYearFlux(Integer year) {
         String retrieveByYearUri = UriComponentsBuilder.fromUriString( MOVIE_BY_YEAR_QUERY_PARAM_V1)
                 .queryParam("year", year)
                 .buildAndExpand()
                 .toUriString();
-        List<Movie> movieList;
-
-        try {
-            movieList = webClient.get().uri(retrieveByYearUri)
-                    .retrieve()
-                    .bodyToFlux(Movie.class)
-                    .collectList()
-                    .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in retreieveMovieByYear {} and the Error Message is : {} ", ex, ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception - The Error Message is {} ", ex.getMessage());
-            throw new MovieErrorResponse(ex);
-        }
-        return movieList;
+
+        return metrics.timed("retreieveMovieByYear", withNotFoundCache("year:" + year, deadlines.execute("retreieveMovieByYear", movieListCalls.execute(retrieveByYearUri, () -> deadlines.executeShared("retreieveMovieByYear", withBulkhead(MovieBulkheads::getReads, webClient.get().uri(retrieveByYearUri)
+                .attribute(OPERATION_ATTRIBUTE, "retreieveMovieByYear")
+                .retrieve()
+                .bodyToFlux(Movie.class)
+                .collectList()))))
+                .onErrorMap(ex -> toMovieErrorResponse("retreieveMovieByYear", ex)))
+                .flatMapIterable(movieList -> movieList));
     }
 
     /**
@@ -127,80 +384,167 @@ public class MoviesRestClient {
      * @return
      */
     public Movie addNewMovie(Movie newMovie) {
-        Movie movie;
-        try {
-            movie = webClient.post().uri( ADD_MOVIE_V1)
-                    .syncBody(newMovie)
-                    .retrieve()
-                    .bodyToMono(Movie.class)
-                    .block();
-            log.info("New Movie SuccessFully addded {} ", movie);
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException - Error Message is : {} , and the Error Response Body is {}", ex, ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception - The Error Message is {} ", ex.getMessage());
-            throw new MovieErrorResponse(ex);
-        }
-        return movie;
+        return addNewMovieMono(newMovie)
+                .block();
+    }
+
+    /**
+     * Adds the movie with an {@value RetryFilter#IDEMPOTENCY_KEY} header, which makes the call safe to retry
+     * when movieapp.retry.enabled=true. Use the same key for the same movie.
+     */
+    public Movie addNewMovie(Movie newMovie, String idempotencyKey) {
+        return addNewMovieMono(newMovie, idempotencyKey)
+                .block();
+    }
+
+    public Mono<Movie> addNewMovieMono(Movie newMovie) {
+        return addNewMovieMono(newMovie, null);
+    }
+
+    public Mono<Movie> addNewMovieMono(Movie newMovie, String idempotencyKey) {
+        return metrics.timed("addNewMovie", deadlines.execute("addNewMovie", withBulkhead(MovieBulkheads::getWrites, webClient.post().uri( ADD_MOVIE_V1)
+                .attribute(OPERATION_ATTRIBUTE, "addNewMovie")
+                .headers(headers -> {
+                    if (idempotencyKey != null) {
+                        headers.set(RetryFilter.IDEMPOTENCY_KEY, idempotencyKey);
+                    }
+                })
+                .syncBody(newMovie)
+                .retrieve()
+                .bodyToMono(Movie.class)))
+                .doOnNext(movie -> {
+                    if (log.isDebugEnabled()) {
+                        log.debug("New Movie SuccessFully addded {} ", movie);
+                    }
+                })
+                .doOnNext(this::forgetNotFound)
+                .onErrorMap(ex -> toMovieErrorResponse("addNewMovie", ex)));
     }
 
     public Movie updateMovie(Integer movieId, Movie movie) {
-        Movie updatedMovie;
-
-        try {
-            updatedMovie = webClient.put().uri( MOVIE_BY_ID_PATH_PARAM_V1, movieId)
-                    .syncBody(movie)
-                    .retrieve()
-                    .bodyToMono(Movie.class)
-                    .block();
-            log.info(" Movie SuccessFully updated {} ", updatedMovie);
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException - Error Message is : {}", ex, ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception - The Error Message is {} ", ex.getMessage());
-            throw new MovieErrorResponse(ex);
-        }
+        return updateMovieMono(movieId, movie)
+                .block();
+    }
 
-        return updatedMovie;
+    public Mono<Movie> updateMovieMono(Integer movieId, Movie movie) {
+        return metrics.timed("updateMovie", deadlines.execute("updateMovie", withBulkhead(MovieBulkheads::getWrites, webClient.put().uri( MOVIE_BY_ID_PATH_PARAM_V1, movieId)
+                .attribute(OPERATION_ATTRIBUTE, "updateMovie")
+                .syncBody(movie)
+                .retrieve()
+                .bodyToMono(Movie.class)))
+                .doOnNext(updatedMovie -> {
+                    if (log.isDebugEnabled()) {
+                        log.debug(" Movie SuccessFully updated {} ", updatedMovie);
+                    }
+                })
+                .doOnSuccessOrError((updatedMovie, ex) -> invalidateCachedMovie(movieId))
+                .onErrorMap(ex -> toMovieErrorResponse("updateMovie", ex)));
     }
 
     public String deleteMovieById(Integer movieId) {
+        return deleteMovieByIdMono(movieId)
+                .block();
+    }
+
+    public Mono<String> deleteMovieByIdMono(Integer movieId) {
+        return metrics.timed("deleteMovieById", deadlines.execute("deleteMovieById", withBulkhead(MovieBulkheads::getWrites, webClient.delete().uri( MOVIE_BY_ID_PATH_PARAM_V1, movieId)
+                .attribute(OPERATION_ATTRIBUTE, "deleteMovieById")
+                .retrieve()
+                .bodyToMono(String.class)))
+                .doOnSuccessOrError((response, ex) -> invalidateCachedMovie(movieId))
+                .onErrorMap(ex -> toMovieErrorResponse("deleteMovieById", ex)));
+    }
+
+    public String deleteMovieByName(String movieName) {
+        deleteMovieByNameMono(movieName)
+                .block();
+        return "Movie Deleted SuccessFully";
+    }
 
-        String response;
-        try {
-            response = webClient.delete().uri( MOVIE_BY_ID_PATH_PARAM_V1, movieId)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-        }catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException - Error Message is : {}", ex, ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception - The Error Message is {} ", ex.getMessage());
-            throw new MovieErrorResponse(ex);
+    public Mono<Void> deleteMovieByNameMono(String movieName) {
+        return metrics.timed("deleteMovieByName", deadlines.execute("deleteMovieByName", withBulkhead(MovieBulkheads::getWrites, webClient.delete().uri( MOVIE_BY_NAME_PATH_PARAM_V1, movieName)
+                .attribute(OPERATION_ATTRIBUTE, "deleteMovieByName")
+                .retrieve()
+                .bodyToMono(Void.class)))
+                .doOnSuccessOrError((response, ex) -> {
+                    if (movieCache != null) {
+                        movieCache.invalidateByName(movieName);
+                    }
+                })
+                .onErrorMap(ex -> toMovieErrorResponse("deleteMovieByName", ex)));
+    }
+
+    /**
+     * Serves lookups that recently ended in a 404 from the not found cache, when it is enabled.
+     */
+    private <T> Mono<T> withNotFoundCache(String key, Mono<T> lookup) {
+        if (notFoundCache == null) {
+            return lookup;
         }
+        return Mono.defer(() -> {
+            MovieErrorResponse notFound = notFoundCache.get(key);
+            if (notFound != null) {
+                return Mono.error(notFound);
+            }
+            return lookup.doOnError(MovieErrorResponse.class, ex -> notFoundCache.put(key, ex));
+        });
+    }
 
-        return response;
+    /**
+     * A newly added movie can be found by its id, name and year, even if those lookups failed a moment ago.
+     */
+    private void forgetNotFound(Movie movie) {
+        if (notFoundCache != null) {
+            if (movie.getMovie_id() != null) {
+                notFoundCache.invalidate("movieId:" + movie.getMovie_id().intValue());
+            }
+            notFoundCache.invalidate("movie_name:" + movie.getName());
+            notFoundCache.invalidate("year:" + movie.getYear());
+        }
+    }
 
+    private void invalidateCachedMovie(Integer movieId) {
+        if (movieCache != null) {
+            movieCache.invalidate(movieId);
+        }
     }
 
-    public String deleteMovieByName(String movieName) {
+    /**
+     * @return - the number of lookups that were served by an identical request already in flight
+     */
+    public long getCoalescedCallCount() {
+        return movieByIdCalls.getCoalescedCalls() + movieListCalls.getCoalescedCalls();
+    }
+
+    /**
+     * @return - hit, miss and eviction counters of the movie cache, empty when the cache is disabled
+     */
+    public CacheStats getMovieCacheStats() {
+        return movieCache != null ? movieCache.stats() : CacheStats.empty();
+    }
 
+    /**
+     * @return - counters of the not found cache, empty when it is disabled
+     */
+    public CacheStats getNotFoundCacheStats() {
+        return notFoundCache != null ? notFoundCache.stats() : CacheStats.empty();
+    }
 
-        try {
-            webClient.delete().uri( MOVIE_BY_NAME_PATH_PARAM_V1, movieName)
-                    .retrieve()
-                    .bodyToMono(Void.class)
-                    .block();
-        }catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException - The Status code is {} and the Error Message is : {}", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception - The Error Message is {} ", ex.getMessage());
-            throw new MovieErrorResponse(ex);
+    /**
+     * Translates the error signal of a call into a {@link MovieErrorResponse} and hands it to the {@link FailureLog}.
+     * Checked exceptions are wrapped the same way {@code block()} wraps them, so the blocking methods keep their error messages.
+     */
+    private MovieErrorResponse toMovieErrorResponse(String methodName, Throwable ex) {
+        MovieErrorResponse movieErrorResponse;
+        if (ex instanceof MovieErrorResponse) {
+            movieErrorResponse = (MovieErrorResponse) ex;
+        } else if (ex instanceof WebClientResponseException) {
+            WebClientResponseException responseException = (WebClientResponseException) ex;
+            movieErrorResponse = new MovieErrorResponse(responseException.getStatusText(), responseException);
+        } else {
+            movieErrorResponse = new MovieErrorResponse(Exceptions.propagate(ex));
         }
-        return "Movie Deleted SuccessFully";
+        failureLog.record(methodName, movieErrorResponse);
+        return movieErrorResponse;
     }
 }
@@ -0,0 +1,97 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.exception.MovieErrorResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Sends the exchanges of each operation through the {@link MovieRateLimiter} of that operation, exchanges of operations
+ * without a limiter go ahead right away. The operation is the {@link MoviesRestClient#OPERATION_ATTRIBUTE} of the request.
+ * <p>
+ * A 429 or 503 response with a Retry-After header, in seconds or as an HTTP date, pauses the limiter of its operation
+ * for that long, so the calls that follow wait for the service to recover instead of being turned away again.
+ */
+public class RateLimitFilter implements ExchangeFilterFunction {
+
+    private final Map<String, MovieRateLimiter> limiters;
+
+    public RateLimitFilter(Map<String, MovieRateLimiter> limiters) {
+        this.limiters = Collections.unmodifiableMap(new LinkedHashMap<>(limiters));
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        MovieRateLimiter limiter = request.attribute(MoviesRestClient.OPERATION_ATTRIBUTE)
+                .map(limiters::get)
+                .orElse(null);
+        if (limiter == null) {
+            return next.exchange(request);
+        }
+        return limiter.acquire()
+                .then(Mono.defer(() -> next.exchange(request)))
+                .doOnNext(response -> {
+                    if (isThrottled(response.rawStatusCode())) {
+                        pause(limiter, retryAfter(response.headers().asHttpHeaders()));
+                    }
+                })
+                .doOnError(MovieErrorResponse.class, ex -> {
+                    if (ex.getStatusCode() != null && isThrottled(ex.getStatusCode())) {
+                        pause(limiter, ex.getRetryAfter());
+                    }
+                });
+    }
+
+    private static void pause(MovieRateLimiter limiter, Duration retryAfter) {
+        if (retryAfter != null) {
+            limiter.pause(retryAfter);
+        }
+    }
+
+    static boolean isThrottled(int statusCode) {
+        return statusCode == HttpStatus.TOO_MANY_REQUESTS.value() || statusCode == HttpStatus.SERVICE_UNAVAILABLE.value();
+    }
+
+    /**
+     * @return - the wait the Retry-After header asks for, null when there is none or it cannot be read
+     */
+    static Duration retryAfter(HttpHeaders headers) {
+        String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter == null) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException ex) {
+            // not delay-seconds, an HTTP date then
+        }
+        try {
+            ZonedDateTime retryAt = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            Duration wait = Duration.between(ZonedDateTime.now(retryAt.getZone()), retryAt);
+            return wait.isNegative() ? Duration.ZERO : wait;
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @return - the limiters, once each even when several operations share one
+     */
+    public Collection<MovieRateLimiter> getLimiters() {
+        return new LinkedHashSet<>(limiters.values());
+    }
+}
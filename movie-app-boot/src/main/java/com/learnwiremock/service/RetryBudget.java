@@ -0,0 +1,59 @@
+package com.learnwiremock.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the retries of a client at a share of its requests, so that retries cannot multiply the load on a service
+ * that is already failing.
+ * Every first attempt deposits retryRatio tokens, every retry withdraws one. The balance starts at, and is capped at,
+ * maxTokens, which lets a client with little traffic still retry now and then. Over time retries stay below
+ * retryRatio times the requests plus maxTokens.
+ */
+public class RetryBudget {
+
+    public static final double DEFAULT_RETRY_RATIO = 0.1;
+    public static final int DEFAULT_MAX_TOKENS = 10;
+
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final long maxBalance;
+    private final AtomicLong balance;
+    private final AtomicLong exhausted = new AtomicLong();
+
+    /**
+     * @param retryRatio - the retries allowed per request, 0.1 allows at most 10% extra load
+     * @param maxTokens  - the retries that can be saved up
+     */
+    public RetryBudget(double retryRatio, int maxTokens) {
+        this.deposit = Math.round(retryRatio * TOKEN);
+        this.maxBalance = maxTokens * TOKEN;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    public void onRequest() {
+        balance.accumulateAndGet(deposit, (current, amount) -> Math.min(maxBalance, current + amount));
+    }
+
+    /**
+     * @return - true when the retry is within the budget and was paid for
+     */
+    public boolean tryRetry() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                exhausted.incrementAndGet();
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    /**
+     * @return - how many retries were not made because the budget was used up
+     */
+    public long getExhaustedCount() {
+        return exhausted.get();
+    }
+}
@@ -0,0 +1,58 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.exception.MovieErrorResponse;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FailureLogTest {
+
+    Logger log = LoggerFactory.getLogger(FailureLogTest.class);
+
+    MovieErrorResponse notFound = MovieErrorResponse.expected(404, "GET", "/movieservice/v1/movie/100", "No Movie Available");
+    MovieErrorResponse serviceUnavailable = MovieErrorResponse.expected(503, "GET", "/movieservice/v1/allMovies", "Service Unavailable");
+
+    @Test
+    void record_logsOncePerInterval() {
+        FailureLog failureLog = new FailureLog(log, Duration.ofMinutes(1));
+
+        assertTrue(failureLog.record("retrieveMovieById", notFound));
+        assertFalse(failureLog.record("retrieveMovieById", notFound));
+        assertFalse(failureLog.record("retrieveMovieById", notFound));
+    }
+
+    @Test
+    void record_logsEachFailureClass() {
+        FailureLog failureLog = new FailureLog(log, Duration.ofMinutes(1));
+
+        assertTrue(failureLog.record("retrieveMovieById", notFound));
+        assertTrue(failureLog.record("retrieveMovieById", serviceUnavailable));
+        assertTrue(failureLog.record("retrieveAllMovies", serviceUnavailable));
+        assertTrue(failureLog.record("retrieveAllMovies", new MovieErrorResponse(new IOException("Connection reset"))));
+        assertFalse(failureLog.record("retrieveAllMovies", serviceUnavailable));
+    }
+
+    @Test
+    void record_logsAgainAfterInterval() throws InterruptedException {
+        FailureLog failureLog = new FailureLog(log, Duration.ofMillis(100));
+
+        assertTrue(failureLog.record("retrieveMovieById", notFound));
+        assertFalse(failureLog.record("retrieveMovieById", notFound));
+        Thread.sleep(150);
+        assertTrue(failureLog.record("retrieveMovieById", notFound));
+    }
+
+    @Test
+    void record_zeroIntervalLogsEveryFailure() {
+        FailureLog failureLog = new FailureLog(log, Duration.ZERO);
+
+        assertTrue(failureLog.record("retrieveMovieById", notFound));
+        assertTrue(failureLog.record("retrieveMovieById", notFound));
+    }
+}
@@ -0,0 +1,90 @@
+package com.learnwiremock.service;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.learnwiremock.dto.Movie;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWireMock(port = 8093)
+@TestPropertySource(properties = {"movieapp.baseUrl=http://localhost:8093",
+        "movieapp.http.pool.name=movies-test",
+        "movieapp.http.pool.max-connections=4",
+        "movieapp.http.pool.pending-acquire-max-count=100",
+        "movieapp.http.pool.acquire-timeout=2s",
+        "movieapp.http.pool.max-idle-time=200ms"})
+class MovieConnectionProviderTest {
+
+    @Autowired
+    MovieConnectionProvider movieConnectionProvider;
+
+    @Autowired
+    MoviesRestClient moviesRestClient;
+
+    @Test
+    void poolIsConfiguredFromProperties() {
+        assertEquals(4, movieConnectionProvider.maxConnections());
+    }
+
+    @Test
+    void maxIdleTime_closesIdleConnections() throws InterruptedException {
+
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+        long evictedBefore = movieConnectionProvider.getEvictedConnectionCount();
+
+        //when
+        moviesRestClient.retrieveMovieById(1);
+        Thread.sleep(500);
+        moviesRestClient.retrieveMovieById(2);
+
+        //then
+        assertEquals(1, movieConnectionProvider.getEvictedConnectionCount() - evictedBefore);
+    }
+
+    @Test
+    @DirtiesContext
+    void maxConnections_boundsTheSocketsOfAFanOut() {
+
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(50)));
+        long openedBefore = movieConnectionProvider.getOpenedConnectionCount();
+
+        //when
+        List<Movie> movies = Flux.range(1, 20)
+                .flatMap(moviesRestClient::retrieveMovieByIdMono)
+                .collectList()
+                .block();
+
+        //then
+        assertEquals(20, movies.size());
+        long opened = movieConnectionProvider.getOpenedConnectionCount() - openedBefore;
+        assertTrue(opened <= 4, "opened " + opened);
+    }
+}
@@ -0,0 +1,106 @@
+package com.learnwiremock.service;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWireMock(port = 8105)
+@TestPropertySource(properties = {"movieapp.baseUrl=http://localhost:8105",
+        "movieapp.http.pool.max-connections=8",
+        "movieapp.warmup.enabled=true",
+        "movieapp.warmup.connections=3",
+        "movieapp.warmup.requests=5",
+        "movieapp.warmup.timeout=5s",
+        "movieapp.warmup.blocking=false"})
+class MovieConnectionWarmerTest {
+
+    @Autowired
+    MovieConnectionWarmer movieConnectionWarmer;
+
+    @Autowired
+    MovieConnectionProvider movieConnectionProvider;
+
+    @Autowired
+    WebClient webClient;
+
+    @Test
+    void applicationReady_opensConnections() throws InterruptedException {
+
+        //when the warm-up started on ApplicationReadyEvent, WireMock has no stub yet
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (movieConnectionProvider.getOpenedConnectionCount() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+
+        //then
+        assertTrue(movieConnectionProvider.getOpenedConnectionCount() >= 3);
+    }
+
+    @Test
+    void warmUp_decodesMovies() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(50)));
+
+        //when
+        Long decoded = movieConnectionWarmer.warmUp().block(Duration.ofSeconds(10));
+
+        //then
+        assertEquals(8L, decoded);
+    }
+
+    @Test
+    void blocking_warmsUpBeforeReturning() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/7"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+        MovieConnectionWarmer blockingWarmer = new MovieConnectionWarmer(webClient, 2, 1, 7, Duration.ofSeconds(5), true);
+
+        //when
+        blockingWarmer.afterSingletonsInstantiated();
+
+        //then
+        verify(exactly(3), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/7")));
+    }
+
+    @Test
+    void unreachableService_givesUp() {
+
+        //given
+        WebClient unreachable = webClient.mutate()
+                .baseUrl("http://localhost:1")
+                .build();
+        MovieConnectionWarmer warmer = new MovieConnectionWarmer(unreachable, 2, 0, 1, Duration.ofSeconds(5), true);
+
+        //when
+        Long decoded = warmer.warmUp().block(Duration.ofSeconds(10));
+
+        //then
+        assertEquals(0L, decoded);
+    }
+}
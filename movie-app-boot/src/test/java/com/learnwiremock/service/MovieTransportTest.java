@@ -0,0 +1,53 @@
+package com.learnwiremock.service;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWireMock(port = 8104)
+@TestPropertySource(properties = {"movieapp.baseUrl=http://localhost:8104",
+        "movieapp.http.transport.event-loop-threads=1",
+        "movieapp.http.transport.keep-alive=true",
+        "movieapp.http.transport.receive-buffer-size=262144"})
+class MovieTransportTest {
+
+    @Autowired
+    MovieTransport movieTransport;
+
+    @Autowired
+    MoviesRestClient moviesRestClient;
+
+    @Test
+    void retrieveMovieById_onDedicatedEventLoop() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+
+        //when
+        String eventLoopThread = moviesRestClient.retrieveMovieByIdMono(1)
+                .map(movie -> Thread.currentThread().getName())
+                .block();
+
+        //then
+        assertTrue(eventLoopThread.startsWith("movies-nio"), eventLoopThread);
+        assertEquals(NioSocketChannel.class, movieTransport.getChannelType());
+    }
+}
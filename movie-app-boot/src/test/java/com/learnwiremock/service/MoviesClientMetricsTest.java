@@ -0,0 +1,162 @@
+package com.learnwiremock.service;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.exception.MovieErrorResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWireMock(port = 8094)
+@TestPropertySource(properties = {"movieapp.baseUrl=http://localhost:8094",
+        "movieapp.cache.enabled=true",
+        "movieapp.not-found-cache.enabled=true"})
+class MoviesClientMetricsTest {
+
+    @Autowired
+    MoviesRestClient moviesRestClient;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void retrieveMovieById_recordsSuccess() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+
+        //when
+        moviesRestClient.retrieveMovieById(1);
+
+        //then
+        Timer timer = meterRegistry.get(MoviesClientMetrics.REQUESTS)
+                .tags("method", "retrieveMovieById", "outcome", "SUCCESS", "status", "2xx", "exception", "none")
+                .timer();
+        assertTrue(timer.count() >= 1);
+        assertEquals(0, meterRegistry.get(MoviesClientMetrics.ACTIVE_REQUESTS)
+                .tags("method", "retrieveMovieById")
+                .gauge().value());
+    }
+
+    @Test
+    void retrieveMovieByIdMono_countsCoalescedLookups() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/2"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(500)));
+        FunctionCounter coalesced = meterRegistry.get(MoviesClientMetrics.COALESCED)
+                .tags("lookup", "movieById")
+                .functionCounter();
+        double before = coalesced.count();
+
+        //when
+        Flux.range(1, 5)
+                .flatMap(i -> moviesRestClient.retrieveMovieByIdMono(2))
+                .blockLast();
+
+        //then
+        assertEquals(4, coalesced.count() - before);
+    }
+
+    @Test
+    void retrieveMovieById_recordsCacheMetrics() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/3"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/444"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieId.json")));
+        double hitsBefore = cacheGets(MoviesClientMetrics.MOVIE_CACHE, "hit");
+        double missesBefore = cacheGets(MoviesClientMetrics.MOVIE_CACHE, "miss");
+        double notFoundHitsBefore = cacheGets(MoviesClientMetrics.NOT_FOUND_CACHE, "hit");
+
+        //when
+        moviesRestClient.retrieveMovieById(3);
+        moviesRestClient.retrieveMovieById(3);
+        Assertions.assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(444));
+        Assertions.assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(444));
+
+        //then
+        assertEquals(1, cacheGets(MoviesClientMetrics.MOVIE_CACHE, "hit") - hitsBefore);
+        assertEquals(3, cacheGets(MoviesClientMetrics.MOVIE_CACHE, "miss") - missesBefore);
+        assertEquals(1, cacheGets(MoviesClientMetrics.NOT_FOUND_CACHE, "hit") - notFoundHitsBefore);
+        assertTrue(meterRegistry.get("cache.size").tags("cache", MoviesClientMetrics.MOVIE_CACHE).gauge().value() >= 1);
+    }
+
+    @Test
+    void deleteMovieById_recordsClientError() {
+
+        //given
+        stubFor(delete(urlPathEqualTo("/movieservice/v1/movie/404"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieId.json")));
+
+        //when
+        Assertions.assertThrows(MovieErrorResponse.class, () -> moviesRestClient.deleteMovieById(404));
+
+        //then
+        assertEquals(1, meterRegistry.get(MoviesClientMetrics.ERRORS)
+                .tags("method", "deleteMovieById", "status", "404", "exception", "NotFound")
+                .counter().count());
+        assertEquals(1, meterRegistry.get(MoviesClientMetrics.REQUESTS)
+                .tags("method", "deleteMovieById", "outcome", "CLIENT_ERROR")
+                .timer().count());
+    }
+
+    @Test
+    void addNewMovie_recordsConnectionFailure() {
+
+        //given
+        stubFor(post(urlPathEqualTo("/movieservice/v1/movie"))
+                .willReturn(aResponse().withFault(Fault.EMPTY_RESPONSE)));
+
+        //when
+        Assertions.assertThrows(MovieErrorResponse.class, () -> moviesRestClient.addNewMovie(Movie.builder().name("Toys Story 4").build()));
+
+        //then
+        assertEquals(1, meterRegistry.get(MoviesClientMetrics.ERRORS)
+                .tags("method", "addNewMovie", "status", "NONE")
+                .counter().count());
+    }
+
+    private double cacheGets(String cache, String result) {
+        return meterRegistry.get("cache.gets")
+                .tags("cache", cache, "result", result)
+                .functionCounter().count();
+    }
+}
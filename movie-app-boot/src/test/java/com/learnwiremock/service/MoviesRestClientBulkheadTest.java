@@ -0,0 +1,75 @@
+package com.learnwiremock.service;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.exception.BulkheadFullException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWireMock(port = 8100)
+@TestPropertySource(properties = {"movieapp.baseUrl=http://localhost:8100",
+        "movieapp.bulkhead.enabled=true",
+        "movieapp.bulkhead.writes=1"})
+class MoviesRestClientBulkheadTest {
+
+    @Autowired
+    MoviesRestClient moviesRestClient;
+
+    @Autowired
+    MovieBulkheads bulkheads;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void addNewMovie_slowWritesDoNotStarveReads() throws InterruptedException {
+
+        //given
+        stubFor(post(urlPathEqualTo("/movieservice/v1/movie"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("add-movie.json")
+                        .withFixedDelay(2000)));
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+        Movie movie = new Movie(null, "Toys Story 4", 2019, "Tom Hanks, Tim Allen", LocalDate.of(2019, 06, 20));
+        Disposable slowWrite = moviesRestClient.addNewMovieMono(movie).subscribe();
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (bulkheads.getWrites().getActiveCalls() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        //when
+        assertThrows(BulkheadFullException.class, () -> moviesRestClient.addNewMovie(movie));
+        Movie readMovie = moviesRestClient.retrieveMovieById(1);
+
+        //then
+        assertEquals("Batman Begins", readMovie.getName());
+        assertEquals(1, meterRegistry.get(MoviesClientMetrics.BULKHEAD_REJECTED).tag("bulkhead", "writes").functionCounter().count());
+        assertEquals(0, meterRegistry.get(MoviesClientMetrics.BULKHEAD_ACTIVE).tag("bulkhead", "reads").gauge().value());
+        slowWrite.dispose();
+    }
+}
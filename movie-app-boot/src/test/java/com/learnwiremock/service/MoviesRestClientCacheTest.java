@@ -0,0 +1,197 @@
+package com.learnwiremock.service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.exception.MovieErrorResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.learnwiremock.constants.MoviesAppConstants.GET_ALL_MOVIES_V1;
+import static com.learnwiremock.constants.MoviesAppConstants.MOVIE_BY_NAME_QUERY_PARAM_V1;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWireMock(port = 8092)
+@TestPropertySource(properties = {"movieapp.baseUrl=http://localhost:8092",
+        "movieapp.cache.enabled=true",
+        "movieapp.cache.maximumSize=100",
+        "movieapp.cache.timeToLive=10m",
+        "movieapp.not-found-cache.enabled=true",
+        "movieapp.not-found-cache.timeToLive=30s",
+        "movieapp.conditional-get.enabled=true"})
+class MoviesRestClientCacheTest {
+
+    @Autowired
+    MoviesRestClient moviesRestClient;
+
+    @BeforeEach
+    void setUp() {
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+    }
+
+    @Test
+    void retrieveMovieById_servedFromCache() {
+
+        //given
+        CacheStats before = moviesRestClient.getMovieCacheStats();
+
+        //when
+        Movie movie = moviesRestClient.retrieveMovieById(11);
+        Movie cachedMovie = moviesRestClient.retrieveMovieById(11);
+
+        //then
+        assertEquals(movie, cachedMovie);
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/11")));
+        CacheStats stats = moviesRestClient.getMovieCacheStats().minus(before);
+        assertEquals(1, stats.hitCount());
+        assertEquals(1, stats.missCount());
+    }
+
+    @Test
+    void updateMovie_invalidatesCache() {
+
+        //given
+        stubFor(put(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+        moviesRestClient.retrieveMovieById(12);
+
+        //when
+        moviesRestClient.updateMovie(12, Movie.builder().cast("ABC").build());
+        moviesRestClient.retrieveMovieById(12);
+
+        //then
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/12")));
+    }
+
+    @Test
+    void updateMovie_duringLookup_staleMovieIsNotCached() throws Exception {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/14"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(1000)));
+        stubFor(put(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+        CompletableFuture<Movie> lookup = moviesRestClient.retrieveMovieByIdMono(14).toFuture();
+        Thread.sleep(200);
+
+        //when the update completes while the lookup that started before it is still in flight
+        moviesRestClient.updateMovie(14, Movie.builder().cast("ABC").build());
+        lookup.get(5, TimeUnit.SECONDS);
+        moviesRestClient.retrieveMovieById(14);
+
+        //then the movie read before the update was not cached
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/14")));
+    }
+
+    @Test
+    void deleteMovieById_invalidatesCache() {
+
+        //given
+        stubFor(delete(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withBody("Movie Deleted Successfully")));
+        moviesRestClient.retrieveMovieById(13);
+
+        //when
+        moviesRestClient.deleteMovieById(13);
+        moviesRestClient.retrieveMovieById(13);
+
+        //then
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/13")));
+    }
+
+    @Test
+    void retrieveMovieById_notFoundIsCached() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/404"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieId.json")));
+
+        //when
+        Assertions.assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(404));
+        Assertions.assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(404));
+
+        //then
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/404")));
+    }
+
+    @Test
+    void retrieveMovieByName_notFoundIsCached() {
+
+        //given
+        String movieName = "ABC";
+        stubFor(get(urlEqualTo(MOVIE_BY_NAME_QUERY_PARAM_V1 + "?movie_name=" + movieName))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-moviename.json")));
+
+        //when
+        Assertions.assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieByName(movieName));
+        Assertions.assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieByName(movieName));
+
+        //then
+        verify(exactly(1), getRequestedFor(urlEqualTo(MOVIE_BY_NAME_QUERY_PARAM_V1 + "?movie_name=" + movieName)));
+    }
+
+    @Test
+    void retrieveAllMovies_revalidatesWithETag() {
+
+        //given
+        String eTag = "\"catalog-v1\"";
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.ETAG, eTag)
+                        .withBodyFile("all-movies.json")));
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .atPriority(1)
+                .withHeader(HttpHeaders.IF_NONE_MATCH, equalTo(eTag))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_MODIFIED.value())));
+
+        //when
+        List<Movie> movieList = moviesRestClient.retrieveAllMovies();
+        List<Movie> revalidatedMovieList = moviesRestClient.retrieveAllMovies();
+
+        //then
+        assertEquals(movieList, revalidatedMovieList);
+        verify(exactly(1), getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES_V1)).withHeader(HttpHeaders.IF_NONE_MATCH, equalTo(eTag)));
+    }
+}
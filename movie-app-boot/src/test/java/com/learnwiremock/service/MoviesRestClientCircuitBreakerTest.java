@@ -0,0 +1,88 @@
+package com.learnwiremock.service;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.learnwiremock.exception.CircuitBreakerOpenException;
+import com.learnwiremock.exception.MovieErrorResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWireMock(port = 8096)
+@TestPropertySource(properties = {"movieapp.baseUrl=http://localhost:8096",
+        "movieapp.circuit-breaker.enabled=true",
+        "movieapp.circuit-breaker.sliding-window-size=4",
+        "movieapp.circuit-breaker.minimum-number-of-calls=4",
+        "movieapp.circuit-breaker.slow-call-rate-threshold=50",
+        "movieapp.circuit-breaker.slow-call-duration=300ms",
+        "movieapp.circuit-breaker.wait-duration-in-open-state=1m"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class MoviesRestClientCircuitBreakerTest {
+
+    @Autowired
+    MoviesRestClient moviesRestClient;
+
+    @Autowired
+    CircuitBreakerFilter circuitBreakerFilter;
+
+    @Test
+    void retrieveAllMovies_emptyResponse_opensReads() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/allMovies"))
+                .willReturn(aResponse().withFault(Fault.EMPTY_RESPONSE)));
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+
+        //when
+        for (int call = 0; call < 4; call++) {
+            Assertions.assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveAllMovies());
+        }
+
+        //then
+        Assertions.assertThrows(CircuitBreakerOpenException.class, () -> moviesRestClient.retrieveAllMovies());
+        Assertions.assertThrows(CircuitBreakerOpenException.class, () -> moviesRestClient.retrieveMovieById(1));
+        assertEquals(MovieCircuitBreaker.State.OPEN, circuitBreakerFilter.getReads().getState());
+        assertEquals(MovieCircuitBreaker.State.CLOSED, circuitBreakerFilter.getWrites().getState());
+        verify(exactly(4), getRequestedFor(urlPathEqualTo("/movieservice/v1/allMovies")));
+        verify(exactly(0), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+    }
+
+    @Test
+    void retrieveMovieById_fixedDelay_slowCallsOpenReads() {
+
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(400)));
+
+        //when
+        for (int movieId = 1; movieId <= 4; movieId++) {
+            assertNotNull(moviesRestClient.retrieveMovieById(movieId));
+        }
+
+        //then
+        Assertions.assertThrows(CircuitBreakerOpenException.class, () -> moviesRestClient.retrieveMovieById(5));
+    }
+}
@@ -0,0 +1,59 @@
+package com.learnwiremock.service;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.learnwiremock.dto.Movie;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWireMock(port = 8103)
+@TestPropertySource(properties = {"movieapp.baseUrl=http://localhost:8103",
+        "movieapp.http.compression=true"})
+class MoviesRestClientCompressionTest {
+
+    @Autowired
+    MoviesRestClient moviesRestClient;
+
+    @Test
+    void retrieveAllMovies_gzip() throws Exception {
+
+        //given
+        byte[] allMoviesJson = Files.readAllBytes(Paths.get(getClass().getResource("/__files/all-movies.json").toURI()));
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(allMoviesJson);
+        }
+        stubFor(get(urlPathEqualTo("/movieservice/v1/allMovies"))
+                .withHeader(HttpHeaders.ACCEPT_ENCODING, containing("gzip"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .withBody(compressed.toByteArray())));
+
+        //when
+        List<Movie> movieList = moviesRestClient.retrieveAllMovies();
+
+        //then
+        assertFalse(movieList.isEmpty());
+        assertNotNull(movieList.get(0).getName());
+    }
+}
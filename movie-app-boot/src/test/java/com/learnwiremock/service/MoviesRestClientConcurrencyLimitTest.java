@@ -0,0 +1,66 @@
+package com.learnwiremock.service;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.learnwiremock.exception.ConcurrencyLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWireMock(port = 8099)
+@TestPropertySource(properties = {"movieapp.baseUrl=http://localhost:8099",
+        "movieapp.concurrency-limit.enabled=true",
+        "movieapp.concurrency-limit.initial-limit=1",
+        "movieapp.concurrency-limit.max-limit=1"})
+class MoviesRestClientConcurrencyLimitTest {
+
+    @Autowired
+    MoviesRestClient moviesRestClient;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void retrieveMovieById_overLimitIsRejected() {
+
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(500)));
+
+        //when
+        List<Object> results = Flux.merge(moviesRestClient.retrieveMovieByIdMono(1),
+                moviesRestClient.retrieveMovieByIdMono(2).delaySubscription(Duration.ofMillis(100)))
+                .map(Object.class::cast)
+                .onErrorResume(ex -> Mono.just(ex))
+                .collectList()
+                .block();
+
+        //then
+        assertTrue(results.stream().anyMatch(result -> result instanceof ConcurrencyLimitExceededException), results.toString());
+        verify(exactly(1), getRequestedFor(urlPathMatching("/movieservice/v1/movie/[0-9]+")));
+        assertEquals(1, meterRegistry.get(MoviesClientMetrics.CONCURRENCY_LIMIT).tag("limiter", "movies").gauge().value());
+        assertTrue(meterRegistry.get(MoviesClientMetrics.CONCURRENCY_REJECTED).functionCounter().count() >= 1);
+    }
+}
@@ -0,0 +1,174 @@
+package com.learnwiremock.service;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.exception.DeadlineExceededException;
+import com.learnwiremock.exception.MovieErrorResponse;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWireMock(port = 8102)
+@TestPropertySource(properties = {"movieapp.baseUrl=http://localhost:8102",
+        "movieapp.deadline.default-timeout=500ms",
+        "movieapp.deadline.operations.retrieveAllMovies=3s",
+        "movieapp.deadline.operations.retrieveMovieByName=5s",
+        "movieapp.http.read-timeout=2s"})
+class MoviesRestClientDeadlineTest {
+
+    @Autowired
+    MoviesRestClient moviesRestClient;
+
+    @Autowired
+    MovieDeadlines movieDeadlines;
+
+    @Test
+    void retrieveMovieById_defaultDeadline() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(3000)));
+
+        //when
+        long start = System.nanoTime();
+        DeadlineExceededException exception = assertThrows(DeadlineExceededException.class, () -> moviesRestClient.retrieveMovieById(1));
+
+        //then
+        assertEquals("retrieveMovieById", exception.getOperation());
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+    }
+
+    @Test
+    void retrieveAllMovies_operationDeadline() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/allMovies"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")
+                        .withFixedDelay(1000)));
+
+        //when
+        List<Movie> movieList = moviesRestClient.retrieveAllMovies();
+
+        //then
+        assertFalse(movieList.isEmpty());
+        assertNull(movieDeadlines.getTimeout("streamAllMovies"));
+    }
+
+    @Test
+    void retrieveAllMovies_callerDeadline() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/allMovies"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")
+                        .withFixedDelay(1000)));
+
+        //when
+        long start = System.nanoTime();
+        assertThrows(DeadlineExceededException.class, () -> moviesRestClient.retrieveAllMoviesFlux()
+                .collectList()
+                .subscriberContext(Deadline.after(Duration.ofMillis(300)).asContext())
+                .block());
+
+        //then
+        assertTrue(System.nanoTime() - start < Duration.ofMillis(900).toNanos());
+    }
+
+    @Test
+    void streamAllMovies_noTotalDeadlineWhileMoviesKeepArriving() {
+
+        //given the default deadline of 500ms and a catalog sent over 1.5s
+        stubFor(get(urlPathEqualTo("/movieservice/v1/allMovies"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MoviesRestClient.APPLICATION_NDJSON.toString())
+                        .withBodyFile("all-movies.ndjson")
+                        .withChunkedDribbleDelay(10, 1500)));
+
+        //when
+        List<Movie> movieList = moviesRestClient.streamAllMoviesFlux()
+                .collectList()
+                .block();
+
+        //then
+        assertEquals(10, movieList.size());
+    }
+
+    @Test
+    void streamAllMovies_stalledBodyHitsReadTimeout() {
+
+        //given a catalog that stops for 3s halfway
+        stubFor(get(urlPathEqualTo("/movieservice/v1/allMovies"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MoviesRestClient.APPLICATION_NDJSON.toString())
+                        .withBodyFile("all-movies.ndjson")
+                        .withChunkedDribbleDelay(2, 6000)));
+
+        //when
+        long start = System.nanoTime();
+        MovieErrorResponse exception = assertThrows(MovieErrorResponse.class, () -> moviesRestClient.streamAllMoviesFlux()
+                .collectList()
+                .block());
+
+        //then
+        assertTrue(exception.getCause() instanceof ReadTimeoutException, String.valueOf(exception.getCause()));
+        assertTrue(System.nanoTime() - start < Duration.ofMillis(2900).toNanos());
+    }
+
+    @Test
+    void retrieveMovieByName_shortDeadlineJoinsSlowLookup() throws Exception {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movieName"))
+                .withQueryParam("movie_name", equalTo("Avengers"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("avengers.json")
+                        .withFixedDelay(1000)));
+        long coalescedBefore = moviesRestClient.getCoalescedCallCount();
+        CompletableFuture<List<Movie>> slowCaller = moviesRestClient.retrieveMovieByNameFlux("Avengers").collectList().toFuture();
+        Thread.sleep(200);
+
+        //when
+        long start = System.nanoTime();
+        assertThrows(DeadlineExceededException.class, () -> moviesRestClient.retrieveMovieByNameFlux("Avengers")
+                .collectList()
+                .subscriberContext(Deadline.after(Duration.ofMillis(100)).asContext())
+                .block());
+
+        //then the joining caller gave up after its own 100ms, the lookup went on for the first one
+        assertTrue(System.nanoTime() - start < Duration.ofMillis(700).toNanos());
+        assertFalse(slowCaller.get(5, TimeUnit.SECONDS).isEmpty());
+        assertEquals(coalescedBefore + 1, moviesRestClient.getCoalescedCallCount());
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movieName")));
+    }
+}
@@ -0,0 +1,66 @@
+package com.learnwiremock.service;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.learnwiremock.dto.Movie;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWireMock(port = 8098)
+@TestPropertySource(properties = {"movieapp.baseUrl=http://localhost:8098",
+        "movieapp.hedging.enabled=true",
+        "movieapp.hedging.delay=100ms",
+        "movieapp.hedging.percentile=0"})
+class MoviesRestClientHedgingTest {
+
+    @Autowired
+    MoviesRestClient moviesRestClient;
+
+    @Test
+    void retrieveMovieById_hedgesSlowResponse() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .inScenario("slow first response")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(3000))
+                .willSetStateTo("fast"));
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .inScenario("slow first response")
+                .whenScenarioStateIs("fast")
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+
+        //when
+        long start = System.nanoTime();
+        Movie movie = moviesRestClient.retrieveMovieById(1);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        //then
+        assertEquals("Batman Begins", movie.getName());
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(2)) < 0, "took " + elapsed);
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+    }
+}
@@ -6,6 +6,7 @@ import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.core.Options;
 import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
 import com.learnwiremock.dto.Movie;
+import com.learnwiremock.dto.MoviesByIdsResponse;
 import com.learnwiremock.exception.MovieErrorResponse;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
@@ -21,9 +22,15 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.junit4.SpringRunner;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
@@ -78,6 +85,44 @@ class MoviesRestClientJunit5Test {
 
 
 
+    @Test
+    void getAllMoviesFlux() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        //when
+        Flux<Movie> movieFlux = moviesRestClient.retrieveAllMoviesFlux();
+
+        //then
+        StepVerifier.create(movieFlux)
+                .expectNextCount(10)
+                .verifyComplete();
+    }
+
+    @Test
+    void retrieveMovieByIdMono_notFound() {
+
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieId.json")));
+
+        //when
+        Mono<Movie> movieMono = moviesRestClient.retrieveMovieByIdMono(100);
+
+        //then
+        StepVerifier.create(movieMono)
+                .expectError(MovieErrorResponse.class)
+                .verify();
+    }
+
     @Test
     void retrieveMovieById() {
 
@@ -100,6 +145,56 @@ class MoviesRestClientJunit5Test {
         assertEquals("Batman Begins", movie.getName());
     }
 
+    @Test
+    void retrieveMoviesByIds() {
+
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/100"))
+                .atPriority(1)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieId.json")));
+
+        //when
+        MoviesByIdsResponse response = moviesRestClient.retrieveMoviesByIds(Arrays.asList(301, 302, 302, 303, 100));
+
+        //then
+        assertEquals(3, response.getMovies().size());
+        assertEquals(1, response.getFailures().size());
+        assertTrue(response.getFailures().containsKey(100));
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/302")));
+    }
+
+    @Test
+    void retrieveMovieByIdMono_concurrentIdenticalLookupsAreCoalesced() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/77"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(500)));
+        long coalescedBefore = moviesRestClient.getCoalescedCallCount();
+
+        //when
+        List<Movie> movieList = Flux.range(1, 10)
+                .flatMap(i -> moviesRestClient.retrieveMovieByIdMono(77))
+                .collectList()
+                .block();
+
+        //then
+        assertEquals(10, movieList.size());
+        assertEquals(9, moviesRestClient.getCoalescedCallCount() - coalescedBefore);
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/77")));
+    }
+
    // @Test
     void retrieveMovieById_withResponseTemplating() {
 
@@ -549,4 +644,60 @@ class MoviesRestClientJunit5Test {
 
     }
 
+    @Test
+    void streamAllMovies_jsonArray() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        //when
+        List<Movie> movieList;
+        try (Stream<Movie> movieStream = moviesRestClient.streamAllMovies()) {
+            movieList = movieStream.collect(Collectors.toList());
+        }
+
+        //then
+        assertEquals(moviesRestClient.retrieveAllMovies(), movieList);
+    }
+
+    @Test
+    void streamAllMovies_ndjson() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, "application/x-ndjson")
+                        .withBodyFile("all-movies.ndjson")));
+
+        //when
+        Flux<Movie> movieFlux = moviesRestClient.streamAllMoviesFlux();
+
+        //then
+        StepVerifier.create(movieFlux, 2)
+                .assertNext(movie -> assertEquals("Batman Begins", movie.getName()))
+                .assertNext(movie -> assertEquals("Dark Knight", movie.getName()))
+                .thenRequest(Long.MAX_VALUE)
+                .expectNextCount(8)
+                .verifyComplete();
+        verify(getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .withHeader(HttpHeaders.ACCEPT, containing("application/x-ndjson")));
+    }
+
+    @Test
+    void streamAllMovies_serverError() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(serverError()));
+
+        //then
+        StepVerifier.create(moviesRestClient.streamAllMoviesFlux())
+                .expectErrorMatches(ex -> ex instanceof MovieErrorResponse && "Internal Server Error".equals(ex.getMessage()))
+                .verify();
+    }
 }
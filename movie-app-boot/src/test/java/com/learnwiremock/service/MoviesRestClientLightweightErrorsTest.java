@@ -0,0 +1,94 @@
+package com.learnwiremock.service;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.learnwiremock.exception.MovieErrorResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWireMock(port = 8095)
+@TestPropertySource(properties = {"movieapp.baseUrl=http://localhost:8095",
+        "movieapp.errors.lightweight=true"})
+class MoviesRestClientLightweightErrorsTest {
+
+    @Autowired
+    MoviesRestClient moviesRestClient;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void retrieveMovieById_notFoundIsStackless() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/100"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieId.json")));
+
+        //when
+        MovieErrorResponse movieErrorResponse = Assertions.assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(100));
+
+        //then
+        assertEquals("Not Found", movieErrorResponse.getMessage());
+        assertEquals(404, movieErrorResponse.getStatusCode());
+        assertEquals("GET", movieErrorResponse.getMethod());
+        assertEquals("/movieservice/v1/movie/100", movieErrorResponse.getPath());
+        assertTrue(movieErrorResponse.getResponseBody().length() <= MovieErrorResponse.MAX_BODY_EXCERPT);
+        assertEquals(0, movieErrorResponse.getStackTrace().length);
+        assertNull(movieErrorResponse.getCause());
+        assertEquals(1, meterRegistry.get(MoviesClientMetrics.ERRORS)
+                .tags("method", "retrieveMovieById", "status", "404", "exception", "MovieErrorResponse")
+                .counter().count());
+    }
+
+    @Test
+    void retrieveAllMovies_serviceUnavailableIsStackless() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/allMovies"))
+                .willReturn(serverError()
+                        .withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())
+                        .withBody("Service Unavailable")));
+
+        //when
+        MovieErrorResponse movieErrorResponse = Assertions.assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveAllMovies());
+
+        //then
+        assertEquals(503, movieErrorResponse.getStatusCode());
+        assertEquals("Service Unavailable", movieErrorResponse.getResponseBody());
+        assertEquals(0, movieErrorResponse.getStackTrace().length);
+    }
+
+    @Test
+    void retrieveAllMovies_serverErrorKeepsStackTrace() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/allMovies"))
+                .willReturn(serverError()));
+
+        //when
+        MovieErrorResponse movieErrorResponse = Assertions.assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveAllMovies());
+
+        //then
+        assertEquals(500, movieErrorResponse.getStatusCode());
+        assertTrue(movieErrorResponse.getStackTrace().length > 0);
+        assertTrue(movieErrorResponse.getCause() instanceof WebClientResponseException);
+    }
+}
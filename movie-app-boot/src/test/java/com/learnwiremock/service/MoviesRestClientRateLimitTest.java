@@ -0,0 +1,95 @@
+package com.learnwiremock.service;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.exception.MovieErrorResponse;
+import com.learnwiremock.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWireMock(port = 8101)
+@TestPropertySource(properties = {"movieapp.baseUrl=http://localhost:8101",
+        "movieapp.rate-limit.enabled=true",
+        "movieapp.rate-limit.operations.retrieveMovieById.rate-per-second=0.5",
+        "movieapp.rate-limit.operations.retrieveMovieById.burst=2",
+        "movieapp.rate-limit.operations.retrieveMovieById.max-wait=0s",
+        "movieapp.rate-limit.operations.retrieveMovieByName.max-wait=2s"})
+class MoviesRestClientRateLimitTest {
+
+    @Autowired
+    MoviesRestClient moviesRestClient;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void retrieveMovieById_burstThenRejected() {
+
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+
+        //when
+        moviesRestClient.retrieveMovieById(1);
+        moviesRestClient.retrieveMovieById(2);
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class, () -> moviesRestClient.retrieveMovieById(3));
+
+        //then
+        assertEquals("retrieveMovieById", exception.getLimiterName());
+        verify(exactly(2), getRequestedFor(urlPathMatching("/movieservice/v1/movie/[0-9]+")));
+        assertEquals(1, meterRegistry.get(MoviesClientMetrics.RATE_LIMIT_REJECTED).tag("limiter", "retrieveMovieById").functionCounter().count());
+    }
+
+    @Test
+    void retrieveMovieByName_tooManyRequestsPausesTheLimiter() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movieName"))
+                .inScenario("throttled")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.TOO_MANY_REQUESTS.value())
+                        .withHeader(HttpHeaders.RETRY_AFTER, "1"))
+                .willSetStateTo("recovered"));
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movieName"))
+                .inScenario("throttled")
+                .whenScenarioStateIs("recovered")
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("avengers.json")));
+
+        //when
+        MovieErrorResponse throttled = assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieByName("Avengers"));
+        long start = System.nanoTime();
+        List<Movie> movieList = moviesRestClient.retrieveMovieByName("Avengers");
+
+        //then
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), throttled.getStatusCode());
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(900).toNanos());
+        assertFalse(movieList.isEmpty());
+        assertEquals(1, meterRegistry.get(MoviesClientMetrics.RATE_LIMIT_PAUSES).tag("limiter", "retrieveMovieByName").functionCounter().count());
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movieName")));
+    }
+}
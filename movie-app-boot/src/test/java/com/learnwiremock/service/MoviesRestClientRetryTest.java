@@ -0,0 +1,105 @@
+package com.learnwiremock.service;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.exception.MovieErrorResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWireMock(port = 8097)
+@TestPropertySource(properties = {"movieapp.baseUrl=http://localhost:8097",
+        "movieapp.retry.enabled=true",
+        "movieapp.retry.first-backoff=10ms",
+        "movieapp.retry.max-backoff=50ms"})
+class MoviesRestClientRetryTest {
+
+    @Autowired
+    MoviesRestClient moviesRestClient;
+
+    @Test
+    void retrieveAllMovies_retriesPrematureClose() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/allMovies"))
+                .inScenario("transient failure")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse().withFault(Fault.EMPTY_RESPONSE))
+                .willSetStateTo("recovered"));
+        stubFor(get(urlPathEqualTo("/movieservice/v1/allMovies"))
+                .inScenario("transient failure")
+                .whenScenarioStateIs("recovered")
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        //when
+        List<Movie> movieList = moviesRestClient.retrieveAllMovies();
+
+        //then
+        assertTrue(movieList.size() > 0);
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/allMovies")));
+    }
+
+    @Test
+    void addNewMovie_isNotRetried() {
+
+        //given
+        stubFor(post(urlPathEqualTo("/movieservice/v1/movie"))
+                .willReturn(serverError().withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())));
+        Movie movie = new Movie(null, "Toys Story 4", 2019, "Tom Hanks, Tim Allen", LocalDate.of(2019, 06, 20));
+
+        //when
+        Assertions.assertThrows(MovieErrorResponse.class, () -> moviesRestClient.addNewMovie(movie));
+
+        //then
+        verify(exactly(1), postRequestedFor(urlPathEqualTo("/movieservice/v1/movie")));
+    }
+
+    @Test
+    void addNewMovie_withIdempotencyKey_isRetried() {
+
+        //given
+        stubFor(post(urlPathEqualTo("/movieservice/v1/movie"))
+                .inScenario("add movie")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(serverError().withStatus(HttpStatus.SERVICE_UNAVAILABLE.value()))
+                .willSetStateTo("recovered"));
+        stubFor(post(urlPathEqualTo("/movieservice/v1/movie"))
+                .inScenario("add movie")
+                .whenScenarioStateIs("recovered")
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.CREATED.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("add-movie.json")));
+        Movie movie = new Movie(null, "Toys Story 4", 2019, "Tom Hanks, Tim Allen", LocalDate.of(2019, 06, 20));
+
+        //when
+        Movie addedMovie = moviesRestClient.addNewMovie(movie, "toy-story-4");
+
+        //then
+        assertNotNull(addedMovie.getMovie_id());
+        verify(exactly(2), postRequestedFor(urlPathEqualTo("/movieservice/v1/movie"))
+                .withHeader(RetryFilter.IDEMPOTENCY_KEY, equalTo("toy-story-4")));
+    }
+}
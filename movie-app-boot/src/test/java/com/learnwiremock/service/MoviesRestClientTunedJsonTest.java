@@ -0,0 +1,110 @@
+package com.learnwiremock.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.learnwiremock.dto.Movie;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWireMock(port = 8106)
+@TestPropertySource(properties = {"movieapp.baseUrl=http://localhost:8106",
+        "movieapp.http.tuned-json=true"})
+class MoviesRestClientTunedJsonTest {
+
+    private static final TypeReference<List<Movie>> MOVIE_LIST = new TypeReference<List<Movie>>() {
+    };
+
+    @Autowired
+    MoviesRestClient moviesRestClient;
+
+    @Test
+    void readAllMovies_sameAsDefaultMapper() throws Exception {
+        //given
+        byte[] json = Files.readAllBytes(Paths.get(getClass().getResource("/__files/all-movies.json").toURI()));
+        ObjectMapper defaultMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        //when
+        List<Movie> movies = MovieJson.objectMapper().readValue(json, MOVIE_LIST);
+
+        //then
+        assertEquals(defaultMapper.readValue(json, MOVIE_LIST), movies);
+        String coerced = "{\"movie_id\":\"12\",\"name\":null,\"unknown\":[1,{}],\"year\":\"2005\",\"release_date\":[2005,6,15]}";
+        assertEquals(defaultMapper.readValue(coerced, Movie.class), MovieJson.objectMapper().readValue(coerced, Movie.class));
+    }
+
+    @Test
+    void retrieveAllMovies() {
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/allMovies"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        //when
+        List<Movie> movieList = moviesRestClient.retrieveAllMovies();
+
+        //then
+        assertEquals(10, movieList.size());
+        assertEquals(Long.valueOf(1), movieList.get(0).getMovie_id());
+        assertEquals(LocalDate.of(2005, 6, 15), movieList.get(0).getRelease_date());
+    }
+
+    @Test
+    void streamAllMovies_ndjson() {
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/allMovies"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MoviesRestClient.APPLICATION_NDJSON.toString())
+                        .withBodyFile("all-movies.ndjson")));
+
+        //when
+        List<Movie> movieList = moviesRestClient.streamAllMovies().collect(Collectors.toList());
+
+        //then
+        assertEquals(10, movieList.size());
+        assertEquals("Batman Begins", movieList.get(0).getName());
+    }
+
+    @Test
+    void addNewMovie() {
+        //given
+        Movie movie = new Movie(null, "Toy Story 4", 2019, "Tom Hanks, Tim Allen", LocalDate.of(2019, 6, 20));
+        stubFor(post(urlPathEqualTo("/movieservice/v1/movie"))
+                .withRequestBody(matchingJsonPath("$.name", equalTo("Toy Story 4")))
+                .withRequestBody(matchingJsonPath("$.year", equalTo("2019")))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.CREATED.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("add-movie.json")));
+
+        //when
+        Movie addedMovie = moviesRestClient.addNewMovie(movie);
+
+        //then
+        assertEquals(Long.valueOf(11), addedMovie.getMovie_id());
+        assertEquals(LocalDate.of(2019, 6, 20), addedMovie.getRelease_date());
+    }
+}
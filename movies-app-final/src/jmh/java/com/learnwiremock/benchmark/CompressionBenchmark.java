@@ -0,0 +1,188 @@
+package com.learnwiremock.benchmark;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.service.MoviesRestClient;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.learnwiremock.constants.MoviesAppConstants.GET_ALL_MOVIES_V1;
+
+/**
+ * {@link MoviesRestClient#retrieveAllMovies()} of a multi-megabyte catalog with and without response compression.
+ * WireMock serves the catalog gzipped, compressed once up front, to requests that accept gzip, so the server side
+ * costs nothing and the numbers are those of the client: the latency, the bytes read from the socket and the CPU time of
+ * the Reactor Netty event loop, which decompresses and decodes the body, see {@link CallCost}.
+ * <p>
+ * The loopback interface is much faster than a real network, so the latency here understates what the smaller
+ * downloads save, compare the wire bytes too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    @Param({"false", "true"})
+    boolean compression;
+
+    @Param({"25000"})
+    int movieCount;
+
+    static final WireBytes WIRE_BYTES = new WireBytes();
+
+    WireMockServer wireMockServer;
+    MoviesRestClient moviesRestClient;
+
+    /**
+     * The calls, the kilobytes read from the socket and the event loop CPU time of each measurement iteration. JMH sums
+     * these over the iterations, divide the kilobytes and the CPU time by the calls to compare them per call.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CallCost {
+
+        public long calls;
+        public double wireKilobytes;
+        public double eventLoopCpuMillis;
+
+        private long startBytes;
+        private long startCpuNanos;
+
+        @Setup(Level.Iteration)
+        public void start() {
+            calls = 0;
+            startBytes = WIRE_BYTES.sum();
+            startCpuNanos = eventLoopCpuNanos();
+        }
+
+        @TearDown(Level.Iteration)
+        public void stop() {
+            wireKilobytes = (WIRE_BYTES.sum() - startBytes) / 1024.0;
+            eventLoopCpuMillis = (eventLoopCpuNanos() - startCpuNanos) / 1_000_000.0;
+        }
+    }
+
+    @ChannelHandler.Sharable
+    static class WireBytes extends ChannelInboundHandlerAdapter {
+
+        private final LongAdder bytes = new LongAdder();
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof ByteBuf) {
+                bytes.add(((ByteBuf) msg).readableBytes());
+            }
+            ctx.fireChannelRead(msg);
+        }
+
+        long sum() {
+            return bytes.sum();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] allMoviesJson = MovieFixtures.allMoviesJson(movieCount);
+        // Jetty would gzip the plain catalog on the fly, which is paid on the server side and blurs the comparison
+        wireMockServer = new WireMockServer(wireMockConfig().dynamicPort().gzipDisabled(true));
+        wireMockServer.start();
+        wireMockServer.stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .atPriority(2)
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(allMoviesJson)));
+        wireMockServer.stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .atPriority(1)
+                .withHeader(HttpHeaders.ACCEPT_ENCODING, containing("gzip"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .withBody(gzip(allMoviesJson))));
+
+        // the same HttpClient as MoviesRestClient.Builder#compression, plus a handler at the head of the pipeline,
+        // ahead of the HTTP codec, that counts the bytes as they come off the socket
+        HttpClient httpClient = HttpClient.create()
+                .compress(compression)
+                .tcpConfiguration(tcpClient -> tcpClient.doOnConnected(connection -> {
+                    if (connection.channel().pipeline().get("wireBytes") == null) {
+                        connection.channel().pipeline().addFirst("wireBytes", WIRE_BYTES);
+                    }
+                }));
+        WebClient webClient = WebClient.builder()
+                .baseUrl(wireMockServer.baseUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        wireMockServer.stop();
+    }
+
+    @Benchmark
+    public List<Movie> retrieveAllMovies(CallCost callCost) {
+        callCost.calls++;
+        return moviesRestClient.retrieveAllMovies();
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static long eventLoopCpuNanos() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long cpuNanos = 0;
+        for (ThreadInfo thread : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (thread != null && thread.getThreadName().startsWith("reactor-http")) {
+                cpuNanos += Math.max(0, threads.getThreadCpuTime(thread.getThreadId()));
+            }
+        }
+        return cpuNanos;
+    }
+}
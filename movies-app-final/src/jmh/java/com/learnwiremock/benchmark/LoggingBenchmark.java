@@ -0,0 +1,80 @@
+package com.learnwiremock.benchmark;
+
+import com.learnwiremock.exception.MovieErrorResponse;
+import com.learnwiremock.service.FailureLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per request and per failure logging with the logger at INFO, the way it was done before the {@link FailureLog}
+ * against the guarded DEBUG logs and the rate limited failure log. The log lines go to a file, as they would in production.
+ * The bare logging calls only, MoviesRestClientLoggingBenchmark of movie-app-boot weighs the logs against whole calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = {"-Dorg.slf4j.simpleLogger.defaultLogLevel=info",
+        "-Dorg.slf4j.simpleLogger.logFile=build/reports/jmh/logging-benchmark.log"})
+public class LoggingBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingBenchmark.class);
+
+    MovieErrorResponse notFound;
+    FailureLog everyFailure;
+    FailureLog rateLimited;
+
+    @Setup
+    public void setUp() {
+        notFound = MovieErrorResponse.expected(404, "GET", "/movieservice/v1/movie/100", "No Movie Available with the given Id - 100");
+        everyFailure = new FailureLog(log, Duration.ZERO);
+        rateLimited = new FailureLog(log, FailureLog.DEFAULT_INTERVAL);
+    }
+
+    @Benchmark
+    public void requestLogsAtInfo() {
+        log.info("Inside retrieve all movies");
+        log.info("after the call");
+    }
+
+    @Benchmark
+    public void requestLogsAtDebug() {
+        if (log.isDebugEnabled()) {
+            log.debug("Inside retrieve all movies");
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("after the call");
+        }
+    }
+
+    @Benchmark
+    public void failureLoggedEagerly() {
+        log.error("Exception - The Error Message is {} and exception is ", notFound.getMessage() + notFound);
+    }
+
+    @Benchmark
+    public boolean failureLoggedEveryTime() {
+        return everyFailure.record("retrieveMovieById", notFound);
+    }
+
+    @Benchmark
+    public boolean failureLogRateLimited() {
+        return rateLimited.record("retrieveMovieById", notFound);
+    }
+}
@@ -0,0 +1,73 @@
+package com.learnwiremock.benchmark;
+
+import com.learnwiremock.exception.MovieErrorResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of the error a 404 ends in: a {@link WebClientResponseException} wrapped in a {@link MovieErrorResponse},
+ * both with stack traces, against a stackless {@link MovieErrorResponse#expected} error.
+ * The errors are created stackDepth frames deep, since the reactive call stacks they are created on are deep as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieErrorResponseBenchmark {
+
+    @Param({"10", "100"})
+    int stackDepth;
+
+    HttpHeaders headers;
+    String body;
+    byte[] bodyBytes;
+
+    @Setup
+    public void setUp() {
+        headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        body = "{\"timestamp\":\"2019-08-11T14:10:45.135+0000\",\"status\":404,\"error\":\"Not Found\","
+                + "\"message\":\"No Movie Available with the given Id - 100\",\"path\":\"/movieservice/v1/movie/100\"}";
+        bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public MovieErrorResponse errorWithStackTrace() {
+        return atDepth(stackDepth, false);
+    }
+
+    @Benchmark
+    public MovieErrorResponse expectedError() {
+        return atDepth(stackDepth, true);
+    }
+
+    private MovieErrorResponse atDepth(int depth, boolean expected) {
+        if (depth > 0) {
+            return atDepth(depth - 1, expected);
+        }
+        if (expected) {
+            return MovieErrorResponse.expected(HttpStatus.NOT_FOUND.value(), "GET", "/movieservice/v1/movie/100", body);
+        }
+        WebClientResponseException responseException = WebClientResponseException.create(HttpStatus.NOT_FOUND.value(),
+                HttpStatus.NOT_FOUND.getReasonPhrase(), headers, bodyBytes, StandardCharsets.UTF_8);
+        return new MovieErrorResponse(responseException.getStatusText(), responseException);
+    }
+}
@@ -0,0 +1,44 @@
+package com.learnwiremock.benchmark;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Movie payloads shaped like the all-movies.json test file, generated so any size can be benchmarked.
+ */
+final class MovieFixtures {
+
+    private static final String[][] MOVIES = {
+            {"Batman Begins", "2005", "Christian Bale, Katie Holmes , Liam Neeson", "2005-06-15"},
+            {"Dark Knight", "2008", "Christian Bale, Heath Ledger , Michael Caine", "2008-07-18"},
+            {"The Dark Knight Rises", "2012", "Christian Bale, Heath Ledger , Michael Caine", "2012-07-20"},
+            {"The Avengers", "2012", "Robert Downey Jr, Chris Evans , Chris HemsWorth", "2012-05-04"},
+            {"Avengers: Age of Ultron", "2015", "Robert Downey Jr, Chris Evans , Chris HemsWorth", "2015-05-01"},
+    };
+
+    private MovieFixtures() {
+    }
+
+    static byte[] movieJson(int movieId) {
+        return movie(movieId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] allMoviesJson(int movieCount) {
+        StringBuilder json = new StringBuilder("[");
+        for (int movieId = 1; movieId <= movieCount; movieId++) {
+            if (movieId > 1) {
+                json.append(',');
+            }
+            json.append(movie(movieId));
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String movie(int movieId) {
+        String[] movie = MOVIES[(movieId - 1) % MOVIES.length];
+        return "{\"movie_id\":" + movieId
+                + ",\"name\":\"" + movie[0]
+                + "\",\"year\":" + movie[1]
+                + ",\"cast\":\"" + movie[2]
+                + "\",\"release_date\":\"" + movie[3] + "\"}";
+    }
+}
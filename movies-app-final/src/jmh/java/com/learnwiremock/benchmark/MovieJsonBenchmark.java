@@ -0,0 +1,75 @@
+package com.learnwiremock.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.service.MovieJson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson deserialization of a single movie and of all movies style arrays, with the default ObjectMapper
+ * configuration of the WebClient codecs and with the tuned one of {@link MovieJson}.
+ * The difference between the two is small next to the variance from one JVM to the next, hence the five forks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+public class MovieJsonBenchmark {
+
+    private static final TypeReference<List<Movie>> MOVIE_LIST = new TypeReference<List<Movie>>() {
+    };
+
+    @Param({"default", "tuned"})
+    String mapper;
+
+    ObjectMapper objectMapper;
+    byte[] movieJson;
+
+    @State(Scope.Benchmark)
+    public static class AllMovies {
+
+        @Param({"10", "1000", "100000"})
+        int movieCount;
+
+        byte[] json;
+
+        @Setup
+        public void setUp() {
+            json = MovieFixtures.allMoviesJson(movieCount);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        objectMapper = "tuned".equals(mapper) ? MovieJson.objectMapper() : Jackson2ObjectMapperBuilder.json().build();
+        movieJson = MovieFixtures.movieJson(1);
+    }
+
+    @Benchmark
+    public Movie readMovie() throws IOException {
+        return objectMapper.readValue(movieJson, Movie.class);
+    }
+
+    @Benchmark
+    public List<Movie> readAllMovies(AllMovies allMovies) throws IOException {
+        return objectMapper.readValue(allMovies.json, MOVIE_LIST);
+    }
+}
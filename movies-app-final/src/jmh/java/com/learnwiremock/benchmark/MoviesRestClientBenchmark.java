@@ -0,0 +1,86 @@
+package com.learnwiremock.benchmark;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.service.MoviesRestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.learnwiremock.constants.MoviesAppConstants.*;
+
+/**
+ * End to end calls of {@link MoviesRestClient} against an in-process WireMock server, so the numbers include
+ * the HTTP round trip, the Netty pipeline and JSON decoding, but not a real network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoviesRestClientBenchmark {
+
+    WireMockServer wireMockServer;
+    MoviesRestClient moviesRestClient;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        wireMockServer = new WireMockServer(wireMockConfig().dynamicPort());
+        wireMockServer.start();
+        wireMockServer.stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(MovieFixtures.movieJson(1))));
+        wireMockServer.stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(MovieFixtures.allMoviesJson(10))));
+        wireMockServer.stubFor(get(urlPathEqualTo(MOVIE_BY_NAME_QUERY_PARAM_V1))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(MovieFixtures.allMoviesJson(2))));
+
+        moviesRestClient = new MoviesRestClient(WebClient.create(wireMockServer.baseUrl()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        wireMockServer.stop();
+    }
+
+    @Benchmark
+    public Movie retrieveMovieById() {
+        return moviesRestClient.retrieveMovieById(1);
+    }
+
+    @Benchmark
+    public List<Movie> retrieveAllMovies() {
+        return moviesRestClient.retrieveAllMovies();
+    }
+
+    @Benchmark
+    public List<Movie> retrieveMoviebyName() {
+        return moviesRestClient.retrieveMoviebyName("Avengers");
+    }
+}
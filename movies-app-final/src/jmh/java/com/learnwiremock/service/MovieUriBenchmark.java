@@ -0,0 +1,39 @@
+package com.learnwiremock.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The query URIs built for every call of retrieveMoviebyName / retrieveMoviebyYear.
+ * Lives in the service package to benchmark the package private URI builders of {@link MoviesRestClient}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieUriBenchmark {
+
+    String movieName = "Avengers: Age of Ultron";
+    Integer movieYear = 2012;
+
+    @Benchmark
+    public String movieByNameUri() {
+        return MoviesRestClient.movieByNameUri(movieName);
+    }
+
+    @Benchmark
+    public String movieByYearUri() {
+        return MoviesRestClient.movieByYearUri(movieYear);
+    }
+}
@@ -0,0 +1,356 @@
+package com.learnwiremock.loadtest;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.http.DelayDistribution;
+import com.learnwiremock.service.AdaptiveConcurrencyLimiter;
+import com.learnwiremock.service.MovieConnectionProvider;
+import com.learnwiremock.service.MovieHedging;
+import com.learnwiremock.service.MovieTransport;
+import com.learnwiremock.service.MoviesRestClient;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Mono;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.learnwiremock.constants.MoviesAppConstants.*;
+
+/**
+ * Drives one {@link MoviesRestClient} operation at a target request rate against an embedded WireMock server and
+ * reports throughput and latency percentiles.
+ * <p>
+ * Every request has an intended start time on a fixed schedule. The service time is measured from when the request
+ * was actually sent, the response time from when it should have been sent, so a stall of the client shows up in the
+ * response time instead of silently lowering the request rate (coordinated omission).
+ * <ul>
+ * <li>open mode (default) - requests are sent on schedule without waiting for earlier ones to complete</li>
+ * <li>closed mode - loadTest.concurrency callers each send a request, wait for it and send the next one on their share
+ * of the schedule</li>
+ * </ul>
+ * Settings are system properties, the loadTest Gradle task passes on -PloadTest.* project properties:
+ * operation, mode, rps, concurrency, duration, warmup, maxConnections, delayMillis, maxDelayMillis, tailPercent,
+ * hedgeDelay, hedgePercentile, concurrencyLimit, serverThreads, transport, eventLoopThreads.
+ * <p>
+ * With maxDelayMillis the stubs answer after a uniformly random delay between delayMillis and maxDelayMillis, with
+ * tailPercent below 100 only that share of the responses does and the others take delayMillis. A small tailPercent
+ * gives the long tail to compare retrieveMovieById with and without hedging (hedgeDelay, e.g. 50ms, see
+ * {@link MovieHedging}).
+ * <p>
+ * concurrencyLimit sends the calls through an {@link AdaptiveConcurrencyLimiter} starting at that limit, which is
+ * printed every second. With few serverThreads WireMock queues the requests it cannot work on and the limit settles
+ * a little above them.
+ * <p>
+ * transport (native or nio, see {@link MovieTransport}) and eventLoopThreads (0 for the shared event loops) select the
+ * client transport. The read and write system calls and context switches per request are printed with the latencies,
+ * compare two runs at a high rate to see what epoll saves.
+ */
+public class MoviesLoadTest {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Supplier<Mono<?>> operation;
+    private final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+    private final Histogram responseTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    MoviesLoadTest(Supplier<Mono<?>> operation) {
+        this.operation = operation;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String operationName = System.getProperty("loadTest.operation", "retrieveMovieById");
+        String mode = System.getProperty("loadTest.mode", "open");
+        int rps = Integer.getInteger("loadTest.rps", 500);
+        int concurrency = Integer.getInteger("loadTest.concurrency", 16);
+        Duration duration = duration(System.getProperty("loadTest.duration", "30s"));
+        Duration warmup = duration(System.getProperty("loadTest.warmup", "5s"));
+        int maxConnections = Integer.getInteger("loadTest.maxConnections", 64);
+        int delayMillis = Integer.getInteger("loadTest.delayMillis", 0);
+        int maxDelayMillis = Integer.getInteger("loadTest.maxDelayMillis", delayMillis);
+        int tailPercent = Integer.getInteger("loadTest.tailPercent", 100);
+        String hedgeDelay = System.getProperty("loadTest.hedgeDelay");
+        double hedgePercentile = Double.parseDouble(System.getProperty("loadTest.hedgePercentile", "0"));
+        Integer concurrencyLimit = Integer.getInteger("loadTest.concurrencyLimit");
+        int serverThreads = Integer.getInteger("loadTest.serverThreads", Math.max(maxConnections * 2, 32));
+        String transportType = System.getProperty("loadTest.transport", "native");
+        int eventLoopThreads = Integer.getInteger("loadTest.eventLoopThreads", 0);
+
+        WireMockServer wireMockServer = new WireMockServer(wireMockConfig()
+                .dynamicPort()
+                .usingFilesUnderDirectory("src/test/resources")
+                .containerThreads(serverThreads)
+                .disableRequestJournal());
+        wireMockServer.start();
+        stubMovieService(wireMockServer, delayMillis, maxDelayMillis, tailPercent);
+
+        MovieConnectionProvider connectionProvider = MovieConnectionProvider.builder("movies-load-test")
+                .maxConnections(maxConnections)
+                .build();
+        MovieTransport transport = MovieTransport.builder("movies-load-test")
+                .eventLoopThreads(eventLoopThreads)
+                .preferNative(transport(transportType))
+                .build();
+        MoviesRestClient.Builder builder = MoviesRestClient.builder()
+                .baseUrl(wireMockServer.baseUrl())
+                .connectionProvider(connectionProvider)
+                .transport(transport);
+        MovieHedging hedging = null;
+        if (hedgeDelay != null) {
+            hedging = MovieHedging.builder()
+                    .delay(duration(hedgeDelay))
+                    .percentile(hedgePercentile)
+                    .build();
+            builder.hedging(hedging);
+        }
+        AdaptiveConcurrencyLimiter limiter = null;
+        if (concurrencyLimit != null) {
+            limiter = AdaptiveConcurrencyLimiter.builder("movies-load-test")
+                    .initialLimit(concurrencyLimit)
+                    .build();
+            builder.concurrencyLimiter(limiter);
+        }
+        MoviesRestClient moviesRestClient = builder.build();
+        ScheduledExecutorService limitPrinter = Executors.newSingleThreadScheduledExecutor();
+        if (limiter != null) {
+            AdaptiveConcurrencyLimiter printed = limiter;
+            limitPrinter.scheduleAtFixedRate(() -> System.out.printf("  limit %d, in flight %d, rejected %d%n",
+                    printed.getLimit(), printed.getInFlight(), printed.getRejectedCallCount()), 1, 1, TimeUnit.SECONDS);
+        }
+        try {
+            MoviesLoadTest loadTest = new MoviesLoadTest(operation(moviesRestClient, operationName));
+            System.out.printf("Warming up %s for %s%n", operationName, warmup);
+            loadTest.run(mode, rps, concurrency, warmup);
+            loadTest.reset();
+
+            System.out.printf("Running %s, %s mode, %d requests/s, %s%n", operationName, mode, rps, duration);
+            ProcessCounters startCounters = ProcessCounters.snapshot("movies-load-test", "reactor-http");
+            long start = System.nanoTime();
+            loadTest.run(mode, rps, concurrency, duration);
+            long elapsed = System.nanoTime() - start;
+            ProcessCounters endCounters = ProcessCounters.snapshot("movies-load-test", "reactor-http");
+
+            String name = operationName + "-" + mode + "-" + rps;
+            loadTest.report(System.out, name, elapsed);
+            System.out.printf("  connections: %d opened (max %d)%n", connectionProvider.getOpenedConnectionCount(), maxConnections);
+            System.out.printf("  transport  : %s, %s%n", transport.getChannelType().getSimpleName(),
+                    eventLoopThreads > 0 ? eventLoopThreads + " event loop threads" : "shared event loops");
+            endCounters.reportSince(System.out, startCounters, loadTest.completed.get());
+            if (hedging != null) {
+                System.out.printf("  hedges     : %d (delay %s)%n", hedging.getHedgeCount(), hedging.getDelay());
+            }
+            loadTest.writeHistograms(new File("build/reports/loadtest"), name);
+        } finally {
+            limitPrinter.shutdownNow();
+            connectionProvider.dispose();
+            transport.dispose();
+            wireMockServer.stop();
+        }
+    }
+
+    private static boolean transport(String transportType) {
+        if ("native".equals(transportType) || "nio".equals(transportType)) {
+            return "native".equals(transportType);
+        }
+        throw new IllegalArgumentException("Unknown transport " + transportType + ", use native or nio");
+    }
+
+    static Supplier<Mono<?>> operation(MoviesRestClient moviesRestClient, String operationName) {
+        switch (operationName) {
+            case "retrieveMovieById":
+                return () -> moviesRestClient.retrieveMovieByIdMono(ThreadLocalRandom.current().nextInt(1, 1000));
+            case "retrieveAllMovies":
+                return () -> moviesRestClient.retrieveAllMoviesFlux().then();
+            case "retrieveMoviebyName":
+                return () -> moviesRestClient.retrieveMoviebyNameFlux("Avengers").then();
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operationName
+                        + ", use retrieveMovieById, retrieveAllMovies or retrieveMoviebyName");
+        }
+    }
+
+    void run(String mode, int rps, int concurrency, Duration duration) throws InterruptedException {
+        if ("closed".equals(mode)) {
+            runClosed(rps, concurrency, duration);
+        } else if ("open".equals(mode)) {
+            runOpen(rps, duration);
+        } else {
+            throw new IllegalArgumentException("Unknown mode " + mode + ", use open or closed");
+        }
+    }
+
+    /**
+     * Sends requests on schedule from a single thread, regardless of how many are still in flight.
+     */
+    private void runOpen(int rps, Duration duration) throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / rps;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        AtomicLong inFlight = new AtomicLong();
+        for (long intendedStart = start; intendedStart < end; intendedStart += interval) {
+            waitUntil(intendedStart);
+            long sentAt = System.nanoTime();
+            long scheduledAt = intendedStart;
+            inFlight.incrementAndGet();
+            operation.get().subscribe(
+                    result -> {
+                    },
+                    ex -> {
+                        errors.incrementAndGet();
+                        inFlight.decrementAndGet();
+                    },
+                    () -> {
+                        record(scheduledAt, sentAt, System.nanoTime());
+                        inFlight.decrementAndGet();
+                    });
+        }
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Each caller blocks on its request, then sends the next one at its next slot of the schedule.
+     */
+    private void runClosed(int rps, int concurrency, Duration duration) throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) * concurrency / rps;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        List<Thread> callers = new ArrayList<>();
+        for (int caller = 0; caller < concurrency; caller++) {
+            long firstStart = start + interval * caller / concurrency;
+            Thread thread = new Thread(() -> {
+                for (long intendedStart = firstStart; intendedStart < end; intendedStart += interval) {
+                    waitUntil(intendedStart);
+                    long sentAt = System.nanoTime();
+                    try {
+                        operation.get().block();
+                        record(intendedStart, sentAt, System.nanoTime());
+                    } catch (RuntimeException ex) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }, "load-test-caller-" + caller);
+            thread.start();
+            callers.add(thread);
+        }
+        for (Thread thread : callers) {
+            thread.join();
+        }
+    }
+
+    private void record(long intendedStart, long sentAt, long completedAt) {
+        serviceTime.recordValue(Math.min(completedAt - sentAt, HIGHEST_TRACKABLE_NANOS));
+        responseTime.recordValue(Math.min(completedAt - intendedStart, HIGHEST_TRACKABLE_NANOS));
+        completed.incrementAndGet();
+    }
+
+    void reset() {
+        serviceTime.reset();
+        responseTime.reset();
+        errors.set(0);
+        completed.set(0);
+    }
+
+    void report(PrintStream out, String name, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf("%n%s%n", name);
+        out.printf("  completed  : %d (%.1f requests/s)%n", completed.get(), completed.get() / seconds);
+        out.printf("  errors     : %d%n", errors.get());
+        out.printf("  %-28s %10s %10s %10s %10s %10s%n", "latency (ms)", "p50", "p90", "p99", "p99.9", "max");
+        printPercentiles(out, "service time (uncorrected)", serviceTime);
+        printPercentiles(out, "response time (corrected)", responseTime);
+    }
+
+    private static void printPercentiles(PrintStream out, String label, Histogram histogram) {
+        out.printf("  %-28s %10.3f %10.3f %10.3f %10.3f %10.3f%n", label,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    /**
+     * Writes the full percentile distributions, which can be plotted with the HdrHistogram plotter.
+     */
+    void writeHistograms(File directory, String name) throws FileNotFoundException {
+        directory.mkdirs();
+        try (PrintStream serviceTimeOut = new PrintStream(new File(directory, name + "-service-time.hgrm"));
+             PrintStream responseTimeOut = new PrintStream(new File(directory, name + "-response-time.hgrm"))) {
+            serviceTime.outputPercentileDistribution(serviceTimeOut, 1_000_000.0);
+            responseTime.outputPercentileDistribution(responseTimeOut, 1_000_000.0);
+        }
+        System.out.printf("  histograms : %s%n", directory.getAbsolutePath());
+    }
+
+    private static void stubMovieService(WireMockServer wireMockServer, int delayMillis, int maxDelayMillis, int tailPercent) {
+        DelayDistribution delay = () -> ThreadLocalRandom.current().nextInt(100) < tailPercent
+                ? ThreadLocalRandom.current().nextLong(delayMillis, maxDelayMillis + 1L)
+                : delayMillis;
+        wireMockServer.stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withRandomDelay(delay)));
+        wireMockServer.stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")
+                        .withRandomDelay(delay)));
+        wireMockServer.stubFor(get(urlPathEqualTo(MOVIE_BY_NAME_QUERY_PARAM_V1))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("avengers.json")
+                        .withRandomDelay(delay)));
+    }
+
+    private static void waitUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * 500ms, 30s or 2m.
+     */
+    static Duration duration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        switch (value.charAt(value.length() - 1)) {
+            case 's':
+                return Duration.ofSeconds(amount);
+            case 'm':
+                return Duration.ofMinutes(amount);
+            default:
+                throw new IllegalArgumentException("Unknown duration " + value + ", use 500ms, 30s or 2m");
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.learnwiremock.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read and write system calls and context switches of the whole process from /proc/self on Linux, and the CPU time
+ * of the client event loop threads. The embedded WireMock server is part of the process, its share stays the same
+ * when only the client transport changes, so the difference between two runs is the client's.
+ */
+final class ProcessCounters {
+
+    private final Map<String, Long> counters;
+    private final long eventLoopCpuNanos;
+
+    private ProcessCounters(Map<String, Long> counters, long eventLoopCpuNanos) {
+        this.counters = counters;
+        this.eventLoopCpuNanos = eventLoopCpuNanos;
+    }
+
+    /**
+     * @param eventLoopPrefixes - the names the client event loop threads start with
+     */
+    static ProcessCounters snapshot(String... eventLoopPrefixes) {
+        Map<String, Long> counters = new HashMap<>();
+        read(Paths.get("/proc/self/io"), counters);
+        // the context switches of /proc/self/status are the main thread's, those of the process are the sum of its threads
+        try (DirectoryStream<Path> tasks = Files.newDirectoryStream(Paths.get("/proc/self/task"))) {
+            for (Path task : tasks) {
+                read(task.resolve("status"), counters);
+            }
+        } catch (IOException | SecurityException ex) {
+            // not Linux
+        }
+        return new ProcessCounters(counters, eventLoopCpuNanos(eventLoopPrefixes));
+    }
+
+    void reportSince(PrintStream out, ProcessCounters start, long requests) {
+        if (requests == 0) {
+            return;
+        }
+        if (counters.containsKey("syscr") && start.counters.containsKey("syscr")) {
+            out.printf("  syscalls   : %.1f read, %.1f write per request (process)%n",
+                    perRequest(start, "syscr", requests), perRequest(start, "syscw", requests));
+        }
+        if (counters.containsKey("voluntary_ctxt_switches") && start.counters.containsKey("voluntary_ctxt_switches")) {
+            out.printf("  ctx switch : %.1f voluntary, %.1f involuntary per request (process)%n",
+                    perRequest(start, "voluntary_ctxt_switches", requests), perRequest(start, "nonvoluntary_ctxt_switches", requests));
+        }
+        out.printf("  event loop : %.1f us CPU per request%n", (eventLoopCpuNanos - start.eventLoopCpuNanos) / 1000.0 / requests);
+    }
+
+    private double perRequest(ProcessCounters start, String counter, long requests) {
+        return (counters.getOrDefault(counter, 0L) - start.counters.getOrDefault(counter, 0L)) / (double) requests;
+    }
+
+    /**
+     * Adds up lines of "name: value" or "name:\tvalue", values that are not a single number are skipped.
+     */
+    private static void read(Path file, Map<String, Long> counters) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file);
+        } catch (IOException | SecurityException ex) {
+            return;
+        }
+        for (String line : lines) {
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            try {
+                counters.merge(line.substring(0, colon).trim(), Long.parseLong(line.substring(colon + 1).trim()), Long::sum);
+            } catch (NumberFormatException ex) {
+                // a size with a unit or a list, not a counter
+            }
+        }
+    }
+
+    private static long eventLoopCpuNanos(String... prefixes) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long cpuNanos = 0;
+        for (ThreadInfo thread : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (thread == null) {
+                continue;
+            }
+            for (String prefix : prefixes) {
+                if (thread.getThreadName().startsWith(prefix)) {
+                    cpuNanos += Math.max(0, threads.getThreadCpuTime(thread.getThreadId()));
+                    break;
+                }
+            }
+        }
+        return cpuNanos;
+    }
+}
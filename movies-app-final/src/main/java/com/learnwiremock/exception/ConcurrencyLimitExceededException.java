@@ -0,0 +1,18 @@
+package com.learnwiremock.exception;
+
+/**
+ * Signalled instead of calling the movies service while the concurrency limit of the call is reached.
+ */
+public class ConcurrencyLimitExceededException extends MovieErrorResponse {
+
+    private final String limiterName;
+
+    public ConcurrencyLimitExceededException(String limiterName, int limit) {
+        super("Concurrency limit " + limiterName + " of " + limit + " calls reached, the call was not sent");
+        this.limiterName = limiterName;
+    }
+
+    public String getLimiterName() {
+        return limiterName;
+    }
+}
@@ -0,0 +1,20 @@
+package com.learnwiremock.exception;
+
+import java.time.Duration;
+
+/**
+ * Signalled when the deadline of a call passed before it was done. The exchange still in flight is cancelled.
+ */
+public class DeadlineExceededException extends MovieErrorResponse {
+
+    private final String operation;
+
+    public DeadlineExceededException(String operation, Duration timeout) {
+        super("Deadline of " + operation + " exceeded after " + timeout.toMillis() + "ms, the call was cancelled");
+        this.operation = operation;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+}
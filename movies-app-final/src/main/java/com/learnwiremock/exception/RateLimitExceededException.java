@@ -0,0 +1,20 @@
+package com.learnwiremock.exception;
+
+import java.time.Duration;
+
+/**
+ * Signalled instead of calling the movies service when the rate limiter of the call has no token within its maximum wait.
+ */
+public class RateLimitExceededException extends MovieErrorResponse {
+
+    private final String limiterName;
+
+    public RateLimitExceededException(String limiterName, Duration maxWait) {
+        super("Rate limiter " + limiterName + " has no token within " + maxWait.toMillis() + "ms, the call was not sent");
+        this.limiterName = limiterName;
+    }
+
+    public String getLimiterName() {
+        return limiterName;
+    }
+}
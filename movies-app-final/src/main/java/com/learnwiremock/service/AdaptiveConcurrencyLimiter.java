@@ -0,0 +1,314 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.exception.ConcurrencyLimitExceededException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the calls in flight to a limit that follows the capacity of the movies service, TCP Vegas style.
+ * <p>
+ * The lowest round trip time seen is taken as the time without queueing. From it and the round trip time of a call the
+ * limit estimates how many calls are queued at the service, limit * (1 - noLoadRtt / rtt). Few queued calls grow the
+ * limit, many shrink it, by a fifth of log10(limit) per call. Calls that failed from overload (429, 503, 504, connection failures
+ * and timeouts) shrink the limit by 10%. The limit only grows while at least half of it is used.
+ * The lowest round trip time stays the reference for the life of the limiter, measuring it anew under load would
+ * take queueing for the time without and let the limit creep up.
+ * <p>
+ * Calls over the limit wait up to maxWait for a permit, at most maxQueueSize of them, or fail right away
+ * with a {@link ConcurrencyLimitExceededException}. A maxWait of zero, the default, never waits.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double DROP_BACKOFF_RATIO = 0.9;
+    /**
+     * Every call adjusts the limit, smaller steps keep a burst of calls that all saw the same load from overshooting.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxWaitNanos;
+    private final int maxQueueSize;
+
+    private double limit;
+    private int inFlight;
+    private long noLoadRttNanos = Long.MAX_VALUE;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private final AtomicLong rejectedCalls = new AtomicLong();
+
+    private AdaptiveConcurrencyLimiter(Builder builder) {
+        this.name = builder.name;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.maxWaitNanos = builder.maxWait.toNanos();
+        this.maxQueueSize = builder.maxQueueSize;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, builder.initialLimit));
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * @return - a permit that must be ended with {@link Permit#release} or {@link Permit#cancel()}, null when the limit is reached
+     */
+    public synchronized Permit tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return null;
+        }
+        inFlight++;
+        return new Permit(inFlight);
+    }
+
+    /**
+     * Emits a permit once a call may go ahead, waits for one up to maxWait.
+     */
+    public Mono<Permit> acquire() {
+        return Mono.create(sink -> {
+            Permit permit = tryAcquire();
+            if (permit != null) {
+                sink.success(permit);
+                return;
+            }
+            Waiter waiter = new Waiter(sink);
+            if (maxWaitNanos <= 0 || !enqueue(waiter)) {
+                sink.error(rejected());
+                return;
+            }
+            if (waiter.state.get() == Waiter.GRANTED) {
+                sink.success(waiter.permit);
+                return;
+            }
+            Disposable timeout = Schedulers.parallel().schedule(() -> {
+                if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.TIMED_OUT)) {
+                    remove(waiter);
+                    sink.error(rejected());
+                }
+            }, maxWaitNanos, TimeUnit.NANOSECONDS);
+            sink.onCancel(() -> {
+                timeout.dispose();
+                if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.CANCELLED)) {
+                    remove(waiter);
+                } else if (waiter.state.get() == Waiter.GRANTED) {
+                    // granted at the same time, the permit may never reach the call
+                    waiter.permit.cancel();
+                }
+            });
+        });
+    }
+
+    private synchronized boolean enqueue(Waiter waiter) {
+        // a permit may have been released since tryAcquire
+        if (inFlight < (int) limit) {
+            inFlight++;
+            waiter.permit = new Permit(inFlight);
+            waiter.state.set(Waiter.GRANTED);
+            return true;
+        }
+        if (waiters.size() >= maxQueueSize) {
+            return false;
+        }
+        waiters.addLast(waiter);
+        return true;
+    }
+
+    private synchronized void remove(Waiter waiter) {
+        waiters.remove(waiter);
+    }
+
+    private ConcurrencyLimitExceededException rejected() {
+        rejectedCalls.incrementAndGet();
+        return new ConcurrencyLimitExceededException(name, getLimit());
+    }
+
+    private void onSample(long rttNanos, int inFlightAtStart, boolean dropped) {
+        Waiter next;
+        synchronized (this) {
+            updateLimit(rttNanos, inFlightAtStart, dropped);
+            next = handOver();
+        }
+        if (next != null) {
+            next.sink.success(next.permit);
+        }
+    }
+
+    private void onCancel() {
+        Waiter next;
+        synchronized (this) {
+            next = handOver();
+        }
+        if (next != null) {
+            next.sink.success(next.permit);
+        }
+    }
+
+    /**
+     * Passes the permit of the call that ended on to the next waiter, or gives it back.
+     */
+    private Waiter handOver() {
+        if (inFlight <= (int) limit) {
+            Waiter next;
+            while ((next = waiters.pollFirst()) != null) {
+                next.permit = new Permit(inFlight);
+                if (next.state.compareAndSet(Waiter.WAITING, Waiter.GRANTED)) {
+                    return next;
+                }
+            }
+        }
+        inFlight--;
+        return null;
+    }
+
+    private void updateLimit(long rttNanos, int inFlightAtStart, boolean dropped) {
+        if (dropped) {
+            limit = Math.max(minLimit, limit * DROP_BACKOFF_RATIO);
+            return;
+        }
+        noLoadRttNanos = Math.max(1, Math.min(noLoadRttNanos, rttNanos));
+        if (inFlightAtStart * 2 < limit) {
+            return;
+        }
+        double queued = limit * (1 - (double) noLoadRttNanos / Math.max(rttNanos, noLoadRttNanos));
+        double step = Math.max(1, Math.log10(limit));
+        if (queued <= 3 * step) {
+            limit = Math.min(maxLimit, limit + SMOOTHING * step);
+        } else if (queued > 6 * step) {
+            limit = Math.max(minLimit, limit - SMOOTHING * step);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueueSize() {
+        return waiters.size();
+    }
+
+    /**
+     * @return - how many calls were rejected because the limit was reached
+     */
+    public long getRejectedCallCount() {
+        return rejectedCalls.get();
+    }
+
+    /**
+     * The right to send one call.
+     */
+    public class Permit {
+
+        private final int inFlightAtStart;
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Ends the call and adjusts the limit with its round trip time.
+         *
+         * @param dropped - true when the call failed because the service is overloaded
+         */
+        public void release(long rttNanos, boolean dropped) {
+            if (ended.compareAndSet(false, true)) {
+                onSample(rttNanos, inFlightAtStart, dropped);
+            }
+        }
+
+        /**
+         * Ends a call that says nothing about the service, it was cancelled or never sent.
+         */
+        public void cancel() {
+            if (ended.compareAndSet(false, true)) {
+                onCancel();
+            }
+        }
+    }
+
+    private class Waiter {
+
+        static final int WAITING = 0;
+        static final int GRANTED = 1;
+        static final int TIMED_OUT = 2;
+        static final int CANCELLED = 3;
+
+        final MonoSink<Permit> sink;
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        volatile Permit permit;
+
+        Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+    }
+
+    public static class Builder {
+
+        private final String name;
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        private Duration maxWait = Duration.ZERO;
+        private int maxQueueSize = 100;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * The limit before any round trip time is known, 20 by default.
+         */
+        public Builder initialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        public Builder minLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        public Builder maxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * How long a call over the limit waits for a permit, zero by default, which rejects it right away.
+         */
+        public Builder maxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        /**
+         * How many calls may wait for a permit, 100 by default.
+         */
+        public Builder maxQueueSize(int maxQueueSize) {
+            this.maxQueueSize = maxQueueSize;
+            return this;
+        }
+
+        public AdaptiveConcurrencyLimiter build() {
+            return new AdaptiveConcurrencyLimiter(this);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.exception.CircuitBreakerOpenException;
+import com.learnwiremock.exception.MovieErrorResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Guards the exchanges with one {@link MovieCircuitBreaker} for reads (GET) and one for writes, so a failing write
+ * endpoint does not stop the reads and the other way round. Rejected calls fail with a {@link CircuitBreakerOpenException}.
+ * <p>
+ * 5xx responses, connection failures and timeouts count as failures, 4xx responses as successes. A call is timed
+ * until its response status arrives.
+ */
+public class CircuitBreakerFilter implements ExchangeFilterFunction {
+
+    private final MovieCircuitBreaker reads;
+    private final MovieCircuitBreaker writes;
+
+    public CircuitBreakerFilter(MovieCircuitBreaker reads, MovieCircuitBreaker writes) {
+        this.reads = reads;
+        this.writes = writes;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        MovieCircuitBreaker circuitBreaker = request.method() == HttpMethod.GET ? reads : writes;
+        return Mono.defer(() -> {
+            long permission = circuitBreaker.tryAcquirePermission();
+            if (permission == MovieCircuitBreaker.NOT_PERMITTED) {
+                return Mono.error(new CircuitBreakerOpenException(circuitBreaker.getName()));
+            }
+            long start = System.nanoTime();
+            return next.exchange(request)
+                    .doOnNext(response -> circuitBreaker.onResult(permission, System.nanoTime() - start, response.rawStatusCode() >= 500))
+                    .doOnError(ex -> circuitBreaker.onResult(permission, System.nanoTime() - start, isFailure(ex)))
+                    .doOnCancel(() -> circuitBreaker.releasePermission(permission));
+        });
+    }
+
+    static boolean isFailure(Throwable ex) {
+        if (ex instanceof MovieErrorResponse && ((MovieErrorResponse) ex).getStatusCode() != null) {
+            return ((MovieErrorResponse) ex).getStatusCode() >= 500;
+        }
+        if (ex instanceof WebClientResponseException) {
+            return ((WebClientResponseException) ex).getRawStatusCode() >= 500;
+        }
+        return true;
+    }
+
+    public MovieCircuitBreaker getReads() {
+        return reads;
+    }
+
+    public MovieCircuitBreaker getWrites() {
+        return writes;
+    }
+}
@@ -0,0 +1,39 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.exception.DeadlineExceededException;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * Gives each exchange what is left of the {@link Deadline} of its call, put into the Reactor context by
+ * {@link MovieDeadlines}, so a retry gets less time than the attempt before it. An exchange that has not received its
+ * response status by the deadline is cancelled and fails with a {@link DeadlineExceededException}, one that starts
+ * after the deadline is not sent at all. Exchanges without a deadline are passed on unchanged.
+ */
+public class DeadlineFilter implements ExchangeFilterFunction {
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.subscriberContext().flatMap(context -> {
+            Deadline deadline = context.getOrDefault(Deadline.class, null);
+            if (deadline == null) {
+                return next.exchange(request);
+            }
+            if (deadline.isExpired()) {
+                return Mono.error(expired(request, deadline));
+            }
+            return next.exchange(request)
+                    .timeout(deadline.remaining(), Mono.defer(() -> Mono.error(expired(request, deadline))));
+        });
+    }
+
+    private static DeadlineExceededException expired(ClientRequest request, Deadline deadline) {
+        String operation = request.attribute(MoviesRestClient.OPERATION_ATTRIBUTE)
+                .map(String::valueOf)
+                .orElseGet(() -> request.method().name() + " " + request.url().getPath());
+        return new DeadlineExceededException(operation, deadline.getTimeout());
+    }
+}
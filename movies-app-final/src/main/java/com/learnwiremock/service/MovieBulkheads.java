@@ -0,0 +1,37 @@
+package com.learnwiremock.service;
+
+/**
+ * Separate {@link MovieBulkhead}s for the reads by id, name and year, for the writes and for the catalog download of
+ * retrieveAllMovies and streamAllMovies, so slow writes or catalog downloads cannot starve the reads.
+ * <p>
+ * The calls share one connection pool. Keep the sum of the three limits at or below its maxConnections, then every
+ * group always finds a connection for its permitted calls.
+ */
+public class MovieBulkheads {
+
+    public static final int DEFAULT_READS = 50;
+    public static final int DEFAULT_WRITES = 10;
+    public static final int DEFAULT_ALL_MOVIES = 2;
+
+    private final MovieBulkhead reads;
+    private final MovieBulkhead writes;
+    private final MovieBulkhead allMovies;
+
+    public MovieBulkheads(int reads, int writes, int allMovies) {
+        this.reads = new MovieBulkhead("reads", reads);
+        this.writes = new MovieBulkhead("writes", writes);
+        this.allMovies = new MovieBulkhead("allMovies", allMovies);
+    }
+
+    public MovieBulkhead getReads() {
+        return reads;
+    }
+
+    public MovieBulkhead getWrites() {
+        return writes;
+    }
+
+    public MovieBulkhead getAllMovies() {
+        return allMovies;
+    }
+}
@@ -0,0 +1,256 @@
+package com.learnwiremock.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A count based circuit breaker for one group of calls to the movies service.
+ * <p>
+ * CLOSED - calls are permitted and their outcomes recorded in a sliding window of the last slidingWindowSize calls.
+ * Once at least minimumNumberOfCalls are recorded and the failure rate or the slow call rate reaches its threshold,
+ * the breaker opens.
+ * <br>
+ * OPEN - calls are rejected without a request for waitDurationInOpenState, then the breaker turns half open.
+ * <br>
+ * HALF_OPEN - permittedCallsInHalfOpenState trial calls are let through, the others are rejected. If the trial calls
+ * are below both thresholds the breaker closes with an empty window, otherwise it opens again.
+ * <p>
+ * Which calls are failures is decided by the caller, see {@link CircuitBreakerFilter}.
+ * <p>
+ * Every transition starts a new generation and a permission carries the generation it was acquired in. Calls that end
+ * in a later generation, e.g. a slow call admitted while CLOSED that completes once the breaker is HALF_OPEN, are
+ * neither recorded nor hand their permission back.
+ */
+@Slf4j
+public class MovieCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Returned by {@link #tryAcquirePermission()} when the call is rejected.
+     */
+    public static final long NOT_PERMITTED = -1;
+
+    private final String name;
+    private final float failureRateThreshold;
+    private final float slowCallRateThreshold;
+    private final long slowCallDurationNanos;
+    private final int minimumNumberOfCalls;
+    private final long waitDurationInOpenStateNanos;
+    private final int permittedCallsInHalfOpenState;
+
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int nextIndex;
+    private int recordedCalls;
+    private int failureCount;
+    private int slowCallCount;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenCalls;
+    private int halfOpenFailures;
+    private int halfOpenSlowCalls;
+    private final AtomicLong rejectedCalls = new AtomicLong();
+
+    private MovieCircuitBreaker(Builder builder) {
+        this.name = builder.name;
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.slowCallRateThreshold = builder.slowCallRateThreshold;
+        this.slowCallDurationNanos = builder.slowCallDuration.toNanos();
+        this.minimumNumberOfCalls = Math.min(builder.minimumNumberOfCalls, builder.slidingWindowSize);
+        this.waitDurationInOpenStateNanos = builder.waitDurationInOpenState.toNanos();
+        this.permittedCallsInHalfOpenState = builder.permittedCallsInHalfOpenState;
+        this.failedCalls = new boolean[builder.slidingWindowSize];
+        this.slowCalls = new boolean[builder.slidingWindowSize];
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * @return - {@link #NOT_PERMITTED} when the call is rejected, otherwise the permission the call must be ended with,
+     * through {@link #onResult} or {@link #releasePermission}
+     */
+    public synchronized long tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < waitDurationInOpenStateNanos) {
+                rejectedCalls.incrementAndGet();
+                return NOT_PERMITTED;
+            }
+            transitionTo(State.HALF_OPEN);
+            halfOpenPermits = permittedCallsInHalfOpenState;
+            halfOpenCalls = 0;
+            halfOpenFailures = 0;
+            halfOpenSlowCalls = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                rejectedCalls.incrementAndGet();
+                return NOT_PERMITTED;
+            }
+            halfOpenPermits--;
+        }
+        return generation;
+    }
+
+    /**
+     * Records the outcome of a permitted call, unless the breaker changed state since the permission was acquired.
+     */
+    public synchronized void onResult(long permission, long durationNanos, boolean failed) {
+        if (permission != generation) {
+            return;
+        }
+        boolean slow = durationNanos >= slowCallDurationNanos;
+        if (state == State.HALF_OPEN) {
+            halfOpenCalls++;
+            halfOpenFailures += failed ? 1 : 0;
+            halfOpenSlowCalls += slow ? 1 : 0;
+            if (halfOpenCalls >= permittedCallsInHalfOpenState) {
+                if (exceedsThresholds(halfOpenFailures, halfOpenSlowCalls, halfOpenCalls)) {
+                    open();
+                } else {
+                    close();
+                }
+            }
+        } else if (state == State.CLOSED) {
+            if (recordedCalls == failedCalls.length) {
+                failureCount -= failedCalls[nextIndex] ? 1 : 0;
+                slowCallCount -= slowCalls[nextIndex] ? 1 : 0;
+            } else {
+                recordedCalls++;
+            }
+            failedCalls[nextIndex] = failed;
+            slowCalls[nextIndex] = slow;
+            failureCount += failed ? 1 : 0;
+            slowCallCount += slow ? 1 : 0;
+            nextIndex = (nextIndex + 1) % failedCalls.length;
+            if (recordedCalls >= minimumNumberOfCalls && exceedsThresholds(failureCount, slowCallCount, recordedCalls)) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Ends a permitted call that was cancelled before it had an outcome. A half open trial permit is handed out again,
+     * unless the breaker changed state since the permission was acquired.
+     */
+    public synchronized void releasePermission(long permission) {
+        if (permission == generation && state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    private boolean exceedsThresholds(int failures, int slowCalls, int calls) {
+        return failures * 100f >= failureRateThreshold * calls
+                || slowCalls * 100f >= slowCallRateThreshold * calls;
+    }
+
+    private void open() {
+        transitionTo(State.OPEN);
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        transitionTo(State.CLOSED);
+        nextIndex = 0;
+        recordedCalls = 0;
+        failureCount = 0;
+        slowCallCount = 0;
+    }
+
+    private void transitionTo(State newState) {
+        log.warn("Circuit breaker {} changed from {} to {}", name, state, newState);
+        state = newState;
+        generation++;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return - how many calls were rejected while the breaker was open or half open
+     */
+    public long getRejectedCallCount() {
+        return rejectedCalls.get();
+    }
+
+    public static class Builder {
+
+        private final String name;
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 100;
+        private Duration slowCallDuration = Duration.ofSeconds(2);
+        private int slidingWindowSize = 20;
+        private int minimumNumberOfCalls = 10;
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+        private int permittedCallsInHalfOpenState = 3;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * The percentage of failed calls in the window that opens the breaker, 50 by default.
+         */
+        public Builder failureRateThreshold(float failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * The percentage of calls slower than {@link #slowCallDuration(Duration)} that opens the breaker, 100 by default.
+         */
+        public Builder slowCallRateThreshold(float slowCallRateThreshold) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            return this;
+        }
+
+        /**
+         * Calls that take at least this long are slow, 2 seconds by default.
+         */
+        public Builder slowCallDuration(Duration slowCallDuration) {
+            this.slowCallDuration = slowCallDuration;
+            return this;
+        }
+
+        public Builder slidingWindowSize(int slidingWindowSize) {
+            this.slidingWindowSize = slidingWindowSize;
+            return this;
+        }
+
+        /**
+         * The rates are only evaluated once this many calls are in the window, 10 by default.
+         */
+        public Builder minimumNumberOfCalls(int minimumNumberOfCalls) {
+            this.minimumNumberOfCalls = minimumNumberOfCalls;
+            return this;
+        }
+
+        public Builder waitDurationInOpenState(Duration waitDurationInOpenState) {
+            this.waitDurationInOpenState = waitDurationInOpenState;
+            return this;
+        }
+
+        public Builder permittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+            this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+            return this;
+        }
+
+        public MovieCircuitBreaker build() {
+            return new MovieCircuitBreaker(this);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.learnwiremock.service;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.ConnectionObserver;
+import reactor.netty.channel.BootstrapHandlers;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A named, fixed size connection pool for the movies service.
+ * <p>
+ * Reactor Netty 0.8 only lets a fixed pool be sized and given an acquire timeout, so this wraps
+ * {@link ConnectionProvider#fixed(String, int, long)} and adds the rest:
+ * a bound on the acquires waiting for a connection, and closing pooled connections once they have been idle for
+ * longer than the max idle time or open for longer than the max life time. Connections are only ever closed while
+ * they sit idle in the pool, a connection that is serving a request is left alone until it is released.
+ * <p>
+ * HTTP/1.1 carries one request at a time per connection, so the pool size is what bounds the sockets a fan-out of
+ * concurrent calls opens: calls beyond it wait for a connection to be released instead of opening another one.
+ * {@link #getOpenedConnectionCount()} shows how many were opened.
+ */
+@Slf4j
+public class MovieConnectionProvider implements ConnectionProvider {
+
+    private static final AttributeKey<Long> CREATED_AT = AttributeKey.valueOf("movieapp.createdAt");
+    private static final AttributeKey<Long> RELEASED_AT = AttributeKey.valueOf("movieapp.releasedAt");
+
+    private final ConnectionProvider delegate;
+    private final String name;
+    private final int pendingAcquireMaxCount;
+    private final long maxIdleTimeNanos;
+    private final long maxLifeTimeNanos;
+    private final AtomicInteger pendingAcquires = new AtomicInteger();
+    private final AtomicLong evictedConnections = new AtomicLong();
+    private final AtomicLong openedConnections = new AtomicLong();
+
+    private MovieConnectionProvider(Builder builder) {
+        this.name = builder.name;
+        this.delegate = ConnectionProvider.fixed(builder.name, builder.maxConnections, builder.acquireTimeout.toMillis());
+        this.pendingAcquireMaxCount = builder.pendingAcquireMaxCount;
+        this.maxIdleTimeNanos = builder.maxIdleTime == null ? -1 : builder.maxIdleTime.toNanos();
+        this.maxLifeTimeNanos = builder.maxLifeTime == null ? -1 : builder.maxLifeTime.toNanos();
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    @Override
+    public Mono<? extends Connection> acquire(Bootstrap bootstrap) {
+        if (pendingAcquireMaxCount < 0) {
+            return delegate.acquire(withLifecycleObserver(bootstrap));
+        }
+        return Mono.defer(() -> {
+            if (pendingAcquires.incrementAndGet() > pendingAcquireMaxCount) {
+                pendingAcquires.decrementAndGet();
+                return Mono.error(new IllegalStateException("Pending acquire queue of the connection pool " + name
+                        + " has reached its maximum size of " + pendingAcquireMaxCount));
+            }
+            return delegate.acquire(withLifecycleObserver(bootstrap))
+                    .doFinally(signalType -> pendingAcquires.decrementAndGet());
+        });
+    }
+
+    /**
+     * @return - how many pooled connections were closed for exceeding the max idle time or the max life time
+     */
+    public long getEvictedConnectionCount() {
+        return evictedConnections.get();
+    }
+
+    /**
+     * @return - how many connections the pool has opened so far, including those closed since
+     */
+    public long getOpenedConnectionCount() {
+        return openedConnections.get();
+    }
+
+    @Override
+    public void disposeWhen(SocketAddress address) {
+        delegate.disposeWhen(address);
+    }
+
+    @Override
+    public Mono<Void> disposeLater() {
+        return delegate.disposeLater();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return delegate.isDisposed();
+    }
+
+    @Override
+    public int maxConnections() {
+        return delegate.maxConnections();
+    }
+
+    private Bootstrap withLifecycleObserver(Bootstrap bootstrap) {
+        Bootstrap observed = bootstrap.clone();
+        ConnectionObserver owner = BootstrapHandlers.connectionObserver(observed);
+        BootstrapHandlers.connectionObserver(observed, owner.then(this::onStateChange));
+        return observed;
+    }
+
+    private void onStateChange(Connection connection, ConnectionObserver.State state) {
+        Channel channel = connection.channel();
+        if (state == ConnectionObserver.State.CONNECTED) {
+            markCreated(channel);
+        } else if (state == ConnectionObserver.State.CONFIGURED || state == ConnectionObserver.State.ACQUIRED) {
+            markCreated(channel);
+            channel.attr(RELEASED_AT).set(null);
+        } else if (state == ConnectionObserver.State.RELEASED && (maxIdleTimeNanos >= 0 || maxLifeTimeNanos >= 0)) {
+            channel.attr(RELEASED_AT).set(System.nanoTime());
+            evictIfExpired(channel);
+        }
+    }
+
+    private void markCreated(Channel channel) {
+        if (channel.attr(CREATED_AT).setIfAbsent(System.nanoTime()) == null) {
+            openedConnections.incrementAndGet();
+        }
+    }
+
+    /**
+     * Closes the channel when it is idle and past one of its limits, otherwise checks it again at its next deadline.
+     * Runs on the channel's event loop, the same thread that hands the channel out of the pool.
+     */
+    private void evictIfExpired(Channel channel) {
+        Long releasedAt = channel.attr(RELEASED_AT).get();
+        if (releasedAt == null || !channel.isActive()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long nextCheck = Long.MAX_VALUE;
+        if (maxIdleTimeNanos >= 0) {
+            nextCheck = Math.min(nextCheck, maxIdleTimeNanos - (now - releasedAt));
+        }
+        if (maxLifeTimeNanos >= 0) {
+            Long createdAt = channel.attr(CREATED_AT).get();
+            nextCheck = Math.min(nextCheck, maxLifeTimeNanos - (now - (createdAt != null ? createdAt : now)));
+        }
+        if (nextCheck <= 0) {
+            evictedConnections.incrementAndGet();
+            log.debug("Closing idle connection {} of the connection pool {}", channel, name);
+            channel.close();
+            return;
+        }
+        channel.eventLoop().schedule(() -> {
+            if (releasedAt.equals(channel.attr(RELEASED_AT).get())) {
+                evictIfExpired(channel);
+            }
+        }, nextCheck, TimeUnit.NANOSECONDS);
+    }
+
+    public static class Builder {
+
+        private final String name;
+        private int maxConnections = ConnectionProvider.DEFAULT_POOL_MAX_CONNECTIONS;
+        private int pendingAcquireMaxCount = -1;
+        private Duration acquireTimeout = Duration.ofMillis(ConnectionProvider.DEFAULT_POOL_ACQUIRE_TIMEOUT);
+        private Duration maxIdleTime;
+        private Duration maxLifeTime;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        public Builder maxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Bounds the acquires waiting for a connection, including those waiting on a new connection to be opened.
+         * Acquires over the bound fail straight away instead of queueing, -1 (the default) means unbounded.
+         */
+        public Builder pendingAcquireMaxCount(int pendingAcquireMaxCount) {
+            this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+            return this;
+        }
+
+        public Builder acquireTimeout(Duration acquireTimeout) {
+            this.acquireTimeout = acquireTimeout;
+            return this;
+        }
+
+        /**
+         * Closes pooled connections that have not been used for this long, null (the default) keeps them open.
+         */
+        public Builder maxIdleTime(Duration maxIdleTime) {
+            this.maxIdleTime = maxIdleTime;
+            return this;
+        }
+
+        /**
+         * Closes pooled connections that have been open for this long once they are released, null (the default) keeps them open.
+         */
+        public Builder maxLifeTime(Duration maxLifeTime) {
+            this.maxLifeTime = maxLifeTime;
+            return this;
+        }
+
+        public MovieConnectionProvider build() {
+            return new MovieConnectionProvider(this);
+        }
+    }
+}
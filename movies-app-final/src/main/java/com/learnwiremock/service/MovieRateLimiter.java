@@ -0,0 +1,165 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.exception.RateLimitExceededException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket that lets through ratePerSecond calls per second on average and bursts of up to burst calls.
+ * <p>
+ * The bucket is kept as the time the next call would be due if calls came at exactly the rate (GCRA), a single
+ * {@link AtomicLong} updated without locking. A call that finds the bucket empty waits for its token, at most maxWait,
+ * or fails right away with a {@link RateLimitExceededException}. The wait is a timer, no thread is blocked on the
+ * reactive path, and the blocking methods of the client wait no longer than maxWait either.
+ * <p>
+ * {@link #pause(Duration)} empties the bucket until a given time, for example when the service answered with a
+ * Retry-After header. After the pause calls resume at the rate, the burst has to be saved up again.
+ */
+public class MovieRateLimiter {
+
+    private final String name;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final long maxWaitNanos;
+    private final long maxPauseNanos;
+
+    private final AtomicLong theoreticalArrival;
+    private final AtomicLong rejectedCalls = new AtomicLong();
+    private final AtomicLong pauses = new AtomicLong();
+
+    private MovieRateLimiter(Builder builder) {
+        this.name = builder.name;
+        this.emissionIntervalNanos = Math.max(1, (long) (1_000_000_000L / builder.ratePerSecond));
+        this.burstToleranceNanos = (Math.max(1, builder.burst) - 1) * emissionIntervalNanos;
+        this.maxWaitNanos = builder.maxWait.toNanos();
+        this.maxPauseNanos = builder.maxPause.toNanos();
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * Completes once the call may go ahead, right away while the bucket has tokens.
+     */
+    public Mono<Void> acquire() {
+        return Mono.defer(() -> {
+            long waitNanos = reserve();
+            if (waitNanos < 0) {
+                rejectedCalls.incrementAndGet();
+                return Mono.error(new RateLimitExceededException(name, Duration.ofNanos(maxWaitNanos)));
+            }
+            return waitNanos == 0 ? Mono.empty() : Mono.delay(Duration.ofNanos(waitNanos)).then();
+        });
+    }
+
+    /**
+     * Takes a token.
+     *
+     * @return - how long the call has to wait for it, -1 when that is longer than maxWait and no token was taken
+     */
+    long reserve() {
+        while (true) {
+            long now = System.nanoTime();
+            long arrival = theoreticalArrival.get();
+            long base = arrival - now > 0 ? arrival : now;
+            long waitNanos = base - burstToleranceNanos - now;
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, base + emissionIntervalNanos)) {
+                return Math.max(0, waitNanos);
+            }
+        }
+    }
+
+    /**
+     * Lets no call through for the given time, capped at maxPause. Calls already waiting for their token are not held back.
+     */
+    public void pause(Duration duration) {
+        long pauseNanos = Math.min(maxPauseNanos, duration.toNanos());
+        if (pauseNanos <= 0) {
+            return;
+        }
+        // the first call after the pause is due right at its end
+        long resumeArrival = System.nanoTime() + pauseNanos + burstToleranceNanos;
+        long arrival;
+        do {
+            arrival = theoreticalArrival.get();
+            if (arrival - resumeArrival >= 0) {
+                return;
+            }
+        } while (!theoreticalArrival.compareAndSet(arrival, resumeArrival));
+        pauses.incrementAndGet();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return - how many calls were rejected because they would have waited longer than maxWait
+     */
+    public long getRejectedCallCount() {
+        return rejectedCalls.get();
+    }
+
+    /**
+     * @return - how many times the bucket was paused
+     */
+    public long getPauseCount() {
+        return pauses.get();
+    }
+
+    public static class Builder {
+
+        private final String name;
+        private double ratePerSecond = 100;
+        private int burst = 10;
+        private Duration maxWait = Duration.ofMillis(500);
+        private Duration maxPause = Duration.ofSeconds(30);
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * The calls per second let through on average, 100 by default.
+         */
+        public Builder ratePerSecond(double ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+            return this;
+        }
+
+        /**
+         * How many calls may go out at once after a quiet period, 10 by default.
+         */
+        public Builder burst(int burst) {
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * How long a call waits for its token, 500ms by default, zero rejects calls that find the bucket empty.
+         */
+        public Builder maxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        /**
+         * The longest pause taken from a Retry-After header, 30 seconds by default.
+         */
+        public Builder maxPause(Duration maxPause) {
+            this.maxPause = maxPause;
+            return this;
+        }
+
+        public MovieRateLimiter build() {
+            return new MovieRateLimiter(this);
+        }
+    }
+}
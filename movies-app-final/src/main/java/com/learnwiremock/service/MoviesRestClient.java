@@ -1,14 +1,51 @@
 package com.learnwiremock.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.learnwiremock.constants.MoviesAppConstants;
 import com.learnwiremock.dto.Movie;
+import com.learnwiremock.dto.MoviesByIdsResponse;
+import com.learnwiremock.exception.BulkheadFullException;
+import com.learnwiremock.exception.CircuitBreakerOpenException;
+import com.learnwiremock.exception.ConcurrencyLimitExceededException;
+import com.learnwiremock.exception.DeadlineExceededException;
 import com.learnwiremock.exception.MovieErrorResponse;
+import com.learnwiremock.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
-
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static com.learnwiremock.constants.MoviesAppConstants.MOVIE_BY_ID_PATH_PARAM_V1;
 
@@ -16,171 +53,791 @@ import static com.learnwiremock.constants.MoviesAppConstants.MOVIE_BY_ID_PATH_PA
 @Slf4j
 public class MoviesRestClient {
 
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+    public static final MediaType APPLICATION_NDJSON = MediaType.valueOf("application/x-ndjson");
+    /**
+     * The request attribute that names the client operation an exchange belongs to, for example retrieveMovieById.
+     */
+    public static final String OPERATION_ATTRIBUTE = MoviesRestClient.class.getName() + ".operation";
+
+    /**
+     * How many movies {@link #streamAllMovies()} requests ahead of the consumer.
+     */
+    private static final int STREAM_BATCH_SIZE = 256;
+    private static final ResolvableType MOVIE_TYPE = ResolvableType.forClass(Movie.class);
+
+    /**
+     * The default codecs of Spring 5.1 do not read application/x-ndjson, a Jackson decoder splits it into movies as the lines arrive.
+     */
+    private static final Jackson2JsonDecoder NDJSON_DECODER = new Jackson2JsonDecoder(Jackson2ObjectMapperBuilder.json().build(), APPLICATION_NDJSON);
+
     private WebClient webClient;
+    private final Jackson2JsonDecoder ndjsonDecoder;
+    private final MovieCache movieCache;
+    private final NotFoundCache notFoundCache;
+    private final boolean conditionalGet;
+    private final MoviesClientMetrics metrics;
+    private final FailureLog failureLog;
+    private final MovieHedging hedging;
+    private final MovieBulkhead readBulkhead;
+    private final MovieBulkhead writeBulkhead;
+    private final MovieBulkhead allMoviesBulkhead;
+    private final MovieDeadlines deadlines;
+    private final AtomicReference<CatalogSnapshot> catalogSnapshot = new AtomicReference<>();
+    private final SingleFlight<Integer, Movie> movieByIdCalls = new SingleFlight<>();
+    private final SingleFlight<String, List<Movie>> movieListCalls = new SingleFlight<>();
 
     public MoviesRestClient(WebClient webClient) {
-        this.webClient = webClient;
+        this(builder().webClient(webClient));
+    }
+
+    private MoviesRestClient(Builder builder) {
+        this.webClient = builder.webClient;
+        this.ndjsonDecoder = builder.objectMapper != null ? new Jackson2JsonDecoder(builder.objectMapper, APPLICATION_NDJSON) : NDJSON_DECODER;
+        this.movieCache = builder.movieCache;
+        this.notFoundCache = builder.notFoundCache;
+        this.conditionalGet = builder.conditionalGet;
+        this.metrics = new MoviesClientMetrics(builder.meterRegistry);
+        this.failureLog = new FailureLog(log, builder.failureLogInterval);
+        this.hedging = builder.hedging;
+        this.deadlines = builder.deadlines;
+        if (builder.concurrencyLimitFilter != null) {
+            metrics.monitor(builder.concurrencyLimitFilter.getLimiter());
+        }
+        new LinkedHashSet<>(builder.rateLimiters.values()).forEach(metrics::monitor);
+        metrics.monitor("movieById", movieByIdCalls);
+        metrics.monitor("movieList", movieListCalls);
+        if (movieCache != null) {
+            metrics.monitor(movieCache);
+        }
+        if (notFoundCache != null) {
+            metrics.monitor(notFoundCache);
+        }
+        MovieBulkheads bulkheads = builder.bulkheads;
+        this.readBulkhead = bulkheads != null ? bulkheads.getReads() : null;
+        this.writeBulkhead = bulkheads != null ? bulkheads.getWrites() : null;
+        this.allMoviesBulkhead = bulkheads != null ? bulkheads.getAllMovies() : null;
+        if (bulkheads != null) {
+            metrics.monitor(readBulkhead);
+            metrics.monitor(writeBulkhead);
+            metrics.monitor(allMoviesBulkhead);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
     }
 
     public List<Movie> retrieveAllMovies() {
+        return retrieveAllMoviesFlux()
+                .collectList()
+                .block();
+    }
+
+    /**
+     * Non blocking version of {@link #retrieveAllMovies()}.
+     * Errors are signalled as {@link MovieErrorResponse}.
+     */
+    public Flux<Movie> retrieveAllMoviesFlux() {
+        if (conditionalGet) {
+            return metrics.timed("retrieveAllMovies", retrieveAllMoviesConditionally()
+                    .flatMapIterable(movieList -> movieList));
+        }
 
         //http://localhost:8081/movieservice/v1/allMovies
-        try {
-        return webClient.get().uri(MoviesAppConstants.GET_ALL_MOVIES_V1)
+        return metrics.timed("retrieveAllMovies", deadlines.execute("retrieveAllMovies", withBulkhead(allMoviesBulkhead, webClient.get().uri(MoviesAppConstants.GET_ALL_MOVIES_V1)
+                .attribute(OPERATION_ATTRIBUTE, "retrieveAllMovies")
                 .retrieve()
-                .bodyToFlux(Movie.class)
-                .collectList()
+                .bodyToFlux(Movie.class)))
+                .onErrorMap(ex -> toMovieErrorResponse("retrieveAllMovies", ex)));
+    }
+
+    /**
+     * Revalidates the last catalog with If-None-Match / If-Modified-Since.
+     * On a 304 the last catalog is returned as is, without reading or decoding a response body.
+     */
+    private Mono<List<Movie>> retrieveAllMoviesConditionally() {
+        return Mono.defer(() -> {
+            CatalogSnapshot snapshot = catalogSnapshot.get();
+            return deadlines.execute("retrieveAllMovies", withBulkhead(allMoviesBulkhead, webClient.get().uri(MoviesAppConstants.GET_ALL_MOVIES_V1)
+                    .attribute(OPERATION_ATTRIBUTE, "retrieveAllMovies")
+                    .headers(headers -> {
+                        if (snapshot != null) {
+                            snapshot.addValidators(headers);
+                        }
+                    })
+                    .exchange()
+                    .flatMap(response -> {
+                        if (snapshot != null && response.statusCode() == HttpStatus.NOT_MODIFIED) {
+                            return response.bodyToMono(Void.class)
+                                    .thenReturn(snapshot.getMovies());
+                        }
+                        if (response.statusCode().isError()) {
+                            return toResponseException(response).flatMap(Mono::error);
+                        }
+                        return response.bodyToFlux(Movie.class)
+                                .collectList()
+                                .doOnNext(movieList -> catalogSnapshot.set(CatalogSnapshot.of(response.headers().asHttpHeaders(), movieList)));
+                    })))
+                    .onErrorMap(ex -> toMovieErrorResponse("retrieveAllMovies", ex));
+        });
+    }
+
+    /**
+     * Streams the catalog without collecting it into a list first, movies are decoded as the response arrives and
+     * only as fast as the caller consumes them.
+     * The returned {@link Stream} must be closed, closing it early cancels the download.
+     *
+     * @return - Stream<Movie>, errors are thrown as {@link MovieErrorResponse} while iterating
+     */
+    public Stream<Movie> streamAllMovies() {
+        return streamAllMoviesFlux()
+                .toStream(STREAM_BATCH_SIZE);
+    }
+
+    /**
+     * Non blocking version of {@link #streamAllMovies()}.
+     * Accepts both a JSON array and newline delimited JSON ({@code application/x-ndjson}), whichever the service sends.
+     */
+    public Flux<Movie> streamAllMoviesFlux() {
+        return metrics.timed("streamAllMovies", deadlines.execute("streamAllMovies", withBulkhead(allMoviesBulkhead, webClient.get().uri(MoviesAppConstants.GET_ALL_MOVIES_V1)
+                .attribute(OPERATION_ATTRIBUTE, "streamAllMovies")
+                .accept(APPLICATION_NDJSON, MediaType.APPLICATION_JSON)
+                .exchange()
+                .flatMapMany(response -> {
+                    if (response.statusCode().isError()) {
+                        return toResponseException(response).flatMapMany(Mono::error);
+                    }
+                    boolean ndjson = response.headers().contentType()
+                            .filter(APPLICATION_NDJSON::isCompatibleWith)
+                            .isPresent();
+                    if (ndjson) {
+                        return ndjsonDecoder.decode(response.body(BodyExtractors.toDataBuffers()), MOVIE_TYPE, APPLICATION_NDJSON, Collections.emptyMap())
+                                .cast(Movie.class);
+                    }
+                    return response.bodyToFlux(Movie.class);
+                })))
+                .onErrorMap(ex -> toMovieErrorResponse("streamAllMovies", ex)));
+    }
+
+    private static <T> Mono<T> withBulkhead(MovieBulkhead bulkhead, Mono<T> call) {
+        return bulkhead != null ? bulkhead.execute(call) : call;
+    }
+
+    private static <T> Flux<T> withBulkhead(MovieBulkhead bulkhead, Flux<T> call) {
+        return bulkhead != null ? bulkhead.execute(call) : call;
+    }
+
+    /**
+     * Builds the same exception {@code retrieve()} signals for a 4xx/5xx, for calls that need {@code exchange()}.
+     */
+    private static Mono<WebClientResponseException> toResponseException(ClientResponse response) {
+        return response.bodyToMono(byte[].class)
+                .defaultIfEmpty(new byte[0])
+                .map(body -> WebClientResponseException.create(response.rawStatusCode(),
+                        response.statusCode().getReasonPhrase(),
+                        response.headers().asHttpHeaders(),
+                        body,
+                        response.headers().contentType().map(MediaType::getCharset).orElse(StandardCharsets.ISO_8859_1)));
+    }
+
+    public Movie retrieveMovieById(Integer movieId) {
+        return retrieveMovieByIdMono(movieId)
                 .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in retrieveAllMovies. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in retrieveAllMovies and the message is {} ", ex.getMessage() + ex);
-            throw new MovieErrorResponse(ex);
+    }
+
+    /**
+     * Non blocking version of {@link #retrieveMovieById(Integer)}.
+     * Served from the movie cache when one is configured, concurrent lookups of the same id share a single request.
+     */
+    public Mono<Movie> retrieveMovieByIdMono(Integer movieId) {
+        Mono<Movie> lookup = withNotFoundCache("movieId:" + movieId, fetchMovieById(movieId));
+        if (movieCache == null) {
+            return metrics.timed("retrieveMovieById", lookup);
         }
+        return metrics.timed("retrieveMovieById", Mono.defer(() -> {
+            Movie cachedMovie = movieCache.get(movieId);
+            return cachedMovie != null ? Mono.just(cachedMovie) : lookup;
+        }));
     }
 
-    public Movie retrieveMovieById(Integer movieId) {
+    private Mono<Movie> fetchMovieById(Integer movieId) {
 
         //http://localhost:8081/movieservice/v1/movie/100
-        try {
-            return webClient.get().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId)
-                    .retrieve()
-                    .bodyToMono(Movie.class)
-                    .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in retrieveMovieById. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in retrieveMovieById and the message is {} ", ex);
-            throw new MovieErrorResponse(ex);
-        }
+        Supplier<Mono<Movie>> call = () -> webClient.get().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId)
+                .attribute(OPERATION_ATTRIBUTE, "retrieveMovieById")
+                .retrieve()
+                .bodyToMono(Movie.class);
+        // every caller waits up to its own deadline, the shared lookup runs under the timeout of the operation
+        return deadlines.execute("retrieveMovieById", movieByIdCalls.execute(movieId, () -> {
+            // read before the request, an update or delete that completes while it is in flight keeps the old movie out of the cache
+            long generation = movieCache != null ? movieCache.generation(movieId) : 0;
+            return deadlines.executeShared("retrieveMovieById", withBulkhead(readBulkhead, hedging != null ? hedging.hedge(call) : call.get()))
+                    .doOnNext(movie -> {
+                        if (movieCache != null) {
+                            movieCache.put(movieId, movie, generation);
+                        }
+                    });
+        }))
+                .onErrorMap(ex -> toMovieErrorResponse("retrieveMovieById", ex));
+    }
+
+    /**
+     * Retrieves several movies by id, issuing at most {@link #DEFAULT_MAX_IN_FLIGHT} requests at a time.
+     */
+    public MoviesByIdsResponse retrieveMoviesByIds(Collection<Integer> movieIds) {
+        return retrieveMoviesByIds(movieIds, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public MoviesByIdsResponse retrieveMoviesByIds(Collection<Integer> movieIds, int maxInFlight) {
+        return retrieveMoviesByIdsMono(movieIds, maxInFlight)
+                .block();
+    }
+
+    /**
+     * Retrieves several movies by id concurrently.
+     * Duplicate ids are requested only once and a failed lookup is reported in {@link MoviesByIdsResponse#getFailures()}
+     * instead of failing the whole batch.
+     *
+     * @param movieIds    - the ids to look up
+     * @param maxInFlight - the maximum number of requests in flight at any time
+     */
+    public Mono<MoviesByIdsResponse> retrieveMoviesByIdsMono(Collection<Integer> movieIds, int maxInFlight) {
+        return metrics.timed("retrieveMoviesByIds", Mono.defer(() -> {
+            MoviesByIdsResponse response = new MoviesByIdsResponse();
+            return Flux.fromIterable(new LinkedHashSet<>(movieIds))
+                    .filter(Objects::nonNull)
+                    .flatMap(movieId -> retrieveMovieByIdMono(movieId)
+                            .doOnNext(movie -> response.getMovies().put(movieId, movie))
+                            .onErrorResume(MovieErrorResponse.class, ex -> {
+                                response.getFailures().put(movieId, ex);
+                                return Mono.empty();
+                            }), maxInFlight)
+                    .then(Mono.just(response));
+        }));
     }
 
     public List<Movie> retrieveMoviebyName(String name) {
+        return retrieveMoviebyNameFlux(name)
+                .collectList()
+                .block();
+    }
 
-//        http://localhost:8081/movieservice/v1/movieName?movie_name=ABC
+    /**
+     * Non blocking version of {@link #retrieveMoviebyName(String)}.
+     * Concurrent lookups of the same name share a single request.
+     */
+    public Flux<Movie> retrieveMoviebyNameFlux(String name) {
 
-        String retrieveByNameUri = UriComponentsBuilder.fromUriString(MoviesAppConstants.MOVIE_BY_NAME_QUERY_PARAM_V1)
-                .queryParam("movie_name", name)
-                .buildAndExpand()
-                .toUriString();
-        try {
-            return webClient.get().uri(retrieveByNameUri)
-                    .retrieve()
-                    .bodyToFlux(Movie.class)
-                    .collectList()
-                    .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in retrieveMoviebyName. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in retrieveMoviebyName and the message is {} ", ex);
-            throw new MovieErrorResponse(ex);
-        }
+//        http://localhost:8081/movieservice/v1/movieName?movie_name=ABC
 
+        String retrieveByNameUri = movieByNameUri(name);
+        return metrics.timed("retrieveMoviebyName", withNotFoundCache("movie_name:" + name, deadlines.execute("retrieveMoviebyName", movieListCalls.execute(retrieveByNameUri, () -> deadlines.executeShared("retrieveMoviebyName", withBulkhead(readBulkhead, webClient.get().uri(retrieveByNameUri)
+                .attribute(OPERATION_ATTRIBUTE, "retrieveMoviebyName")
+                .retrieve()
+                .bodyToFlux(Movie.class)
+                .collectList()))))
+                .onErrorMap(ex -> toMovieErrorResponse("retrieveMoviebyName", ex)))
+                .flatMapIterable(movieList -> movieList));
     }
 
     public List<Movie> retrieveMoviebyYear(Integer movieYear) {
+        return retrieveMoviebyYearFlux(movieYear)
+                .collectList()
+                .block();
+    }
 
-//        http://localhost:8081/movieservice/v1/movieYear?year=1950
+    /**
+     * Non blocking version of {@link #retrieveMoviebyYear(Integer)}.
+     * Concurrent lookups of the same year share a single request.
+     */
+    public Flux<Movie> retrieveMoviebyYearFlux(Integer movieYear) {
 
-        String retrieveByNameUri = UriComponentsBuilder.fromUriString(MoviesAppConstants.MOVIE_BY_YEAR_QUERY_PARAM_V1)
-                .queryParam("year", movieYear)
-                .buildAndExpand()
-                .toUriString();
-        try {
-            return webClient.get().uri(retrieveByNameUri)
-                    .retrieve()
-                    .bodyToFlux(Movie.class)
-                    .collectList()
-                    .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in retrieveMoviebyYear. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in retrieveMoviebyYear and the message is {} ", ex);
-            throw new MovieErrorResponse(ex);
-        }
+//        http://localhost:8081/movieservice/v1/movieYear?year=1950
 
+        String retrieveByNameUri = movieByYearUri(movieYear);
+        return metrics.timed("retrieveMoviebyYear", withNotFoundCache("year:" + movieYear, deadlines.execute("retrieveMoviebyYear", movieListCalls.execute(retrieveByNameUri, () -> deadlines.executeShared("retrieveMoviebyYear", withBulkhead(readBulkhead, webClient.get().uri(retrieveByNameUri)
+                .attribute(OPERATION_ATTRIBUTE, "retrieveMoviebyYear")
+                .retrieve()
+                .bodyToFlux(Movie.class)
+                .collectList()))))
+                .onErrorMap(ex -> toMovieErrorResponse("retrieveMoviebyYear", ex)))
+                .flatMapIterable(movieList -> movieList));
     }
 
     public Movie addMovie( Movie newMovie){
+        return addMovieMono(newMovie)
+                .block();
+    }
+
+    /**
+     * Adds the movie with an {@value RetryFilter#IDEMPOTENCY_KEY} header, which makes the call safe to retry
+     * when a {@link RetryFilter} is configured. Use the same key for the same movie.
+     */
+    public Movie addMovie(Movie newMovie, String idempotencyKey) {
+        return addMovieMono(newMovie, idempotencyKey)
+                .block();
+    }
+
+    /**
+     * Non blocking version of {@link #addMovie(Movie)}.
+     */
+    public Mono<Movie> addMovieMono(Movie newMovie) {
+        return addMovieMono(newMovie, null);
+    }
+
+    /**
+     * Non blocking version of {@link #addMovie(Movie, String)}.
+     */
+    public Mono<Movie> addMovieMono(Movie newMovie, String idempotencyKey) {
 
         //http://localhost:8081/movieservice/v1/movie
-        try {
-        return webClient.post().uri(MoviesAppConstants.ADD_MOVIE_V1)
+        return metrics.timed("addMovie", deadlines.execute("addMovie", withBulkhead(writeBulkhead, webClient.post().uri(MoviesAppConstants.ADD_MOVIE_V1)
+                .attribute(OPERATION_ATTRIBUTE, "addMovie")
+                .headers(headers -> {
+                    if (idempotencyKey != null) {
+                        headers.set(RetryFilter.IDEMPOTENCY_KEY, idempotencyKey);
+                    }
+                })
                 .syncBody(newMovie)
                 .retrieve()
-                .bodyToMono(Movie.class)
+                .bodyToMono(Movie.class)))
+                .doOnNext(this::forgetNotFound)
+                .onErrorMap(ex -> toMovieErrorResponse("addMovie", ex)));
+    }
+
+
+    public Movie updateMovie(Integer movieId, Movie movie){
+        return updateMovieMono(movieId, movie)
                 .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in addMovie. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in addMovie and the message is {} ", ex);
-            throw new MovieErrorResponse(ex);
-        }
+    }
 
+    /**
+     * Non blocking version of {@link #updateMovie(Integer, Movie)}.
+     */
+    public Mono<Movie> updateMovieMono(Integer movieId, Movie movie) {
+        return metrics.timed("updateMovie", deadlines.execute("updateMovie", withBulkhead(writeBulkhead, webClient.put().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId)
+                .attribute(OPERATION_ATTRIBUTE, "updateMovie")
+                .syncBody(movie)
+                .retrieve()
+                .bodyToMono(Movie.class)))
+                .doOnSuccessOrError((updatedMovie, ex) -> invalidateCachedMovie(movieId))
+                .onErrorMap(ex -> toMovieErrorResponse("updateMovie", ex)));
+    }
+
+    public String deleteMovie(Integer movieId){
+        return deleteMovieMono(movieId)
+                .block();
     }
 
+    /**
+     * Non blocking version of {@link #deleteMovie(Integer)}.
+     */
+    public Mono<String> deleteMovieMono(Integer movieId) {
+        return metrics.timed("deleteMovie", deadlines.execute("deleteMovie", withBulkhead(writeBulkhead, webClient.delete().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId)
+                .attribute(OPERATION_ATTRIBUTE, "deleteMovie")
+                .retrieve()
+                .bodyToMono(String.class)))
+                .doOnSuccessOrError((response, ex) -> invalidateCachedMovie(movieId))
+                .onErrorMap(ex -> toMovieErrorResponse("deleteMovie", ex)));
+    }
 
-    public Movie updateMovie(Integer movieId, Movie movie){
-        try {
-            return webClient.put().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId)
-                    .syncBody(movie)
-                    .retrieve()
-                    .bodyToMono(Movie.class)
-                    .block();
-        }catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in updateMovie. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in updateMovie and the message is {} ", ex);
-            throw new MovieErrorResponse(ex);
+    public String deleteMovieByName(String movieName){
+        deleteMovieByNameMono(movieName)
+                .block();
+        return "Movie Deleted Successfully";
+    }
+
+    /**
+     * Non blocking version of {@link #deleteMovieByName(String)}.
+     */
+    public Mono<Void> deleteMovieByNameMono(String movieName) {
+        String deleteMovieByNameURI = movieByNameUri(movieName);
+
+        return metrics.timed("deleteMovieByName", deadlines.execute("deleteMovieByName", withBulkhead(writeBulkhead, webClient.delete().uri(deleteMovieByNameURI)
+                .attribute(OPERATION_ATTRIBUTE, "deleteMovieByName")
+                .retrieve()
+                .bodyToMono(Void.class)))
+                .doOnSuccessOrError((response, ex) -> {
+                    if (movieCache != null) {
+                        movieCache.invalidateByName(movieName);
+                    }
+                })
+                .onErrorMap(ex -> toMovieErrorResponse("deleteMovieByName", ex)));
+    }
+
+    //http://localhost:8081/movieservice/v1/movieName?movie_name=Avengers
+    static String movieByNameUri(String movieName) {
+        return UriComponentsBuilder.fromUriString(MoviesAppConstants.MOVIE_BY_NAME_QUERY_PARAM_V1)
+                .queryParam("movie_name", movieName)
+                .buildAndExpand()
+                .toUriString();
+    }
+
+    //http://localhost:8081/movieservice/v1/movieYear?year=2012
+    static String movieByYearUri(Integer movieYear) {
+        return UriComponentsBuilder.fromUriString(MoviesAppConstants.MOVIE_BY_YEAR_QUERY_PARAM_V1)
+                .queryParam("year", movieYear)
+                .buildAndExpand()
+                .toUriString();
+    }
+
+    /**
+     * Serves lookups that recently ended in a 404 from the not found cache, when one is configured.
+     */
+    private <T> Mono<T> withNotFoundCache(String key, Mono<T> lookup) {
+        if (notFoundCache == null) {
+            return lookup;
         }
+        return Mono.defer(() -> {
+            MovieErrorResponse notFound = notFoundCache.get(key);
+            if (notFound != null) {
+                return Mono.error(notFound);
+            }
+            return lookup.doOnError(MovieErrorResponse.class, ex -> notFoundCache.put(key, ex));
+        });
+    }
 
+    /**
+     * A newly added movie can be found by its id, name and year, even if those lookups failed a moment ago.
+     */
+    private void forgetNotFound(Movie movie) {
+        if (notFoundCache != null) {
+            if (movie.getMovie_id() != null) {
+                notFoundCache.invalidate("movieId:" + movie.getMovie_id().intValue());
+            }
+            notFoundCache.invalidate("movie_name:" + movie.getName());
+            notFoundCache.invalidate("year:" + movie.getYear());
+        }
     }
 
-    public String deleteMovie(Integer movieId){
+    private void invalidateCachedMovie(Integer movieId) {
+        if (movieCache != null) {
+            movieCache.invalidate(movieId);
+        }
+    }
+
+    /**
+     * @return - the number of lookups that were served by an identical request already in flight
+     */
+    public long getCoalescedCallCount() {
+        return movieByIdCalls.getCoalescedCalls() + movieListCalls.getCoalescedCalls();
+    }
+
+    /**
+     * @return - hit, miss and eviction counters of the movie cache, empty when no cache is configured
+     */
+    public CacheStats getMovieCacheStats() {
+        return movieCache != null ? movieCache.stats() : CacheStats.empty();
+    }
 
-        try{
-            return webClient.delete().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
+    /**
+     * @return - counters of the not found cache, empty when no not found cache is configured
+     */
+    public CacheStats getNotFoundCacheStats() {
+        return notFoundCache != null ? notFoundCache.stats() : CacheStats.empty();
+    }
 
-        }catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in deleteMovie. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in deleteMovie and the message is {} ", ex);
-            throw new MovieErrorResponse(ex);
+    /**
+     * Translates the error signal of a call into a {@link MovieErrorResponse} and hands it to the {@link FailureLog}.
+     * Checked exceptions are wrapped the same way {@code block()} wraps them, so the blocking methods keep their error messages.
+     */
+    private MovieErrorResponse toMovieErrorResponse(String methodName, Throwable ex) {
+        MovieErrorResponse movieErrorResponse;
+        if (ex instanceof MovieErrorResponse) {
+            movieErrorResponse = (MovieErrorResponse) ex;
+        } else if (ex instanceof WebClientResponseException) {
+            WebClientResponseException responseException = (WebClientResponseException) ex;
+            movieErrorResponse = new MovieErrorResponse(responseException.getStatusText(), responseException);
+        } else {
+            movieErrorResponse = new MovieErrorResponse(Exceptions.propagate(ex));
         }
+        failureLog.record(methodName, movieErrorResponse);
+        return movieErrorResponse;
     }
 
-    public String deleteMovieByName(String movieName){
+    public static class Builder {
+
+        private WebClient webClient;
+        private String baseUrl;
+        private ConnectionProvider connectionProvider;
+        private MovieTransport transport;
+        private boolean compression;
+        private Duration readTimeout = Duration.ZERO;
+        private Duration writeTimeout = Duration.ZERO;
+        private ObjectMapper objectMapper;
+        private MovieCache movieCache;
+        private NotFoundCache notFoundCache;
+        private boolean conditionalGet;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+        private boolean lightweightErrors;
+        private Duration failureLogInterval = FailureLog.DEFAULT_INTERVAL;
+        private CircuitBreakerFilter circuitBreakerFilter;
+        private RetryFilter retryFilter;
+        private MovieHedging hedging;
+        private ConcurrencyLimitFilter concurrencyLimitFilter;
+        private MovieBulkheads bulkheads;
+        private final Map<String, MovieRateLimiter> rateLimiters = new LinkedHashMap<>();
+        private MovieDeadlines deadlines = MovieDeadlines.builder().build();
+
+        private Builder() {
+        }
 
-        try{
-            String deleteMovieByNameURI = UriComponentsBuilder.fromUriString(MoviesAppConstants.MOVIE_BY_NAME_QUERY_PARAM_V1)
-                    .queryParam("movie_name", movieName)
-                    .buildAndExpand()
-                    .toUriString();
+        public Builder webClient(WebClient webClient) {
+            this.webClient = webClient;
+            return this;
+        }
 
-             webClient.delete().uri(deleteMovieByNameURI)
-                    .retrieve()
-                    .bodyToMono(Void.class)
-                    .block();
+        /**
+         * Used to build the {@link WebClient} when none is given through {@link #webClient(WebClient)}.
+         */
+        public Builder baseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
 
-        }catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in deleteMovie. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in deleteMovie and the message is {} ", ex);
-            throw new MovieErrorResponse(ex);
+        /**
+         * The connection pool of the {@link WebClient} built from {@link #baseUrl(String)},
+         * for example a {@link MovieConnectionProvider}. The caller owns the pool and disposes it.
+         */
+        public Builder connectionProvider(ConnectionProvider connectionProvider) {
+            this.connectionProvider = connectionProvider;
+            return this;
         }
 
-        return "Movie Deleted Successfully";
+        /**
+         * The event loops and socket options of the {@link WebClient} built from {@link #baseUrl(String)}, see
+         * {@link MovieTransport}. The caller owns the transport and disposes it after the connection pool.
+         */
+        public Builder transport(MovieTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Asks the movies service for gzip compressed responses with an Accept-Encoding header, the {@link WebClient} built
+         * from {@link #baseUrl(String)} decompresses gzip and deflate bodies before they reach Jackson. Worth it for the
+         * catalog downloads of {@link #retrieveAllMovies()} over a slow network, it costs CPU on both sides for small
+         * responses. A {@link WebClient} given through {@link #webClient(WebClient)} is configured by its owner,
+         * see {@link HttpClient#compress(boolean)}.
+         */
+        public Builder compression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * The longest the movies service may stay silent while a response of the {@link WebClient} built from
+         * {@link #baseUrl(String)} is awaited or read, none by default. The exchange then fails with a Netty
+         * ReadTimeoutException. Unlike the {@link #deadlines(MovieDeadlines)} it does not end a long download such as
+         * {@link #streamAllMovies()} while the data keeps coming.
+         */
+        public Builder readTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * The longest a request of the {@link WebClient} built from {@link #baseUrl(String)} may take to be written,
+         * none by default.
+         */
+        public Builder writeTimeout(Duration writeTimeout) {
+            this.writeTimeout = writeTimeout;
+            return this;
+        }
+
+        /**
+         * The Jackson mapper of the JSON codecs of the {@link WebClient} built from {@link #baseUrl(String)} and of the
+         * newline delimited JSON decoder of {@link #streamAllMovies()}, for example {@link MovieJson#objectMapper()}.
+         * By default both use the default mapper of Spring.
+         */
+        public Builder objectMapper(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+            return this;
+        }
+
+        /**
+         * Enables the read-through cache for {@link #retrieveMovieById(Integer)}.
+         * Entries are invalidated by {@link #updateMovie(Integer, Movie)}, {@link #deleteMovie(Integer)} and {@link #deleteMovieByName(String)}.
+         *
+         * @param maximumSize - the maximum number of movies kept in the cache
+         * @param timeToLive  - how long a movie is served from the cache after it was fetched
+         */
+        public Builder movieCache(long maximumSize, Duration timeToLive) {
+            this.movieCache = new MovieCache(maximumSize, timeToLive);
+            return this;
+        }
+
+        /**
+         * Enables caching of 404 responses of {@link #retrieveMovieById(Integer)}, {@link #retrieveMoviebyName(String)}
+         * and {@link #retrieveMoviebyYear(Integer)}, so repeated lookups of missing movies fail without a round trip.
+         * Keep the time to live short, movies added by other clients become visible only once the entry expires.
+         *
+         * @param maximumSize - the maximum number of not found lookups remembered
+         * @param timeToLive  - how long a not found lookup is remembered
+         */
+        public Builder notFoundCache(long maximumSize, Duration timeToLive) {
+            this.notFoundCache = new NotFoundCache(maximumSize, timeToLive);
+            return this;
+        }
+
+        /**
+         * Makes {@link #retrieveAllMovies()} remember the ETag / Last-Modified of the last catalog and revalidate it
+         * with a conditional GET, so an unchanged catalog is neither downloaded nor decoded again.
+         * The last catalog is kept in memory for as long as the client lives.
+         */
+        public Builder conditionalGet(boolean conditionalGet) {
+            this.conditionalGet = conditionalGet;
+            return this;
+        }
+
+        /**
+         * Where the timers, counters and gauges described in {@link MoviesClientMetrics} are registered,
+         * defaults to the Micrometer global registry.
+         */
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        /**
+         * Signals 4xx and 503 responses as stackless {@link MovieErrorResponse#expected} errors that carry the status code,
+         * method, path and a body excerpt instead of a {@link WebClientResponseException} cause.
+         * Unexpected errors keep their full stack traces.
+         */
+        public Builder lightweightErrors(boolean lightweightErrors) {
+            this.lightweightErrors = lightweightErrors;
+            return this;
+        }
+
+        /**
+         * Failures of the same method, status and exception are logged once per interval, as one line with their count,
+         * see {@link FailureLog}. Defaults to 10 seconds, {@link Duration#ZERO} logs every failure.
+         */
+        public Builder failureLogInterval(Duration failureLogInterval) {
+            this.failureLogInterval = failureLogInterval;
+            return this;
+        }
+
+        /**
+         * Guards the reads (GET) and the writes with their own circuit breaker, see {@link CircuitBreakerFilter}.
+         * While a breaker is open its calls fail with a {@link CircuitBreakerOpenException}
+         * instead of waiting for the connect and read timeouts. Cache hits are served regardless.
+         */
+        public Builder circuitBreakers(MovieCircuitBreaker reads, MovieCircuitBreaker writes) {
+            this.circuitBreakerFilter = new CircuitBreakerFilter(reads, writes);
+            return this;
+        }
+
+        /**
+         * Retries reads and writes with an idempotency key on connection failures and 502/503/504 responses,
+         * see {@link RetryFilter}. Other writes are never retried.
+         */
+        public Builder retryFilter(RetryFilter retryFilter) {
+            this.retryFilter = retryFilter;
+            return this;
+        }
+
+        /**
+         * Hedges {@link #retrieveMovieById(Integer)}: a second request is sent when the first one is slower than the
+         * hedge delay, the faster one wins, see {@link MovieHedging}.
+         */
+        public Builder hedging(MovieHedging hedging) {
+            this.hedging = hedging;
+            return this;
+        }
+
+        /**
+         * Limits the calls in flight to a limit that adapts to the round trip times, see {@link AdaptiveConcurrencyLimiter}.
+         * Calls over the limit fail with a {@link ConcurrencyLimitExceededException}, the limit is published as the
+         * movies.client.concurrency.limit gauge.
+         */
+        public Builder concurrencyLimiter(AdaptiveConcurrencyLimiter limiter) {
+            this.concurrencyLimitFilter = new ConcurrencyLimitFilter(limiter);
+            return this;
+        }
+
+        /**
+         * Runs the reads, the writes and the catalog downloads in separate {@link MovieBulkheads}. Calls over the limit
+         * of their group fail with a {@link BulkheadFullException}, cache hits are served regardless.
+         */
+        public Builder bulkheads(MovieBulkheads bulkheads) {
+            this.bulkheads = bulkheads;
+            return this;
+        }
+
+        /**
+         * Limits the calls of one operation, named like its method, for example retrieveMovieById, to the rate of a
+         * {@link MovieRateLimiter}. Several operations may share a limiter. Calls that would wait too long for a token
+         * fail with a {@link RateLimitExceededException}, a 429 or 503 with a Retry-After header pauses the limiter.
+         */
+        public Builder rateLimiter(String operation, MovieRateLimiter limiter) {
+            this.rateLimiters.put(operation, limiter);
+            return this;
+        }
+
+        /**
+         * Default timeouts per operation, see {@link MovieDeadlines}. A call that is not done by its deadline, or by the
+         * earlier {@link Deadline} of its caller, fails with a {@link DeadlineExceededException}.
+         * Without them only the deadlines of the callers apply.
+         */
+        public Builder deadlines(MovieDeadlines deadlines) {
+            this.deadlines = deadlines;
+            return this;
+        }
+
+        public MoviesRestClient build() {
+            if (webClient == null) {
+                HttpClient httpClient = connectionProvider != null ? HttpClient.create(connectionProvider) : HttpClient.create();
+                if (transport != null) {
+                    httpClient = httpClient.tcpConfiguration(transport::configure);
+                }
+                httpClient = httpClient.compress(compression);
+                long readTimeoutMillis = readTimeout.toMillis();
+                long writeTimeoutMillis = writeTimeout.toMillis();
+                if (readTimeoutMillis > 0 || writeTimeoutMillis > 0) {
+                    // added for this exchange only, reactor netty removes them when the connection goes back to the pool
+                    httpClient = httpClient.doOnRequest((request, connection) -> {
+                        if (readTimeoutMillis > 0) {
+                            connection.addHandlerLast(new ReadTimeoutHandler(readTimeoutMillis, TimeUnit.MILLISECONDS));
+                        }
+                        if (writeTimeoutMillis > 0) {
+                            connection.addHandlerLast(new WriteTimeoutHandler(writeTimeoutMillis, TimeUnit.MILLISECONDS));
+                        }
+                    });
+                }
+                WebClient.Builder webClientBuilder = WebClient.builder()
+                        .baseUrl(baseUrl)
+                        .clientConnector(new ReactorClientHttpConnector(httpClient));
+                if (objectMapper != null) {
+                    webClientBuilder.exchangeStrategies(MovieJson.exchangeStrategies(objectMapper));
+                }
+                webClient = webClientBuilder.build();
+            }
+            // outermost first, every retry takes a token, needs a permit and passes the circuit breaker,
+            // waiting for a token holds no permit, an attempt cut off by its deadline counts as a timeout
+            webClient = webClient.mutate()
+                    .filters(filters -> {
+                        if (retryFilter != null) {
+                            filters.add(retryFilter);
+                        }
+                        if (!rateLimiters.isEmpty()) {
+                            filters.add(new RateLimitFilter(rateLimiters));
+                        }
+                        if (concurrencyLimitFilter != null) {
+                            filters.add(concurrencyLimitFilter);
+                        }
+                        if (circuitBreakerFilter != null) {
+                            filters.add(circuitBreakerFilter);
+                        }
+                        filters.add(new DeadlineFilter());
+                        if (lightweightErrors) {
+                            filters.add(new ExpectedErrorFilter());
+                        }
+                    })
+                    .build();
+            return new MoviesRestClient(this);
+        }
     }
 
 }
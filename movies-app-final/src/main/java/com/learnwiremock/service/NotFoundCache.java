@@ -0,0 +1,61 @@
+package com.learnwiremock.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.learnwiremock.exception.MovieErrorResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short lived cache of lookups that ended in a 404, so that repeated lookups of missing movies skip the round trip.
+ */
+public class NotFoundCache {
+
+    private final Cache<String, MovieErrorResponse> cache;
+
+    public NotFoundCache(long maximumSize, Duration timeToLive) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive.toNanos(), TimeUnit.NANOSECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return - a {@link MovieErrorResponse} for the cached 404, or null when the key is not cached.
+     * Stackless expected errors are shared, errors with a stack trace are created anew for every lookup.
+     */
+    public MovieErrorResponse get(String key) {
+        MovieErrorResponse notFound = cache.getIfPresent(key);
+        if (notFound == null || !(notFound.getCause() instanceof WebClientResponseException)) {
+            return notFound;
+        }
+        return new MovieErrorResponse(notFound.getMessage(), (WebClientResponseException) notFound.getCause());
+    }
+
+    /**
+     * Remembers the error if it was caused by a 404 response.
+     */
+    public void put(String key, MovieErrorResponse movieErrorResponse) {
+        if (Integer.valueOf(HttpStatus.NOT_FOUND.value()).equals(movieErrorResponse.getStatusCode())) {
+            cache.put(key, movieErrorResponse);
+        }
+    }
+
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+    Cache<String, MovieErrorResponse> cache() {
+        return cache;
+    }
+
+    public CacheStats stats() {
+        cache.cleanUp();
+        return cache.stats();
+    }
+}
@@ -0,0 +1,158 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.exception.MovieErrorResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retries failed exchanges that are safe to repeat: GET requests, and other requests only when they carry an
+ * {@value #IDEMPOTENCY_KEY} header.
+ * <p>
+ * Connection failures (for example a PrematureCloseException) and 502, 503 and 504 responses are retried, up to
+ * maxAttempts attempts in all. Before retry n the filter waits a random time between 0 and
+ * min(maxBackoff, firstBackoff * 2^(n-1)) (full jitter), so clients that failed together do not retry together.
+ * Every retry has to fit into the {@link RetryBudget}, and into the {@link Deadline} of the call when it has one.
+ */
+public class RetryFilter implements ExchangeFilterFunction {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private final int maxAttempts;
+    private final long firstBackoffMillis;
+    private final long maxBackoffMillis;
+    private final RetryBudget retryBudget;
+    private final AtomicLong retries = new AtomicLong();
+
+    private RetryFilter(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.firstBackoffMillis = builder.firstBackoff.toMillis();
+        this.maxBackoffMillis = builder.maxBackoff.toMillis();
+        this.retryBudget = builder.retryBudget;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (request.method() != HttpMethod.GET && !request.headers().containsKey(IDEMPOTENCY_KEY)) {
+            return next.exchange(request);
+        }
+        return Mono.subscriberContext().flatMap(context -> {
+            retryBudget.onRequest();
+            return exchange(request, next, 1, context.getOrDefault(Deadline.class, null));
+        });
+    }
+
+    /**
+     * Completes empty when the attempt is to be retried, so that the retry's own outcome is not inspected a second time.
+     *
+     * @param deadline - the deadline of the call, null when it has none
+     */
+    private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, int attempt, Deadline deadline) {
+        Duration backoff = backoff(attempt);
+        return next.exchange(request)
+                .flatMap(response -> isRetriable(response.rawStatusCode()) && tryRetry(attempt, backoff, deadline)
+                        ? response.bodyToMono(Void.class).then(Mono.<ClientResponse>empty())
+                        : Mono.just(response))
+                .onErrorResume(ex -> isRetriable(ex) && tryRetry(attempt, backoff, deadline), ex -> Mono.empty())
+                .switchIfEmpty(Mono.defer(() -> Mono.delay(backoff)
+                        .then(exchange(request, next, attempt + 1, deadline))));
+    }
+
+    private boolean tryRetry(int attempt, Duration backoff, Deadline deadline) {
+        // a retry that starts at the deadline cannot succeed, the failure at hand says more than a timeout
+        if (attempt >= maxAttempts || (deadline != null && backoff.compareTo(deadline.remaining()) >= 0)
+                || !retryBudget.tryRetry()) {
+            return false;
+        }
+        retries.incrementAndGet();
+        return true;
+    }
+
+    private Duration backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, firstBackoffMillis << Math.min(attempt - 1, 30));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    static boolean isRetriable(int statusCode) {
+        return statusCode == HttpStatus.BAD_GATEWAY.value()
+                || statusCode == HttpStatus.SERVICE_UNAVAILABLE.value()
+                || statusCode == HttpStatus.GATEWAY_TIMEOUT.value();
+    }
+
+    static boolean isRetriable(Throwable ex) {
+        if (ex instanceof MovieErrorResponse) {
+            Integer statusCode = ((MovieErrorResponse) ex).getStatusCode();
+            return statusCode != null && isRetriable(statusCode);
+        }
+        if (ex instanceof WebClientResponseException) {
+            return isRetriable(((WebClientResponseException) ex).getRawStatusCode());
+        }
+        return ex instanceof IOException;
+    }
+
+    /**
+     * @return - how many retries were made
+     */
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    public static class Builder {
+
+        private int maxAttempts = 3;
+        private Duration firstBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        private RetryBudget retryBudget = new RetryBudget(RetryBudget.DEFAULT_RETRY_RATIO, RetryBudget.DEFAULT_MAX_TOKENS);
+
+        private Builder() {
+        }
+
+        /**
+         * All attempts including the first one, 3 by default.
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder firstBackoff(Duration firstBackoff) {
+            this.firstBackoff = firstBackoff;
+            return this;
+        }
+
+        public Builder maxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * Defaults to 10% of the requests, with up to 10 retries saved up.
+         */
+        public Builder retryBudget(RetryBudget retryBudget) {
+            this.retryBudget = retryBudget;
+            return this;
+        }
+
+        public RetryFilter build() {
+            return new RetryFilter(this);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.learnwiremock.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key into a single upstream call.
+ * Callers arriving while a call for the key is in flight share its result (or error) instead of starting a new one.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedCalls = new AtomicLong();
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            AtomicReference<Mono<V>> self = new AtomicReference<>();
+            // removed before the result reaches the callers, so a caller retrying right away starts a new call,
+            // cache() hands the value on as soon as it arrives, before the completion signal
+            Mono<V> shared = Mono.defer(call)
+                    .doOnSuccessOrError((value, ex) -> inFlight.remove(key, self.get()))
+                    .doOnCancel(() -> inFlight.remove(key, self.get()))
+                    .cache();
+            self.set(shared);
+
+            Mono<V> existing = inFlight.putIfAbsent(key, shared);
+            if (existing != null) {
+                coalescedCalls.incrementAndGet();
+                return existing;
+            }
+            return shared;
+        });
+    }
+
+    /**
+     * @return - the number of calls that were served by a call already in flight
+     */
+    public long getCoalescedCalls() {
+        return coalescedCalls.get();
+    }
+}
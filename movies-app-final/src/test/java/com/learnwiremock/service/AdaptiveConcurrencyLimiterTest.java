@@ -0,0 +1,109 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.exception.ConcurrencyLimitExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    static final long NO_LOAD_RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Callers that always use the whole limit, against a service that works on capacity calls at a time and queues
+     * the others. Every call takes as long as the load when it ends makes it.
+     */
+    private static void simulate(AdaptiveConcurrencyLimiter limiter, int capacity, int calls) {
+        Deque<AdaptiveConcurrencyLimiter.Permit> inFlight = new ArrayDeque<>();
+        for (int call = 0; call < calls; call++) {
+            AdaptiveConcurrencyLimiter.Permit permit;
+            while ((permit = limiter.tryAcquire()) != null) {
+                inFlight.addLast(permit);
+            }
+            long rtt = NO_LOAD_RTT * Math.max(capacity, inFlight.size()) / capacity;
+            inFlight.removeFirst().release(rtt, false);
+        }
+        inFlight.forEach(AdaptiveConcurrencyLimiter.Permit::cancel);
+    }
+
+    @Test
+    void limit_growsToCapacity() {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder("test")
+                .initialLimit(5)
+                .build();
+
+        simulate(limiter, 50, 5000);
+
+        assertTrue(limiter.getLimit() >= 50 && limiter.getLimit() <= 70, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    void limit_followsCapacityDrop() {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder("test")
+                .initialLimit(5)
+                .build();
+        simulate(limiter, 50, 5000);
+
+        simulate(limiter, 10, 5000);
+
+        assertTrue(limiter.getLimit() >= 10 && limiter.getLimit() <= 25, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    void limit_shrinksOnOverload() {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder("test")
+                .initialLimit(20)
+                .build();
+
+        limiter.tryAcquire().release(NO_LOAD_RTT, true);
+
+        assertEquals(18, limiter.getLimit());
+    }
+
+    @Test
+    void acquire_rejectsOverLimit() {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder("test")
+                .initialLimit(1)
+                .build();
+        assertNotNull(limiter.tryAcquire());
+
+        assertThrows(ConcurrencyLimitExceededException.class, () -> limiter.acquire().block());
+        assertEquals(1, limiter.getRejectedCallCount());
+    }
+
+    @Test
+    void acquire_waitsForPermit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder("test")
+                .initialLimit(1)
+                .maxWait(Duration.ofSeconds(5))
+                .build();
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> waiting = limiter.acquire().toFuture();
+        assertEquals(1, limiter.getQueueSize());
+        permit.cancel();
+
+        assertNotNull(waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueSize());
+    }
+
+    @Test
+    void acquire_rejectsAfterMaxWait() {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder("test")
+                .initialLimit(1)
+                .maxWait(Duration.ofMillis(50))
+                .build();
+        assertNotNull(limiter.tryAcquire());
+
+        assertThrows(ConcurrencyLimitExceededException.class, () -> limiter.acquire().block(Duration.ofSeconds(5)));
+        assertEquals(0, limiter.getQueueSize());
+        assertEquals(1, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,176 @@
+package com.learnwiremock.service;
+
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.learnwiremock.dto.Movie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(WireMockExtension.class)
+public class MovieConnectionProviderTest {
+
+    MovieConnectionProvider connectionProvider;
+    String baseUrl;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8088)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @BeforeEach
+    void setUp() {
+        baseUrl = String.format("http://localhost:%s/", wireMockServer.port());
+
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (connectionProvider != null) {
+            connectionProvider.dispose();
+        }
+    }
+
+    @Test
+    void maxIdleTime_closesIdleConnections() throws InterruptedException {
+        //given
+        connectionProvider = MovieConnectionProvider.builder("movies-test")
+                .maxIdleTime(Duration.ofMillis(200))
+                .build();
+        MoviesRestClient moviesRestClient = moviesRestClient();
+
+        //when
+        moviesRestClient.retrieveMovieById(1);
+        Thread.sleep(500);
+        moviesRestClient.retrieveMovieById(2);
+
+        //then
+        assertEquals(1, connectionProvider.getEvictedConnectionCount());
+    }
+
+    @Test
+    void maxLifeTime_closesOldConnections() throws InterruptedException {
+        //given
+        connectionProvider = MovieConnectionProvider.builder("movies-test")
+                .maxLifeTime(Duration.ofMillis(300))
+                .build();
+        MoviesRestClient moviesRestClient = moviesRestClient();
+
+        //when
+        for (int movieId = 1; movieId <= 5; movieId++) {
+            moviesRestClient.retrieveMovieById(movieId);
+            Thread.sleep(100);
+        }
+
+        //then
+        assertTrue(connectionProvider.getEvictedConnectionCount() >= 1);
+    }
+
+    @Test
+    void connectionsWithinLimits_areReused() {
+        //given
+        connectionProvider = MovieConnectionProvider.builder("movies-test")
+                .maxIdleTime(Duration.ofSeconds(10))
+                .maxLifeTime(Duration.ofMinutes(1))
+                .build();
+        MoviesRestClient moviesRestClient = moviesRestClient();
+
+        //when
+        for (int movieId = 1; movieId <= 5; movieId++) {
+            moviesRestClient.retrieveMovieById(movieId);
+        }
+
+        //then
+        assertEquals(0, connectionProvider.getEvictedConnectionCount());
+    }
+
+    @Test
+    void pendingAcquireMaxCount_rejectsExcessAcquires() {
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withFixedDelay(500)));
+        connectionProvider = MovieConnectionProvider.builder("movies-test")
+                .maxConnections(1)
+                .pendingAcquireMaxCount(1)
+                .build();
+        MoviesRestClient moviesRestClient = moviesRestClient();
+
+        //when
+        List<String> results = Flux.range(1, 5)
+                .flatMap(movieId -> moviesRestClient.retrieveMovieByIdMono(movieId)
+                        .map(movie -> "OK")
+                        .onErrorResume(ex -> Mono.just(ex.getMessage())))
+                .collectList()
+                .block();
+
+        //then
+        assertTrue(results.contains("OK"));
+        assertTrue(results.stream().filter(result -> result.contains("Pending acquire queue")).count() >= 3);
+    }
+
+    @Test
+    void maxConnections_boundsTheSocketsOfAFanOut() {
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withFixedDelay(50)));
+        connectionProvider = MovieConnectionProvider.builder("movies-test")
+                .maxConnections(4)
+                .build();
+        MoviesRestClient moviesRestClient = moviesRestClient();
+
+        //when
+        List<Movie> movies = Flux.range(1, 40)
+                .flatMap(moviesRestClient::retrieveMovieByIdMono)
+                .collectList()
+                .block();
+
+        //then
+        assertEquals(40, movies.size());
+        assertTrue(connectionProvider.getOpenedConnectionCount() >= 1);
+        assertTrue(connectionProvider.getOpenedConnectionCount() <= 4, "opened " + connectionProvider.getOpenedConnectionCount());
+    }
+
+    private MoviesRestClient moviesRestClient() {
+        return MoviesRestClient.builder()
+                .baseUrl(baseUrl)
+                .connectionProvider(connectionProvider)
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.learnwiremock.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieHedgingTest {
+
+    @Test
+    void delay_isFixedUntilEnoughLatencies() {
+        MovieHedging hedging = MovieHedging.builder()
+                .delay(Duration.ofSeconds(1))
+                .build();
+
+        for (int call = 0; call < 99; call++) {
+            hedging.hedge(() -> Mono.just("movie")).block();
+        }
+
+        assertEquals(Duration.ofSeconds(1), hedging.getDelay());
+    }
+
+    @Test
+    void delay_followsLatencyPercentile() {
+        MovieHedging hedging = MovieHedging.builder()
+                .delay(Duration.ofSeconds(1))
+                .build();
+
+        for (int call = 0; call < 100; call++) {
+            hedging.hedge(() -> Mono.just("movie")).block();
+        }
+
+        assertTrue(hedging.getDelay().compareTo(Duration.ofSeconds(1)) < 0, "delay " + hedging.getDelay());
+        assertEquals(0, hedging.getHedgeCount());
+    }
+
+    @Test
+    void delay_staysFixedWithoutPercentile() {
+        MovieHedging hedging = MovieHedging.builder()
+                .delay(Duration.ofSeconds(1))
+                .percentile(0)
+                .build();
+
+        for (int call = 0; call < 100; call++) {
+            hedging.hedge(() -> Mono.just("movie")).block();
+        }
+
+        assertEquals(Duration.ofSeconds(1), hedging.getDelay());
+    }
+}
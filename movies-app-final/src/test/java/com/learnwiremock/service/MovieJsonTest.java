@@ -0,0 +1,156 @@
+package com.learnwiremock.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.learnwiremock.dto.Movie;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.learnwiremock.constants.MoviesAppConstants.ADD_MOVIE_V1;
+import static com.learnwiremock.constants.MoviesAppConstants.GET_ALL_MOVIES_V1;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(WireMockExtension.class)
+public class MovieJsonTest {
+
+    private static final TypeReference<List<Movie>> MOVIE_LIST = new TypeReference<List<Movie>>() {
+    };
+
+    ObjectMapper defaultMapper = Jackson2ObjectMapperBuilder.json().build();
+    ObjectMapper tunedMapper = MovieJson.objectMapper();
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8088)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    private MoviesRestClient moviesRestClient() {
+        return MoviesRestClient.builder()
+                .baseUrl(String.format("http://localhost:%s/", wireMockServer.port()))
+                .objectMapper(tunedMapper)
+                .build();
+    }
+
+    @Test
+    void readAllMovies_sameAsDefaultMapper() throws Exception {
+        //given
+        byte[] json = Files.readAllBytes(Paths.get(MovieJsonTest.class.getResource("/__files/all-movies.json").toURI()));
+
+        //when
+        List<Movie> movies = tunedMapper.readValue(json, MOVIE_LIST);
+
+        //then
+        assertEquals(defaultMapper.readValue(json, MOVIE_LIST), movies);
+        assertEquals(new Movie(1D, "Batman Begins", "Christian Bale, Katie Holmes , Liam Neeson", 2005, LocalDate.of(2005, 6, 15)), movies.get(0));
+    }
+
+    @Test
+    void readMovie_coercionsNullsAndUnknownProperties() throws Exception {
+        //given
+        String json = "{\"movie_id\":\"12\",\"name\":null,\"rating\":{\"imdb\":[8.2,\"x\"]},\"year\":\"2005\",\"cast\":7,"
+                + "\"release_date\":[2005,6,15]}";
+
+        //when
+        Movie movie = tunedMapper.readValue(json, Movie.class);
+
+        //then
+        assertEquals(defaultMapper.readValue(json, Movie.class), movie);
+        assertEquals(new Movie(12D, null, "7", 2005, LocalDate.of(2005, 6, 15)), movie);
+        assertEquals(new Movie(), tunedMapper.readValue("{}", Movie.class));
+        assertNull(tunedMapper.readValue("null", Movie.class));
+    }
+
+    @Test
+    void readMovie_invalidInput() {
+        assertThrows(InvalidFormatException.class, () -> tunedMapper.readValue("{\"year\":\"two thousand\"}", Movie.class));
+        assertThrows(MismatchedInputException.class, () -> tunedMapper.readValue("[1]", Movie.class));
+    }
+
+    @Test
+    void writeMovie_sameAsDefaultMapper() throws Exception {
+        //given
+        Movie movie = new Movie(null, "Toy Story 4", "Tom Hanks, Tim Allen", 2019, LocalDate.of(2019, 6, 20));
+
+        //then
+        assertEquals(defaultMapper.writeValueAsString(movie), tunedMapper.writeValueAsString(movie));
+    }
+
+    @Test
+    void retrieveAllMovies_tunedMapper() {
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        //when
+        List<Movie> movieList = moviesRestClient().retrieveAllMovies();
+
+        //then
+        assertEquals(10, movieList.size());
+        assertEquals(LocalDate.of(2005, 6, 15), movieList.get(0).getRelease_date());
+    }
+
+    @Test
+    void streamAllMovies_ndjson_tunedMapper() {
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MoviesRestClient.APPLICATION_NDJSON.toString())
+                        .withBodyFile("all-movies.ndjson")));
+
+        //when
+        List<Movie> movieList = moviesRestClient().streamAllMovies().collect(Collectors.toList());
+
+        //then
+        assertEquals(10, movieList.size());
+        assertEquals("Batman Begins", movieList.get(0).getName());
+    }
+
+    @Test
+    void addMovie_tunedMapper() {
+        //given
+        Movie movie = new Movie(null, "Toy Story 4", "Tom Hanks, Tim Allen", 2019, LocalDate.of(2019, 6, 20));
+        stubFor(post(urlPathEqualTo(ADD_MOVIE_V1))
+                .withRequestBody(matchingJsonPath("$.name", equalTo("Toy Story 4")))
+                .withRequestBody(matchingJsonPath("$.year", equalTo("2019")))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("add-movie.json")));
+
+        //when
+        Movie addedMovie = moviesRestClient().addMovie(movie);
+
+        //then
+        assertNotNull(addedMovie.getMovie_id());
+        assertEquals(LocalDate.of(2019, 6, 20), addedMovie.getRelease_date());
+    }
+}
@@ -0,0 +1,134 @@
+package com.learnwiremock.service;
+
+import com.learnwiremock.exception.RateLimitExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MovieRateLimiterTest {
+
+    @Test
+    void reserve_burstThenRate() {
+
+        //given
+        MovieRateLimiter limiter = MovieRateLimiter.builder("test")
+                .ratePerSecond(10)
+                .burst(3)
+                .maxWait(Duration.ofSeconds(1))
+                .build();
+
+        //when
+        long first = limiter.reserve();
+        long second = limiter.reserve();
+        long third = limiter.reserve();
+        long fourth = limiter.reserve();
+
+        //then
+        assertEquals(0, first);
+        assertEquals(0, second);
+        assertEquals(0, third);
+        assertTrue(fourth > Duration.ofMillis(50).toNanos() && fourth <= Duration.ofMillis(100).toNanos(), "waits " + fourth);
+    }
+
+    @Test
+    void reserve_rejectsOverMaxWait() {
+
+        //given
+        MovieRateLimiter limiter = MovieRateLimiter.builder("test")
+                .ratePerSecond(1)
+                .burst(1)
+                .maxWait(Duration.ofMillis(100))
+                .build();
+
+        //when
+        long first = limiter.reserve();
+        long second = limiter.reserve();
+
+        //then
+        assertEquals(0, first);
+        assertEquals(-1, second);
+    }
+
+    @Test
+    void acquire_waitsWithoutBlocking() throws ExecutionException, InterruptedException {
+
+        //given
+        MovieRateLimiter limiter = MovieRateLimiter.builder("test")
+                .ratePerSecond(5)
+                .burst(1)
+                .maxWait(Duration.ofSeconds(1))
+                .build();
+        limiter.acquire().block();
+
+        //when
+        long start = System.nanoTime();
+        CompletableFuture<Void> second = limiter.acquire().toFuture();
+
+        //then
+        assertFalse(second.isDone());
+        second.get();
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(150).toNanos());
+    }
+
+    @Test
+    void acquire_rejectedWhenEmpty() {
+
+        //given
+        MovieRateLimiter limiter = MovieRateLimiter.builder("test")
+                .ratePerSecond(1)
+                .burst(1)
+                .maxWait(Duration.ZERO)
+                .build();
+        limiter.acquire().block();
+
+        //when
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class, () -> limiter.acquire().block());
+
+        //then
+        assertEquals("test", exception.getLimiterName());
+        assertEquals(1, limiter.getRejectedCallCount());
+    }
+
+    @Test
+    void pause_emptiesTheBucketUntilItEnds() {
+
+        //given
+        MovieRateLimiter limiter = MovieRateLimiter.builder("test")
+                .ratePerSecond(100)
+                .burst(10)
+                .maxWait(Duration.ofSeconds(5))
+                .build();
+
+        //when
+        limiter.pause(Duration.ofSeconds(2));
+        long first = limiter.reserve();
+        long second = limiter.reserve();
+
+        //then
+        assertTrue(first > Duration.ofMillis(1900).toNanos() && first <= Duration.ofSeconds(2).toNanos(), "waits " + first);
+        // no burst after the pause
+        assertTrue(second - first >= Duration.ofMillis(9).toNanos(), "waits " + second);
+        assertEquals(1, limiter.getPauseCount());
+    }
+
+    @Test
+    void pause_cappedAtMaxPause() {
+
+        //given
+        MovieRateLimiter limiter = MovieRateLimiter.builder("test")
+                .maxWait(Duration.ofSeconds(5))
+                .maxPause(Duration.ofSeconds(1))
+                .build();
+
+        //when
+        limiter.pause(Duration.ofHours(1));
+        long wait = limiter.reserve();
+
+        //then
+        assertTrue(wait > 0 && wait <= Duration.ofSeconds(1).toNanos(), "waits " + wait);
+    }
+}
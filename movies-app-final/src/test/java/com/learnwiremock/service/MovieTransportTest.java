@@ -0,0 +1,134 @@
+package com.learnwiremock.service;
+
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(WireMockExtension.class)
+public class MovieTransportTest {
+
+    MovieTransport transport;
+    MovieConnectionProvider connectionProvider;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8088)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @BeforeEach
+    void setUp() {
+        connectionProvider = MovieConnectionProvider.builder("movies-test").build();
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionProvider.dispose();
+        if (transport != null) {
+            transport.dispose();
+        }
+    }
+
+    private MoviesRestClient moviesRestClient() {
+        return MoviesRestClient.builder()
+                .baseUrl(String.format("http://localhost:%s/", wireMockServer.port()))
+                .connectionProvider(connectionProvider)
+                .transport(transport)
+                .build();
+    }
+
+    @Test
+    void dedicatedEventLoops_preferNative() {
+        //given
+        transport = MovieTransport.builder("movies-transport")
+                .eventLoopThreads(2)
+                .preferNative(true)
+                .receiveBufferSize(256 * 1024)
+                .sendBufferSize(64 * 1024)
+                .keepAlive(true)
+                .build();
+
+        //when
+        String eventLoopThread = moviesRestClient().retrieveMovieByIdMono(1)
+                .map(movie -> Thread.currentThread().getName())
+                .block();
+
+        //then
+        assertTrue(eventLoopThread.startsWith("movies-transport"), eventLoopThread);
+        assertEquals(Epoll.isAvailable() ? EpollSocketChannel.class : NioSocketChannel.class, transport.getChannelType());
+    }
+
+    @Test
+    void dedicatedEventLoops_nio() {
+        //given
+        transport = MovieTransport.builder("movies-transport")
+                .eventLoopThreads(1)
+                .preferNative(false)
+                .build();
+
+        //when
+        String eventLoopThread = moviesRestClient().retrieveMovieByIdMono(1)
+                .map(movie -> Thread.currentThread().getName())
+                .block();
+
+        //then
+        assertTrue(eventLoopThread.startsWith("movies-transport-nio"), eventLoopThread);
+        assertEquals(NioSocketChannel.class, transport.getChannelType());
+    }
+
+    @Test
+    void sharedEventLoops_areNotDisposed() {
+        //given
+        transport = MovieTransport.builder("movies-transport").build();
+
+        //when
+        moviesRestClient().retrieveMovieById(1);
+        transport.dispose();
+
+        //then
+        assertFalse(transport.isDisposed());
+        assertNotNull(moviesRestClient().retrieveMovieById(2));
+    }
+
+    @Test
+    void defaults_nioEvenWithEpollOnTheClasspath() {
+        //given
+        transport = MovieTransport.builder("movies-transport").build();
+
+        //when
+        String eventLoopThread = moviesRestClient().retrieveMovieByIdMono(1)
+                .map(movie -> Thread.currentThread().getName())
+                .block();
+
+        //then the shared loops, on NIO
+        assertTrue(eventLoopThread.startsWith("reactor-http-nio"), eventLoopThread);
+        assertEquals(NioSocketChannel.class, transport.getChannelType());
+    }
+}
@@ -0,0 +1,159 @@
+package com.learnwiremock.service;
+
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.exception.BulkheadFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.learnwiremock.constants.MoviesAppConstants.ADD_MOVIE_V1;
+import static com.learnwiremock.constants.MoviesAppConstants.GET_ALL_MOVIES_V1;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(WireMockExtension.class)
+public class MoviesRestClientBulkheadTest {
+
+    MoviesRestClient moviesRestClient;
+    MovieBulkheads bulkheads;
+    SimpleMeterRegistry meterRegistry;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8088)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @BeforeEach
+    void setUp() {
+        WebClient webClient = WebClient.create(String.format("http://localhost:%s/", wireMockServer.port()));
+        bulkheads = new MovieBulkheads(2, 1, 1);
+        meterRegistry = new SimpleMeterRegistry();
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .meterRegistry(meterRegistry)
+                .bulkheads(bulkheads)
+                .build();
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+    }
+
+    private static void awaitActiveCalls(MovieBulkhead bulkhead, int activeCalls) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (bulkhead.getActiveCalls() != activeCalls && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(activeCalls, bulkhead.getActiveCalls());
+    }
+
+    @Test
+    void addMovie_slowWritesDoNotStarveReads() throws InterruptedException {
+
+        //given
+        stubFor(post(urlPathEqualTo(ADD_MOVIE_V1))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("add-movie.json")
+                        .withFixedDelay(2000)));
+        Movie movie = new Movie(null, "Toys Story 4", "Tom Hanks, Tim Allen", 2019, LocalDate.of(2019, 06, 20));
+        Disposable slowWrite = moviesRestClient.addMovieMono(movie).subscribe();
+        awaitActiveCalls(bulkheads.getWrites(), 1);
+
+        //when
+        BulkheadFullException bulkheadFullException = assertThrows(BulkheadFullException.class, () -> moviesRestClient.addMovie(movie));
+        Movie readMovie = moviesRestClient.retrieveMovieById(1);
+
+        //then
+        assertEquals("writes", bulkheadFullException.getBulkheadName());
+        assertEquals("Batman Begins", readMovie.getName());
+        verify(exactly(1), postRequestedFor(urlPathEqualTo(ADD_MOVIE_V1)));
+        slowWrite.dispose();
+        awaitActiveCalls(bulkheads.getWrites(), 0);
+    }
+
+    @Test
+    void retrieveAllMovies_catalogDownloadsDoNotStarveReads() throws InterruptedException {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")
+                        .withFixedDelay(2000)));
+        Disposable slowDownload = moviesRestClient.retrieveAllMoviesFlux().subscribe();
+        awaitActiveCalls(bulkheads.getAllMovies(), 1);
+
+        //when
+        assertThrows(BulkheadFullException.class, () -> moviesRestClient.retrieveAllMovies());
+        Movie readMovie = moviesRestClient.retrieveMovieById(1);
+
+        //then
+        assertEquals("Batman Begins", readMovie.getName());
+        slowDownload.dispose();
+        awaitActiveCalls(bulkheads.getAllMovies(), 0);
+    }
+
+    @Test
+    void retrieveAllMovies_permitIsReleased() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        //when
+        List<Movie> first = moviesRestClient.retrieveAllMovies();
+        List<Movie> second = moviesRestClient.retrieveAllMovies();
+
+        //then
+        assertEquals(first.size(), second.size());
+        assertEquals(0, bulkheads.getAllMovies().getActiveCalls());
+    }
+
+    @Test
+    void bulkheads_arePublished() throws InterruptedException {
+
+        //given
+        stubFor(post(urlPathEqualTo(ADD_MOVIE_V1))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("add-movie.json")
+                        .withFixedDelay(2000)));
+        Movie movie = new Movie(null, "Toys Story 4", "Tom Hanks, Tim Allen", 2019, LocalDate.of(2019, 06, 20));
+        Disposable slowWrite = moviesRestClient.addMovieMono(movie).subscribe();
+        awaitActiveCalls(bulkheads.getWrites(), 1);
+
+        //when
+        assertThrows(BulkheadFullException.class, () -> moviesRestClient.addMovie(movie));
+
+        //then
+        assertEquals(1, meterRegistry.get(MoviesClientMetrics.BULKHEAD_MAX).tag("bulkhead", "writes").gauge().value());
+        assertEquals(1, meterRegistry.get(MoviesClientMetrics.BULKHEAD_ACTIVE).tag("bulkhead", "writes").gauge().value());
+        assertEquals(1, meterRegistry.get(MoviesClientMetrics.BULKHEAD_REJECTED).tag("bulkhead", "writes").functionCounter().count());
+        assertEquals(0, meterRegistry.get(MoviesClientMetrics.BULKHEAD_REJECTED).tag("bulkhead", "reads").functionCounter().count());
+        slowWrite.dispose();
+    }
+}
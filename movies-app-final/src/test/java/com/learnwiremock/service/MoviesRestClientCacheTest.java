@@ -0,0 +1,390 @@
+package com.learnwiremock.service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.exception.MovieErrorResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.learnwiremock.constants.MoviesAppConstants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(WireMockExtension.class)
+public class MoviesRestClientCacheTest {
+
+    MoviesRestClient moviesRestClient;
+    WebClient webClient;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8088)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @BeforeEach
+    void setUp() {
+        int port = wireMockServer.port();
+        String baseUrl = String.format("http://localhost:%s/", port);
+        webClient = WebClient.create(baseUrl);
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .movieCache(2, Duration.ofMinutes(10))
+                .notFoundCache(100, Duration.ofSeconds(30))
+                .build();
+
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")));
+    }
+
+    @Test
+    void retrieveMovieById_servedFromCache() {
+
+        //when
+        Movie movie = moviesRestClient.retrieveMovieById(1);
+        Movie cachedMovie = moviesRestClient.retrieveMovieById(1);
+
+        //then
+        assertEquals(movie, cachedMovie);
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+        CacheStats stats = moviesRestClient.getMovieCacheStats();
+        assertEquals(1, stats.hitCount());
+        assertEquals(1, stats.missCount());
+    }
+
+    @Test
+    void retrieveMovieById_recordsCacheMetrics() {
+        //given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .movieCache(2, Duration.ofMinutes(10))
+                .notFoundCache(100, Duration.ofSeconds(30))
+                .meterRegistry(meterRegistry)
+                .build();
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/100"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieId.json")));
+
+        //when
+        moviesRestClient.retrieveMovieById(1);
+        moviesRestClient.retrieveMovieById(1);
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(100));
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(100));
+
+        //then
+        assertEquals(1, meterRegistry.get("cache.gets").tags("cache", "movies", "result", "hit").functionCounter().count());
+        assertEquals(3, meterRegistry.get("cache.gets").tags("cache", "movies", "result", "miss").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.size").tags("cache", "movies").gauge().value());
+        assertEquals(1, meterRegistry.get("cache.gets").tags("cache", "moviesNotFound", "result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.size").tags("cache", "moviesNotFound").gauge().value());
+    }
+
+    @Test
+    void retrieveMovieById_expiresAfterTimeToLive() throws InterruptedException {
+        //given
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .movieCache(10, Duration.ofMillis(200))
+                .build();
+
+        //when
+        moviesRestClient.retrieveMovieById(1);
+        Thread.sleep(300);
+        moviesRestClient.retrieveMovieById(1);
+
+        //then
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+    }
+
+    @Test
+    void retrieveMovieById_evictsWhenFull() {
+
+        //when
+        for (int movieId = 1; movieId <= 5; movieId++) {
+            moviesRestClient.retrieveMovieById(movieId);
+        }
+
+        //then
+        assertEquals(3, moviesRestClient.getMovieCacheStats().evictionCount());
+    }
+
+    @Test
+    void updateMovie_invalidatesCache() {
+        //given
+        stubFor(put(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("updatemovie-template.json")));
+        moviesRestClient.retrieveMovieById(1);
+
+        //when
+        moviesRestClient.updateMovie(1, new Movie(null, null, "ABC", null, null));
+        moviesRestClient.retrieveMovieById(1);
+
+        //then
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+    }
+
+    @Test
+    void updateMovie_duringLookup_staleMovieIsNotCached() throws Exception {
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withFixedDelay(1000)));
+        stubFor(put(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("updatemovie-template.json")));
+        CompletableFuture<Movie> lookup = moviesRestClient.retrieveMovieByIdMono(1).toFuture();
+        Thread.sleep(200);
+
+        //when the update completes while the lookup that started before it is still in flight
+        moviesRestClient.updateMovie(1, new Movie(null, null, "ABC", null, null));
+        lookup.get(5, TimeUnit.SECONDS);
+        moviesRestClient.retrieveMovieById(1);
+
+        //then the movie read before the update was not cached
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+    }
+
+    @Test
+    void deleteMovie_invalidatesCache() {
+        //given
+        stubFor(delete(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withBody("Movie Deleted Successfully")));
+        moviesRestClient.retrieveMovieById(1);
+
+        //when
+        moviesRestClient.deleteMovie(1);
+        moviesRestClient.retrieveMovieById(1);
+
+        //then
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+    }
+
+    @Test
+    void deleteMovieByName_invalidatesCache() {
+        //given
+        stubFor(delete(urlPathEqualTo(MOVIE_BY_NAME_QUERY_PARAM_V1))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())));
+        moviesRestClient.retrieveMovieById(1);
+        moviesRestClient.retrieveMovieById(2);
+
+        //when
+        moviesRestClient.deleteMovieByName("Batman Begins");
+        moviesRestClient.retrieveMovieById(1);
+        moviesRestClient.retrieveMovieById(2);
+
+        //then
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/2")));
+    }
+
+    @Test
+    void retrieveMovieById_notFoundIsCached() {
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/100"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieId.json")));
+
+        //when
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(100));
+        MovieErrorResponse movieErrorResponse = assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(100));
+
+        //then
+        assertEquals("Not Found", movieErrorResponse.getMessage());
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/100")));
+        assertEquals(1, moviesRestClient.getNotFoundCacheStats().hitCount());
+    }
+
+    @Test
+    void retrieveMoviebyName_notFoundIsCached() {
+        //given
+        String movieName = "ABC";
+        stubFor(get(urlEqualTo(MOVIE_BY_NAME_QUERY_PARAM_V1 + "?movie_name=" + movieName))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieName.json")));
+
+        //when
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMoviebyName(movieName));
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMoviebyName(movieName));
+
+        //then
+        verify(exactly(1), getRequestedFor(urlEqualTo(MOVIE_BY_NAME_QUERY_PARAM_V1 + "?movie_name=" + movieName)));
+    }
+
+    @Test
+    void retrieveMoviebyYear_notFoundIsCached() {
+        //given
+        Integer year = 1950;
+        stubFor(get(urlEqualTo(MOVIE_BY_YEAR_QUERY_PARAM_V1 + "?year=" + year))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieyear.json")));
+
+        //when
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMoviebyYear(year));
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMoviebyYear(year));
+
+        //then
+        verify(exactly(1), getRequestedFor(urlEqualTo(MOVIE_BY_YEAR_QUERY_PARAM_V1 + "?year=" + year)));
+    }
+
+    @Test
+    void retrieveMoviebyName_serverErrorIsNotCached() {
+        //given
+        String movieName = "ABC";
+        stubFor(get(urlEqualTo(MOVIE_BY_NAME_QUERY_PARAM_V1 + "?movie_name=" + movieName))
+                .willReturn(serverError()));
+
+        //when
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMoviebyName(movieName));
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMoviebyName(movieName));
+
+        //then
+        verify(exactly(2), getRequestedFor(urlEqualTo(MOVIE_BY_NAME_QUERY_PARAM_V1 + "?movie_name=" + movieName)));
+    }
+
+    @Test
+    void addMovie_forgetsNotFoundName() {
+        //given
+        String movieName = "Toys Story 4";
+        stubFor(get(urlPathEqualTo(MOVIE_BY_NAME_QUERY_PARAM_V1))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieName.json")));
+        stubFor(post(urlPathEqualTo(ADD_MOVIE_V1))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("add-movie.json")));
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMoviebyName(movieName));
+
+        //when
+        moviesRestClient.addMovie(new Movie(null, movieName, "Tom Hanks, Tim Allen", 2019, LocalDate.of(2019, 06, 20)));
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMoviebyName(movieName));
+
+        //then
+        verify(exactly(2), getRequestedFor(urlPathEqualTo(MOVIE_BY_NAME_QUERY_PARAM_V1)));
+    }
+
+    @Test
+    void retrieveAllMovies_revalidatesWithETag() {
+        //given
+        String eTag = "\"catalog-v1\"";
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.ETAG, eTag)
+                        .withBodyFile("all-movies.json")));
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .atPriority(1)
+                .withHeader(HttpHeaders.IF_NONE_MATCH, equalTo(eTag))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_MODIFIED.value())));
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .conditionalGet(true)
+                .build();
+
+        //when
+        List<Movie> movieList = moviesRestClient.retrieveAllMovies();
+        List<Movie> revalidatedMovieList = moviesRestClient.retrieveAllMovies();
+
+        //then
+        assertTrue(movieList.size() > 0);
+        assertEquals(movieList, revalidatedMovieList);
+        verify(exactly(1), getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES_V1)).withHeader(HttpHeaders.IF_NONE_MATCH, equalTo(eTag)));
+    }
+
+    @Test
+    void retrieveAllMovies_revalidatesWithLastModified() {
+        //given
+        String lastModified = "Wed, 21 Oct 2015 07:28:00 GMT";
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.LAST_MODIFIED, lastModified)
+                        .withBodyFile("all-movies.json")));
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .atPriority(1)
+                .withHeader(HttpHeaders.IF_MODIFIED_SINCE, equalTo(lastModified))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_MODIFIED.value())));
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .conditionalGet(true)
+                .build();
+
+        //when
+        List<Movie> movieList = moviesRestClient.retrieveAllMovies();
+        List<Movie> revalidatedMovieList = moviesRestClient.retrieveAllMovies();
+
+        //then
+        assertEquals(movieList, revalidatedMovieList);
+        verify(exactly(1), getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES_V1)).withHeader(HttpHeaders.IF_MODIFIED_SINCE, equalTo(lastModified)));
+    }
+
+    @Test
+    void retrieveAllMovies_conditionalGet_serverError() {
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(serverError()));
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .conditionalGet(true)
+                .build();
+
+        //then
+        MovieErrorResponse movieErrorResponse = assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveAllMovies());
+        assertEquals("Internal Server Error", movieErrorResponse.getMessage());
+    }
+}
@@ -0,0 +1,277 @@
+package com.learnwiremock.service;
+
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.exception.CircuitBreakerOpenException;
+import com.learnwiremock.exception.MovieErrorResponse;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.tcp.TcpClient;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.learnwiremock.constants.MoviesAppConstants.ADD_MOVIE_V1;
+import static com.learnwiremock.constants.MoviesAppConstants.GET_ALL_MOVIES_V1;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(WireMockExtension.class)
+public class MoviesRestClientCircuitBreakerTest {
+
+    MoviesRestClient moviesRestClient;
+    MovieCircuitBreaker reads;
+    MovieCircuitBreaker writes;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8088)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    TcpClient tcpClient = TcpClient.create()
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+            .doOnConnected(connection -> {
+                connection.addHandlerLast(new ReadTimeoutHandler(5))
+                        .addHandlerLast(new WriteTimeoutHandler(5));
+            });
+
+    @BeforeEach
+    void setUp() {
+        String baseUrl = String.format("http://localhost:%s/", wireMockServer.port());
+        WebClient webClient = WebClient.builder().clientConnector(new ReactorClientHttpConnector(HttpClient.from(tcpClient)))
+                .baseUrl(baseUrl).build();
+        reads = circuitBreaker("reads");
+        writes = circuitBreaker("writes");
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .circuitBreakers(reads, writes)
+                .build();
+    }
+
+    private MovieCircuitBreaker circuitBreaker(String name) {
+        return MovieCircuitBreaker.builder(name)
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .slowCallRateThreshold(50)
+                .slowCallDuration(Duration.ofMillis(300))
+                .waitDurationInOpenState(Duration.ofMillis(500))
+                .permittedCallsInHalfOpenState(2)
+                .build();
+    }
+
+    @Test
+    void retrieveAllMovies_emptyResponse_opensAndFailsFast() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse().withFault(Fault.EMPTY_RESPONSE)));
+
+        //when
+        for (int call = 0; call < 4; call++) {
+            assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveAllMovies());
+        }
+
+        //then
+        CircuitBreakerOpenException circuitBreakerOpenException = assertThrows(CircuitBreakerOpenException.class, () -> moviesRestClient.retrieveAllMovies());
+        assertEquals("reads", circuitBreakerOpenException.getCircuitBreakerName());
+        assertEquals(MovieCircuitBreaker.State.OPEN, reads.getState());
+        assertEquals(1, reads.getRejectedCallCount());
+        verify(exactly(4), getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES_V1)));
+    }
+
+    @Test
+    void retrieveAllMovies_randomDataThenClose_opens() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse().withFault(Fault.RANDOM_DATA_THEN_CLOSE)));
+
+        //when
+        for (int call = 0; call < 4; call++) {
+            assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveAllMovies());
+        }
+
+        //then
+        assertThrows(CircuitBreakerOpenException.class, () -> moviesRestClient.retrieveAllMovies());
+        verify(exactly(4), getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES_V1)));
+    }
+
+    @Test
+    void retrieveMovieById_fixedDelay_slowCallsOpen() {
+
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(400)));
+
+        //when
+        for (int movieId = 1; movieId <= 4; movieId++) {
+            assertNotNull(moviesRestClient.retrieveMovieById(movieId));
+        }
+
+        //then
+        assertThrows(CircuitBreakerOpenException.class, () -> moviesRestClient.retrieveMovieById(5));
+        assertEquals(MovieCircuitBreaker.State.OPEN, reads.getState());
+    }
+
+    @Test
+    void retrieveMovieById_notFound_doesNotOpen() {
+
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(notFound()));
+
+        //when
+        for (int movieId = 1; movieId <= 6; movieId++) {
+            int id = movieId;
+            MovieErrorResponse movieErrorResponse = assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(id));
+            assertFalse(movieErrorResponse instanceof CircuitBreakerOpenException);
+        }
+
+        //then
+        assertEquals(MovieCircuitBreaker.State.CLOSED, reads.getState());
+        verify(exactly(6), getRequestedFor(urlPathMatching("/movieservice/v1/movie/[0-9]+")));
+    }
+
+    @Test
+    void addMovie_writesStayClosedWhileReadsAreOpen() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse().withFault(Fault.EMPTY_RESPONSE)));
+        stubFor(post(urlPathEqualTo(ADD_MOVIE_V1))
+                .willReturn(aResponse()
+                        .withStatus(201)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("add-movie.json")));
+        for (int call = 0; call < 4; call++) {
+            assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveAllMovies());
+        }
+
+        //when
+        Movie movie = new Movie(null, "Toys Story 4", "Tom Hanks, Tim Allen", 2019, LocalDate.of(2019, 06, 20));
+        Movie addedMovie = moviesRestClient.addMovie(movie);
+
+        //then
+        assertNotNull(addedMovie.getMovie_id());
+        assertEquals(MovieCircuitBreaker.State.OPEN, reads.getState());
+        assertEquals(MovieCircuitBreaker.State.CLOSED, writes.getState());
+    }
+
+    @Test
+    void retrieveAllMovies_halfOpen_closesOnceTheServiceRecovers() throws InterruptedException {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse().withFault(Fault.EMPTY_RESPONSE)));
+        for (int call = 0; call < 4; call++) {
+            assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveAllMovies());
+        }
+        assertEquals(MovieCircuitBreaker.State.OPEN, reads.getState());
+
+        //when
+        Thread.sleep(600);
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+        moviesRestClient.retrieveAllMovies();
+        assertEquals(MovieCircuitBreaker.State.HALF_OPEN, reads.getState());
+        moviesRestClient.retrieveAllMovies();
+
+        //then
+        assertEquals(MovieCircuitBreaker.State.CLOSED, reads.getState());
+    }
+
+    @Test
+    void retrieveAllMovies_halfOpen_reopensOnFailure() throws InterruptedException {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(serverError()));
+        for (int call = 0; call < 4; call++) {
+            assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveAllMovies());
+        }
+
+        //when
+        Thread.sleep(600);
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveAllMovies());
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveAllMovies());
+
+        //then
+        assertEquals(MovieCircuitBreaker.State.OPEN, reads.getState());
+        assertThrows(CircuitBreakerOpenException.class, () -> moviesRestClient.retrieveAllMovies());
+        verify(exactly(6), getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES_V1)));
+    }
+
+    @Test
+    void halfOpen_callAdmittedWhileClosed_isNotATrialCall() throws InterruptedException {
+
+        //given
+        long closedPermission = reads.tryAcquirePermission();
+        openReads();
+        Thread.sleep(600);
+        long trialPermission = reads.tryAcquirePermission();
+        assertEquals(MovieCircuitBreaker.State.HALF_OPEN, reads.getState());
+
+        //when
+        reads.onResult(closedPermission, 0, false);
+        reads.onResult(trialPermission, 0, false);
+
+        //then
+        assertEquals(MovieCircuitBreaker.State.HALF_OPEN, reads.getState());
+        reads.onResult(reads.tryAcquirePermission(), 0, false);
+        assertEquals(MovieCircuitBreaker.State.CLOSED, reads.getState());
+    }
+
+    @Test
+    void halfOpen_cancelledCallAdmittedWhileClosed_doesNotReleaseATrialPermit() throws InterruptedException {
+
+        //given
+        long closedPermission = reads.tryAcquirePermission();
+        openReads();
+        Thread.sleep(600);
+        assertNotEquals(MovieCircuitBreaker.NOT_PERMITTED, reads.tryAcquirePermission());
+        long trialPermission = reads.tryAcquirePermission();
+        assertNotEquals(MovieCircuitBreaker.NOT_PERMITTED, trialPermission);
+
+        //when
+        reads.releasePermission(closedPermission);
+
+        //then
+        assertEquals(MovieCircuitBreaker.NOT_PERMITTED, reads.tryAcquirePermission());
+        reads.releasePermission(trialPermission);
+        assertNotEquals(MovieCircuitBreaker.NOT_PERMITTED, reads.tryAcquirePermission());
+    }
+
+    private void openReads() {
+        for (int call = 0; call < 4; call++) {
+            reads.onResult(reads.tryAcquirePermission(), 0, true);
+        }
+        assertEquals(MovieCircuitBreaker.State.OPEN, reads.getState());
+    }
+}
@@ -0,0 +1,145 @@
+package com.learnwiremock.service;
+
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.exception.MovieErrorResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.learnwiremock.constants.MoviesAppConstants.GET_ALL_MOVIES_V1;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(WireMockExtension.class)
+public class MoviesRestClientCompressionTest {
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8088)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    private MoviesRestClient moviesRestClient(boolean compression) {
+        return MoviesRestClient.builder()
+                .baseUrl(String.format("http://localhost:%s/", wireMockServer.port()))
+                .compression(compression)
+                .lightweightErrors(true)
+                .build();
+    }
+
+    private static byte[] allMoviesJson() throws Exception {
+        return Files.readAllBytes(Paths.get(MoviesRestClientCompressionTest.class.getResource("/__files/all-movies.json").toURI()));
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(compressed)) {
+            deflate.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    @Test
+    void retrieveAllMovies_gzip() throws Exception {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .withHeader(HttpHeaders.ACCEPT_ENCODING, containing("gzip"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .withBody(gzip(allMoviesJson()))));
+
+        //when
+        List<Movie> movieList = moviesRestClient(true).retrieveAllMovies();
+
+        //then
+        assertFalse(movieList.isEmpty());
+        assertNotNull(movieList.get(0).getName());
+    }
+
+    @Test
+    void retrieveAllMovies_deflate() throws Exception {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.CONTENT_ENCODING, "deflate")
+                        .withBody(deflate(allMoviesJson()))));
+
+        //when
+        List<Movie> movieList = moviesRestClient(true).retrieveAllMovies();
+
+        //then
+        assertFalse(movieList.isEmpty());
+    }
+
+    @Test
+    void retrieveAllMovies_compressionDisabledByDefault() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        //when
+        List<Movie> movieList = moviesRestClient(false).retrieveAllMovies();
+
+        //then
+        assertFalse(movieList.isEmpty());
+        verify(getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .withHeader(HttpHeaders.ACCEPT_ENCODING, absent()));
+    }
+
+    @Test
+    void retrieveMovieById_gzippedErrorBody() throws Exception {
+
+        //given
+        String body = "{\"message\":\"No Movie Available with the given Id - 100\"}";
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/100"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .withBody(gzip(body.getBytes(StandardCharsets.UTF_8)))));
+
+        //when
+        MovieErrorResponse exception = assertThrows(MovieErrorResponse.class, () -> moviesRestClient(true).retrieveMovieById(100));
+
+        //then
+        assertEquals(HttpStatus.NOT_FOUND.value(), exception.getStatusCode());
+        assertEquals(body, exception.getResponseBody());
+    }
+}
@@ -0,0 +1,157 @@
+package com.learnwiremock.service;
+
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.exception.ConcurrencyLimitExceededException;
+import com.learnwiremock.exception.MovieErrorResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.learnwiremock.constants.MoviesAppConstants.GET_ALL_MOVIES_V1;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(WireMockExtension.class)
+public class MoviesRestClientConcurrencyLimitTest {
+
+    MoviesRestClient moviesRestClient;
+    WebClient webClient;
+    SimpleMeterRegistry meterRegistry;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8088)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @BeforeEach
+    void setUp() {
+        webClient = WebClient.create(String.format("http://localhost:%s/", wireMockServer.port()));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private MoviesRestClient moviesRestClient(AdaptiveConcurrencyLimiter limiter) {
+        return MoviesRestClient.builder()
+                .webClient(webClient)
+                .meterRegistry(meterRegistry)
+                .concurrencyLimiter(limiter)
+                .build();
+    }
+
+    private void stubMovie(int delayMillis) {
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(delayMillis)));
+    }
+
+    @Test
+    void retrieveMovieById_overLimitIsRejected() {
+
+        //given
+        moviesRestClient = moviesRestClient(AdaptiveConcurrencyLimiter.builder("movies")
+                .initialLimit(1)
+                .maxLimit(1)
+                .build());
+        stubMovie(500);
+
+        //when
+        Mono<Movie> first = moviesRestClient.retrieveMovieByIdMono(1);
+        Mono<Movie> second = moviesRestClient.retrieveMovieByIdMono(2).delaySubscription(Duration.ofMillis(100));
+        List<Object> results = Flux.merge(first, second)
+                .map(Object.class::cast)
+                .onErrorResume(ex -> Mono.just(ex))
+                .collectList()
+                .block();
+
+        //then
+        assertTrue(results.stream().anyMatch(result -> result instanceof ConcurrencyLimitExceededException), results.toString());
+        verify(exactly(1), getRequestedFor(urlPathMatching("/movieservice/v1/movie/[0-9]+")));
+    }
+
+    @Test
+    void retrieveMovieById_overLimitWaitsForPermit() {
+
+        //given
+        moviesRestClient = moviesRestClient(AdaptiveConcurrencyLimiter.builder("movies")
+                .initialLimit(1)
+                .maxLimit(1)
+                .maxWait(Duration.ofSeconds(5))
+                .build());
+        stubMovie(200);
+
+        //when
+        List<Movie> movies = Flux.merge(moviesRestClient.retrieveMovieByIdMono(1), moviesRestClient.retrieveMovieByIdMono(2))
+                .collectList()
+                .block();
+
+        //then
+        assertEquals(2, movies.size());
+        verify(exactly(2), getRequestedFor(urlPathMatching("/movieservice/v1/movie/[0-9]+")));
+    }
+
+    @Test
+    void retrieveAllMovies_serviceUnavailableShrinksLimit() {
+
+        //given
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder("movies")
+                .initialLimit(20)
+                .build();
+        moviesRestClient = moviesRestClient(limiter);
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(serverError().withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())));
+
+        //when
+        for (int call = 0; call < 5; call++) {
+            assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveAllMovies());
+        }
+
+        //then
+        assertTrue(limiter.getLimit() < 20, "limit " + limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void retrieveMovieById_limitIsPublished() {
+
+        //given
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder("movies")
+                .initialLimit(20)
+                .build();
+        moviesRestClient = moviesRestClient(limiter);
+        stubMovie(0);
+
+        //when
+        moviesRestClient.retrieveMovieById(1);
+
+        //then
+        assertEquals(limiter.getLimit(), meterRegistry.get(MoviesClientMetrics.CONCURRENCY_LIMIT)
+                .tag("limiter", "movies")
+                .gauge()
+                .value());
+        assertEquals(0, meterRegistry.get(MoviesClientMetrics.CONCURRENCY_IN_FLIGHT).gauge().value());
+        assertEquals(0, meterRegistry.get(MoviesClientMetrics.CONCURRENCY_REJECTED).functionCounter().count());
+    }
+}
@@ -0,0 +1,369 @@
+package com.learnwiremock.service;
+
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.exception.CircuitBreakerOpenException;
+import com.learnwiremock.exception.DeadlineExceededException;
+import com.learnwiremock.exception.MovieErrorResponse;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.learnwiremock.constants.MoviesAppConstants.GET_ALL_MOVIES_V1;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(WireMockExtension.class)
+public class MoviesRestClientDeadlineTest {
+
+    MoviesRestClient moviesRestClient;
+    WebClient webClient;
+    MovieDeadlines deadlines;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8088)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @BeforeEach
+    void setUp() {
+        webClient = WebClient.create(String.format("http://localhost:%s/", wireMockServer.port()));
+        deadlines = MovieDeadlines.builder()
+                .defaultTimeout(Duration.ofMillis(500))
+                .timeout("retrieveAllMovies", Duration.ofSeconds(3))
+                .build();
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .deadlines(deadlines)
+                .build();
+    }
+
+    private static long millisSince(long start) {
+        return Duration.ofNanos(System.nanoTime() - start).toMillis();
+    }
+
+    @Test
+    void retrieveMovieById_operationDeadline() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(3000)));
+
+        //when
+        long start = System.nanoTime();
+        DeadlineExceededException exception = assertThrows(DeadlineExceededException.class, () -> moviesRestClient.retrieveMovieById(1));
+
+        //then
+        assertEquals("retrieveMovieById", exception.getOperation());
+        assertTrue(millisSince(start) < 2000, "took " + millisSince(start) + "ms");
+    }
+
+    @Test
+    void retrieveAllMovies_slowCatalogWithinItsDeadline() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")
+                        .withFixedDelay(1000)));
+
+        //when
+        List<Movie> movieList = moviesRestClient.retrieveAllMovies();
+
+        //then
+        assertFalse(movieList.isEmpty());
+    }
+
+    @Test
+    void retrieveAllMovies_callerDeadlineIsEarlier() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")
+                        .withFixedDelay(1000)));
+
+        //when
+        long start = System.nanoTime();
+        assertThrows(DeadlineExceededException.class, () -> moviesRestClient.retrieveAllMoviesFlux()
+                .collectList()
+                .subscriberContext(Deadline.after(Duration.ofMillis(300)).asContext())
+                .block());
+
+        //then
+        assertTrue(millisSince(start) < 900, "took " + millisSince(start) + "ms");
+    }
+
+    private MoviesRestClient streamingClient(Duration readTimeout) {
+        return MoviesRestClient.builder()
+                .baseUrl(String.format("http://localhost:%s/", wireMockServer.port()))
+                .readTimeout(readTimeout)
+                .deadlines(deadlines)
+                .build();
+    }
+
+    private static void stubDribbledCatalog(int chunks, int durationMillis) {
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MoviesRestClient.APPLICATION_NDJSON.toString())
+                        .withBodyFile("all-movies.ndjson")
+                        .withChunkedDribbleDelay(chunks, durationMillis)));
+    }
+
+    @Test
+    void streamAllMovies_noTotalDeadlineWhileMoviesKeepArriving() {
+
+        //given the default deadline of 500ms and a catalog sent over 1.5s
+        stubDribbledCatalog(10, 1500);
+
+        //when
+        long start = System.nanoTime();
+        List<Movie> movieList = streamingClient(Duration.ofSeconds(1)).streamAllMoviesFlux()
+                .collectList()
+                .block();
+
+        //then
+        assertEquals(10, movieList.size());
+        assertTrue(millisSince(start) >= 1000, "took " + millisSince(start) + "ms");
+        assertNull(deadlines.getTimeout("streamAllMovies"));
+    }
+
+    @Test
+    void streamAllMovies_stalledBodyHitsReadTimeout() {
+
+        //given a catalog that stops for 1.5s halfway
+        stubDribbledCatalog(2, 3000);
+
+        //when
+        long start = System.nanoTime();
+        MovieErrorResponse exception = assertThrows(MovieErrorResponse.class, () -> streamingClient(Duration.ofMillis(500)).streamAllMoviesFlux()
+                .collectList()
+                .block());
+
+        //then
+        assertTrue(exception.getCause() instanceof ReadTimeoutException, String.valueOf(exception.getCause()));
+        assertTrue(millisSince(start) < 1400, "took " + millisSince(start) + "ms");
+    }
+
+    @Test
+    void streamAllMovies_callerDeadline() {
+
+        //given
+        stubDribbledCatalog(10, 1500);
+
+        //when
+        long start = System.nanoTime();
+        assertThrows(DeadlineExceededException.class, () -> streamingClient(Duration.ofSeconds(1)).streamAllMoviesFlux()
+                .collectList()
+                .subscriberContext(Deadline.after(Duration.ofMillis(300)).asContext())
+                .block());
+
+        //then
+        assertTrue(millisSince(start) < 1000, "took " + millisSince(start) + "ms");
+    }
+
+    @Test
+    void retrieveMovieById_shortDeadlineJoinsSlowLookup() throws Exception {
+
+        //given
+        MoviesRestClient client = MoviesRestClient.builder()
+                .webClient(webClient)
+                .deadlines(MovieDeadlines.builder()
+                        .defaultTimeout(Duration.ofSeconds(5))
+                        .build())
+                .build();
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(1500)));
+        CompletableFuture<Movie> slowCaller = client.retrieveMovieByIdMono(1).toFuture();
+        Thread.sleep(200);
+
+        //when
+        long start = System.nanoTime();
+        assertThrows(DeadlineExceededException.class, () -> client.retrieveMovieByIdMono(1)
+                .subscriberContext(Deadline.after(Duration.ofMillis(100)).asContext())
+                .block());
+
+        //then the joining caller gave up after its own 100ms, the lookup went on for the first one
+        assertTrue(millisSince(start) < 700, "took " + millisSince(start) + "ms");
+        assertNotNull(slowCaller.get(5, TimeUnit.SECONDS));
+        assertEquals(1, client.getCoalescedCallCount());
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+    }
+
+    @Test
+    void retrieveMovieById_shortDeadlineStartsLookupJoinedWithMoreTime() throws Exception {
+
+        //given
+        MoviesRestClient client = MoviesRestClient.builder()
+                .webClient(webClient)
+                .build();
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(1000)));
+        CompletableFuture<Movie> hastyCaller = client.retrieveMovieByIdMono(1)
+                .subscriberContext(Deadline.after(Duration.ofMillis(300)).asContext())
+                .toFuture();
+        Thread.sleep(100);
+
+        //when
+        Movie movie = client.retrieveMovieByIdMono(1)
+                .subscriberContext(Deadline.after(Duration.ofSeconds(5)).asContext())
+                .block();
+
+        //then the deadline of the caller that started the lookup did not cut it short
+        assertNotNull(movie);
+        ExecutionException exception = assertThrows(ExecutionException.class, hastyCaller::get);
+        assertTrue(exception.getCause() instanceof DeadlineExceededException, String.valueOf(exception.getCause()));
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+    }
+
+    @Test
+    void retrieveMovieById_callerDeadlineWithoutOperationDefaults() {
+
+        //given
+        MoviesRestClient client = MoviesRestClient.builder()
+                .webClient(webClient)
+                .build();
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(2000)));
+
+        //when
+        long start = System.nanoTime();
+        assertThrows(DeadlineExceededException.class, () -> client.retrieveMovieByIdMono(1)
+                .subscriberContext(Deadline.after(Duration.ofMillis(200)).asContext())
+                .block());
+
+        //then
+        assertTrue(millisSince(start) < 1500, "took " + millisSince(start) + "ms");
+    }
+
+    @Test
+    void retrieveMovieById_deadlineShrinksAcrossRetries() {
+
+        //given
+        MoviesRestClient retryingClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .deadlines(deadlines)
+                .retryFilter(RetryFilter.builder()
+                        .maxAttempts(3)
+                        .firstBackoff(Duration.ofMillis(10))
+                        .maxBackoff(Duration.ofMillis(10))
+                        .build())
+                .build();
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .inScenario("slow retry")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())
+                        .withFixedDelay(300))
+                .willSetStateTo("slow"));
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .inScenario("slow retry")
+                .whenScenarioStateIs("slow")
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(2000)));
+
+        //when
+        long start = System.nanoTime();
+        assertThrows(DeadlineExceededException.class, () -> retryingClient.retrieveMovieById(1));
+
+        //then the retry only got what the first attempt left of the 500ms
+        long took = millisSince(start);
+        assertTrue(took >= 450 && took < 1200, "took " + took + "ms");
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+    }
+
+    @Test
+    void retrieveMovieById_expiredAttemptsCountAsCircuitBreakerFailures() {
+
+        //given
+        MovieCircuitBreaker reads = MovieCircuitBreaker.builder("reads")
+                .slidingWindowSize(2)
+                .minimumNumberOfCalls(2)
+                .build();
+        MoviesRestClient guardedClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .deadlines(MovieDeadlines.builder()
+                        .defaultTimeout(Duration.ofMillis(200))
+                        .build())
+                .circuitBreakers(reads, MovieCircuitBreaker.builder("writes").build())
+                .build();
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(1000)));
+        // a cold first call can spend its 200ms before the attempt starts, a call cut off before its attempt is not counted
+        assertThrows(DeadlineExceededException.class, () -> moviesRestClient.retrieveMovieById(0));
+
+        //when
+        assertThrows(DeadlineExceededException.class, () -> guardedClient.retrieveMovieById(1));
+        assertThrows(DeadlineExceededException.class, () -> guardedClient.retrieveMovieById(2));
+
+        //then
+        assertEquals(MovieCircuitBreaker.State.OPEN, reads.getState());
+        assertThrows(CircuitBreakerOpenException.class, () -> guardedClient.retrieveMovieById(3));
+    }
+
+    @Test
+    void deadline_earlierOfOperationAndCaller() {
+
+        //given
+        Deadline callerDeadline = Deadline.after(Duration.ofMillis(100));
+
+        //when
+        Deadline withDefault = deadlines.deadline("retrieveMovieById", callerDeadline);
+        Deadline withLongerCaller = deadlines.deadline("retrieveMovieById", Deadline.after(Duration.ofMinutes(1)));
+        Deadline withoutCaller = deadlines.deadline("retrieveAllMovies", null);
+
+        //then
+        assertSame(callerDeadline, withDefault);
+        assertEquals(Duration.ofMillis(500), withLongerCaller.getTimeout());
+        assertEquals(Duration.ofSeconds(3), withoutCaller.getTimeout());
+        assertNull(MovieDeadlines.builder().build().deadline("retrieveMovieById", null));
+        assertNull(deadlines.deadline("streamAllMovies", null));
+        assertSame(callerDeadline, deadlines.deadline("streamAllMovies", callerDeadline));
+        assertEquals(Duration.ofMinutes(10), MovieDeadlines.builder()
+                .timeout("streamAllMovies", Duration.ofMinutes(10))
+                .build()
+                .getTimeout("streamAllMovies"));
+    }
+}
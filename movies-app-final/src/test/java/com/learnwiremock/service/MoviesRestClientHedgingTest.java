@@ -0,0 +1,133 @@
+package com.learnwiremock.service;
+
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.learnwiremock.dto.Movie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(WireMockExtension.class)
+public class MoviesRestClientHedgingTest {
+
+    MoviesRestClient moviesRestClient;
+    WebClient webClient;
+    MovieHedging hedging;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8088)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @BeforeEach
+    void setUp() {
+        webClient = WebClient.create(String.format("http://localhost:%s/", wireMockServer.port()));
+        hedging = hedging(new RetryBudget(0.1, RetryBudget.DEFAULT_MAX_TOKENS));
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .hedging(hedging)
+                .build();
+    }
+
+    private MovieHedging hedging(RetryBudget hedgeBudget) {
+        return MovieHedging.builder()
+                .delay(Duration.ofMillis(100))
+                .percentile(0)
+                .hedgeBudget(hedgeBudget)
+                .build();
+    }
+
+    private void stubSlowThenFastMovie() {
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .inScenario("slow first response")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")
+                        .withFixedDelay(3000))
+                .willSetStateTo("fast"));
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .inScenario("slow first response")
+                .whenScenarioStateIs("fast")
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+    }
+
+    @Test
+    void retrieveMovieById_hedgesSlowResponse() {
+
+        //given
+        stubSlowThenFastMovie();
+
+        //when
+        long start = System.nanoTime();
+        Movie movie = moviesRestClient.retrieveMovieById(1);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        //then
+        assertEquals("Batman Begins", movie.getName());
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(2)) < 0, "took " + elapsed);
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+        assertEquals(1, hedging.getHedgeCount());
+    }
+
+    @Test
+    void retrieveMovieById_fastResponseIsNotHedged() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+
+        //when
+        Movie movie = moviesRestClient.retrieveMovieById(1);
+
+        //then
+        assertEquals("Batman Begins", movie.getName());
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+        assertEquals(0, hedging.getHedgeCount());
+    }
+
+    @Test
+    void retrieveMovieById_hedgeBudgetExhausted() {
+
+        //given
+        RetryBudget hedgeBudget = new RetryBudget(0, 0);
+        hedging = hedging(hedgeBudget);
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .hedging(hedging)
+                .build();
+        stubSlowThenFastMovie();
+
+        //when
+        Movie movie = moviesRestClient.retrieveMovieById(1);
+
+        //then - the slow response is waited for
+        assertEquals("Batman Begins", movie.getName());
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+        assertEquals(0, hedging.getHedgeCount());
+        assertEquals(1, hedgeBudget.getExhaustedCount());
+    }
+}
@@ -0,0 +1,263 @@
+package com.learnwiremock.service;
+
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.exception.MovieErrorResponse;
+import com.learnwiremock.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.learnwiremock.constants.MoviesAppConstants.GET_ALL_MOVIES_V1;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(WireMockExtension.class)
+public class MoviesRestClientRateLimitTest {
+
+    WebClient webClient;
+    SimpleMeterRegistry meterRegistry;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8088)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @BeforeEach
+    void setUp() {
+        webClient = WebClient.create(String.format("http://localhost:%s/", wireMockServer.port()));
+        meterRegistry = new SimpleMeterRegistry();
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+    }
+
+    private MoviesRestClient moviesRestClient(MovieRateLimiter limiter, boolean lightweightErrors) {
+        return MoviesRestClient.builder()
+                .webClient(webClient)
+                .meterRegistry(meterRegistry)
+                .lightweightErrors(lightweightErrors)
+                .rateLimiter("retrieveMovieById", limiter)
+                .build();
+    }
+
+    private void stubTooManyRequests(String retryAfter) {
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .inScenario("throttled")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.TOO_MANY_REQUESTS.value())
+                        .withHeader(HttpHeaders.RETRY_AFTER, retryAfter))
+                .willSetStateTo("recovered"));
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .inScenario("throttled")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+    }
+
+    @Test
+    void retrieveMovieById_burstThenRejected() {
+
+        //given
+        MovieRateLimiter limiter = MovieRateLimiter.builder("movieById")
+                .ratePerSecond(1)
+                .burst(2)
+                .maxWait(Duration.ZERO)
+                .build();
+        MoviesRestClient moviesRestClient = moviesRestClient(limiter, false);
+
+        //when
+        moviesRestClient.retrieveMovieById(1);
+        moviesRestClient.retrieveMovieById(2);
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class, () -> moviesRestClient.retrieveMovieById(3));
+
+        //then
+        assertEquals("movieById", exception.getLimiterName());
+        verify(exactly(2), getRequestedFor(urlPathMatching("/movieservice/v1/movie/[0-9]+")));
+    }
+
+    @Test
+    void retrieveMovieById_waitsForToken() throws ExecutionException, InterruptedException {
+
+        //given
+        MovieRateLimiter limiter = MovieRateLimiter.builder("movieById")
+                .ratePerSecond(4)
+                .burst(1)
+                .maxWait(Duration.ofSeconds(1))
+                .build();
+        MoviesRestClient moviesRestClient = moviesRestClient(limiter, false);
+        moviesRestClient.retrieveMovieById(1);
+
+        //when
+        long start = System.nanoTime();
+        CompletableFuture<Movie> movie = moviesRestClient.retrieveMovieByIdMono(2).toFuture();
+
+        //then
+        assertFalse(movie.isDone());
+        assertEquals("Batman Begins", movie.get().getName());
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(150).toNanos());
+        verify(exactly(2), getRequestedFor(urlPathMatching("/movieservice/v1/movie/[0-9]+")));
+    }
+
+    @Test
+    void retrieveMovieById_retryAfterPausesTheLimiter() throws InterruptedException {
+
+        //given
+        stubTooManyRequests("1");
+        MovieRateLimiter limiter = MovieRateLimiter.builder("movieById")
+                .burst(10)
+                .maxWait(Duration.ZERO)
+                .build();
+        MoviesRestClient moviesRestClient = moviesRestClient(limiter, false);
+
+        //when
+        MovieErrorResponse throttled = assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(1));
+        assertThrows(RateLimitExceededException.class, () -> moviesRestClient.retrieveMovieById(1));
+        Thread.sleep(1100);
+        Movie movie = moviesRestClient.retrieveMovieById(1);
+
+        //then
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), throttled.getStatusCode());
+        assertEquals("Batman Begins", movie.getName());
+        assertEquals(1, limiter.getPauseCount());
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+    }
+
+    @Test
+    void retrieveMovieById_retryAfterPausesTheLimiter_lightweightErrors() {
+
+        //given
+        stubTooManyRequests("1");
+        MovieRateLimiter limiter = MovieRateLimiter.builder("movieById")
+                .burst(10)
+                .maxWait(Duration.ofSeconds(2))
+                .build();
+        MoviesRestClient moviesRestClient = moviesRestClient(limiter, true);
+
+        //when
+        MovieErrorResponse throttled = assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(1));
+        long start = System.nanoTime();
+        Movie movie = moviesRestClient.retrieveMovieById(1);
+
+        //then
+        assertEquals(Duration.ofSeconds(1), throttled.getRetryAfter());
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(900).toNanos());
+        assertEquals("Batman Begins", movie.getName());
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/1")));
+    }
+
+    @Test
+    void retrieveMovieById_tooManyRequestsWithoutRetryAfter() {
+
+        //given
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.TOO_MANY_REQUESTS.value())));
+        MovieRateLimiter limiter = MovieRateLimiter.builder("movieById")
+                .maxWait(Duration.ZERO)
+                .build();
+        MoviesRestClient moviesRestClient = moviesRestClient(limiter, true);
+
+        //when
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(1));
+        Movie movie = moviesRestClient.retrieveMovieById(2);
+
+        //then
+        assertEquals("Batman Begins", movie.getName());
+        assertEquals(0, limiter.getPauseCount());
+    }
+
+    @Test
+    void retrieveAllMovies_otherOperationsAreNotLimited() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+        MovieRateLimiter limiter = MovieRateLimiter.builder("movieById")
+                .ratePerSecond(1)
+                .burst(1)
+                .maxWait(Duration.ZERO)
+                .build();
+        MoviesRestClient moviesRestClient = moviesRestClient(limiter, false);
+
+        //when
+        List<Movie> first = moviesRestClient.retrieveAllMovies();
+        List<Movie> second = moviesRestClient.retrieveAllMovies();
+        moviesRestClient.retrieveMovieById(1);
+
+        //then
+        assertEquals(first.size(), second.size());
+        assertThrows(RateLimitExceededException.class, () -> moviesRestClient.retrieveMovieById(2));
+    }
+
+    @Test
+    void rateLimiter_isPublished() {
+
+        //given
+        stubTooManyRequests("1");
+        MovieRateLimiter limiter = MovieRateLimiter.builder("movieById")
+                .maxWait(Duration.ZERO)
+                .build();
+        MoviesRestClient moviesRestClient = moviesRestClient(limiter, false);
+
+        //when
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(1));
+        assertThrows(RateLimitExceededException.class, () -> moviesRestClient.retrieveMovieById(1));
+
+        //then
+        assertEquals(1, meterRegistry.get(MoviesClientMetrics.RATE_LIMIT_REJECTED).tag("limiter", "movieById").functionCounter().count());
+        assertEquals(1, meterRegistry.get(MoviesClientMetrics.RATE_LIMIT_PAUSES).tag("limiter", "movieById").functionCounter().count());
+    }
+
+    @Test
+    void retryAfter_secondsAndHttpDate() {
+
+        //given
+        HttpHeaders seconds = new HttpHeaders();
+        seconds.set(HttpHeaders.RETRY_AFTER, "120");
+        HttpHeaders httpDate = new HttpHeaders();
+        httpDate.set(HttpHeaders.RETRY_AFTER, DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(30)));
+        HttpHeaders invalid = new HttpHeaders();
+        invalid.set(HttpHeaders.RETRY_AFTER, "soon");
+
+        //when
+        Duration secondsRetryAfter = RateLimitFilter.retryAfter(seconds);
+        Duration httpDateRetryAfter = RateLimitFilter.retryAfter(httpDate);
+
+        //then
+        assertEquals(Duration.ofSeconds(120), secondsRetryAfter);
+        assertTrue(httpDateRetryAfter.getSeconds() >= 28 && httpDateRetryAfter.getSeconds() <= 30, httpDateRetryAfter.toString());
+        assertNull(RateLimitFilter.retryAfter(invalid));
+        assertNull(RateLimitFilter.retryAfter(new HttpHeaders()));
+    }
+}
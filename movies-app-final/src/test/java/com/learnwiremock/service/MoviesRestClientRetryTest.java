@@ -0,0 +1,222 @@
+package com.learnwiremock.service;
+
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.learnwiremock.dto.Movie;
+import com.learnwiremock.exception.MovieErrorResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.learnwiremock.constants.MoviesAppConstants.ADD_MOVIE_V1;
+import static com.learnwiremock.constants.MoviesAppConstants.GET_ALL_MOVIES_V1;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(WireMockExtension.class)
+public class MoviesRestClientRetryTest {
+
+    MoviesRestClient moviesRestClient;
+    WebClient webClient;
+    RetryFilter retryFilter;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8088)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @BeforeEach
+    void setUp() {
+        webClient = WebClient.create(String.format("http://localhost:%s/", wireMockServer.port()));
+        retryFilter = retryFilter(new RetryBudget(RetryBudget.DEFAULT_RETRY_RATIO, RetryBudget.DEFAULT_MAX_TOKENS));
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .retryFilter(retryFilter)
+                .build();
+    }
+
+    private RetryFilter retryFilter(RetryBudget retryBudget) {
+        return RetryFilter.builder()
+                .maxAttempts(3)
+                .firstBackoff(Duration.ofMillis(10))
+                .maxBackoff(Duration.ofMillis(50))
+                .retryBudget(retryBudget)
+                .build();
+    }
+
+    private void stubAllMoviesAfter(ResponseDefinitionBuilder failure) {
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .inScenario("transient failure")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(failure)
+                .willSetStateTo("recovered"));
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .inScenario("transient failure")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+    }
+
+    @Test
+    void retrieveAllMovies_retriesServiceUnavailable() {
+
+        //given
+        stubAllMoviesAfter(serverError().withStatus(HttpStatus.SERVICE_UNAVAILABLE.value()));
+
+        //when
+        List<Movie> movieList = moviesRestClient.retrieveAllMovies();
+
+        //then
+        assertTrue(movieList.size() > 0);
+        verify(exactly(2), getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES_V1)));
+        assertEquals(1, retryFilter.getRetryCount());
+    }
+
+    @Test
+    void retrieveAllMovies_retriesPrematureClose() {
+
+        //given
+        stubAllMoviesAfter(aResponse().withFault(Fault.EMPTY_RESPONSE));
+
+        //when
+        List<Movie> movieList = moviesRestClient.retrieveAllMovies();
+
+        //then
+        assertTrue(movieList.size() > 0);
+        verify(exactly(2), getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES_V1)));
+    }
+
+    @Test
+    void retrieveAllMovies_givesUpAfterMaxAttempts() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(serverError().withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())));
+
+        //when
+        MovieErrorResponse movieErrorResponse = assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveAllMovies());
+
+        //then
+        assertEquals("Service Unavailable", movieErrorResponse.getMessage());
+        verify(exactly(3), getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES_V1)));
+    }
+
+    @Test
+    void retrieveAllMovies_lightweightErrors_retriesServiceUnavailable() {
+
+        //given
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .lightweightErrors(true)
+                .retryFilter(retryFilter)
+                .build();
+        stubAllMoviesAfter(serverError().withStatus(HttpStatus.SERVICE_UNAVAILABLE.value()));
+
+        //when
+        List<Movie> movieList = moviesRestClient.retrieveAllMovies();
+
+        //then
+        assertTrue(movieList.size() > 0);
+        verify(exactly(2), getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES_V1)));
+    }
+
+    @Test
+    void retrieveMovieById_doesNotRetryNotFound() {
+
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(notFound()));
+
+        //when
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(100));
+
+        //then
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/100")));
+    }
+
+    @Test
+    void retrieveAllMovies_retryBudgetExhausted() {
+
+        //given
+        RetryBudget retryBudget = new RetryBudget(0, 1);
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .retryFilter(retryFilter(retryBudget))
+                .build();
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(serverError().withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())));
+
+        //when
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveAllMovies());
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveAllMovies());
+
+        //then - one retry for the first call, none for the second
+        verify(exactly(3), getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES_V1)));
+        assertEquals(2, retryBudget.getExhaustedCount());
+    }
+
+    @Test
+    void addMovie_isNotRetried() {
+
+        //given
+        stubFor(post(urlPathEqualTo(ADD_MOVIE_V1))
+                .willReturn(serverError().withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())));
+        Movie movie = new Movie(null, "Toys Story 4", "Tom Hanks, Tim Allen", 2019, LocalDate.of(2019, 06, 20));
+
+        //when
+        assertThrows(MovieErrorResponse.class, () -> moviesRestClient.addMovie(movie));
+
+        //then
+        verify(exactly(1), postRequestedFor(urlPathEqualTo(ADD_MOVIE_V1)));
+    }
+
+    @Test
+    void addMovie_withIdempotencyKey_isRetried() {
+
+        //given
+        stubFor(post(urlPathEqualTo(ADD_MOVIE_V1))
+                .inScenario("add movie")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(serverError().withStatus(HttpStatus.SERVICE_UNAVAILABLE.value()))
+                .willSetStateTo("recovered"));
+        stubFor(post(urlPathEqualTo(ADD_MOVIE_V1))
+                .inScenario("add movie")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.CREATED.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("add-movie.json")));
+        Movie movie = new Movie(null, "Toys Story 4", "Tom Hanks, Tim Allen", 2019, LocalDate.of(2019, 06, 20));
+
+        //when
+        Movie addedMovie = moviesRestClient.addMovie(movie, "toy-story-4");
+
+        //then
+        assertNotNull(addedMovie.getMovie_id());
+        verify(exactly(2), postRequestedFor(urlPathEqualTo(ADD_MOVIE_V1))
+                .withHeader(RetryFilter.IDEMPOTENCY_KEY, equalTo("toy-story-4"))
+                .withRequestBody(matchingJsonPath("$.name", equalTo("Toys Story 4"))));
+    }
+}
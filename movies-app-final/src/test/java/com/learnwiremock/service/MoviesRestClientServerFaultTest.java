@@ -10,11 +10,10 @@ import com.github.tomakehurst.wiremock.core.Options;
 import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
 import com.github.tomakehurst.wiremock.http.Fault;
 import com.learnwiremock.dto.Movie;
+import com.learnwiremock.exception.DeadlineExceededException;
 import com.learnwiremock.exception.MovieErrorResponse;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
-import io.netty.handler.timeout.ReadTimeoutHandler;
-import io.netty.handler.timeout.WriteTimeoutHandler;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -24,9 +23,12 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.netty.http.client.HttpClient;
 import reactor.netty.tcp.TcpClient;
 
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
@@ -49,11 +51,7 @@ public class MoviesRestClientServerFaultTest {
             .extensions(new ResponseTemplateTransformer(true));
 
     TcpClient tcpClient = TcpClient.create()
-            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
-            .doOnConnected(connection -> {
-                connection.addHandlerLast(new ReadTimeoutHandler(5))
-                        .addHandlerLast(new WriteTimeoutHandler(5));
-            });
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000);
 
     @BeforeEach
     void setUp() {
@@ -63,7 +61,12 @@ public class MoviesRestClientServerFaultTest {
         //webClient = WebClient.create(baseUrl);
         webClient = WebClient.builder().clientConnector(new ReactorClientHttpConnector(HttpClient.from(tcpClient)))
                 .baseUrl(baseUrl).build();
-        moviesRestClient = new MoviesRestClient(webClient);
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .deadlines(MovieDeadlines.builder()
+                        .defaultTimeout(Duration.ofSeconds(5))
+                        .build())
+                .build();
     }
 
     @Test
@@ -127,7 +130,7 @@ public class MoviesRestClientServerFaultTest {
                 .willReturn(ok().withFixedDelay(10000)));
 
         //then
-        assertThrows(MovieErrorResponse.class, ()->moviesRestClient.retrieveAllMovies());
+        assertThrows(DeadlineExceededException.class, ()->moviesRestClient.retrieveAllMovies());
 
     }
 
@@ -143,5 +146,58 @@ public class MoviesRestClientServerFaultTest {
 
     }
 
+    @Test
+    void retrieveMovieById_lightweightErrors_404IsStackless() {
+
+        //given
+        MoviesRestClient lightweightClient = MoviesRestClient.builder().webClient(webClient).lightweightErrors(true).build();
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/100"))
+                .willReturn(notFound()
+                        .withBody(String.join("", Collections.nCopies(100, "No Movie Available ")))));
+
+        //then
+        MovieErrorResponse movieErrorResponse = assertThrows(MovieErrorResponse.class, () -> lightweightClient.retrieveMovieById(100));
+        assertEquals("Not Found", movieErrorResponse.getMessage());
+        assertEquals(404, movieErrorResponse.getStatusCode());
+        assertEquals("GET", movieErrorResponse.getMethod());
+        assertEquals("/movieservice/v1/movie/100", movieErrorResponse.getPath());
+        assertEquals(MovieErrorResponse.MAX_BODY_EXCERPT, movieErrorResponse.getResponseBody().length());
+        assertTrue(movieErrorResponse.getResponseBody().startsWith("No Movie Available"));
+        assertEquals(0, movieErrorResponse.getStackTrace().length);
+        assertNull(movieErrorResponse.getCause());
+    }
+
+    @Test
+    void retrieveAllMovies_lightweightErrors_503IsStackless() {
+
+        //given
+        MoviesRestClient lightweightClient = MoviesRestClient.builder().webClient(webClient).lightweightErrors(true).build();
+        stubFor(get(anyUrl())
+                .willReturn(serverError()
+                        .withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())
+                        .withBody("Service Unavailable")));
+
+        //then
+        MovieErrorResponse movieErrorResponse = assertThrows(MovieErrorResponse.class, () -> lightweightClient.retrieveAllMovies());
+        assertEquals("Service Unavailable", movieErrorResponse.getMessage());
+        assertEquals(503, movieErrorResponse.getStatusCode());
+        assertEquals(0, movieErrorResponse.getStackTrace().length);
+    }
+
+    @Test
+    void retrieveAllMovies_lightweightErrors_500KeepsStackTrace() {
+
+        //given
+        MoviesRestClient lightweightClient = MoviesRestClient.builder().webClient(webClient).lightweightErrors(true).build();
+        stubFor(get(anyUrl())
+                .willReturn(serverError()));
+
+        //then
+        MovieErrorResponse movieErrorResponse = assertThrows(MovieErrorResponse.class, () -> lightweightClient.retrieveAllMovies());
+        assertEquals(500, movieErrorResponse.getStatusCode());
+        assertTrue(movieErrorResponse.getStackTrace().length > 0);
+        assertTrue(movieErrorResponse.getCause() instanceof WebClientResponseException);
+    }
+
 }
 
@@ -10,7 +10,9 @@ import com.github.tomakehurst.wiremock.core.Options;
 import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
 import com.learnwiremock.constants.MoviesAppConstants;
 import com.learnwiremock.dto.Movie;
+import com.learnwiremock.dto.MoviesByIdsResponse;
 import com.learnwiremock.exception.MovieErrorResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,16 +22,23 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static com.learnwiremock.constants.MoviesAppConstants.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(WireMockExtension.class)
@@ -149,6 +158,176 @@ public class MoviesRestClientTest {
 
     }
 
+    @Test
+    void retrieveMovieByIdMono_concurrentLookups() {
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")));
+
+        //when
+        List<Movie> movieList = Flux.range(1, 50)
+                .flatMap(movieId -> moviesRestClient.retrieveMovieByIdMono(movieId))
+                .collectList()
+                .block();
+
+        //then
+        assertEquals(50, movieList.size());
+        verify(exactly(50), getRequestedFor(urlPathMatching("/movieservice/v1/movie/[0-9]+")));
+    }
+
+    @Test
+    void retrieveMovieByIdMono_notFound() {
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieId.json")));
+        Integer movieId = 100;
+
+        //when
+        Movie movie = moviesRestClient.retrieveMovieByIdMono(movieId)
+                .onErrorResume(MovieErrorResponse.class, ex -> Mono.empty())
+                .block();
+
+        //then
+        assertNull(movie);
+    }
+
+    @Test
+    void retrieveMovieByIdMono_concurrentIdenticalLookupsAreCoalesced() {
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withFixedDelay(500)));
+
+        //when
+        List<Movie> movieList = Flux.range(1, 20)
+                .flatMap(i -> moviesRestClient.retrieveMovieByIdMono(7))
+                .collectList()
+                .block();
+
+        //then
+        assertEquals(20, movieList.size());
+        assertEquals(19, moviesRestClient.getCoalescedCallCount());
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/7")));
+
+        //sequential lookups are not coalesced
+        moviesRestClient.retrieveMovieById(7);
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/7")));
+    }
+
+    @Test
+    void retrieveMovieByIdMono_coalescedLookupsAreCounted() {
+        //given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .meterRegistry(meterRegistry)
+                .build();
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withFixedDelay(500)));
+
+        //when
+        Flux.range(1, 5)
+                .flatMap(i -> moviesRestClient.retrieveMovieByIdMono(7))
+                .blockLast();
+
+        //then
+        assertEquals(4, meterRegistry.get("movies.client.coalesced")
+                .tags("lookup", "movieById")
+                .functionCounter().count());
+        assertEquals(0, meterRegistry.get("movies.client.coalesced")
+                .tags("lookup", "movieList")
+                .functionCounter().count());
+    }
+
+    @Test
+    void retrieveMoviebyYearFlux_concurrentIdenticalLookupsAreCoalesced() {
+        //given
+        Integer year = 2012;
+        stubFor(get(urlEqualTo(MOVIE_BY_YEAR_QUERY_PARAM_V1+"?year="+year))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("year-template.json")
+                        .withFixedDelay(500)));
+
+        //when
+        List<Movie> movieList = Flux.range(1, 5)
+                .flatMap(i -> moviesRestClient.retrieveMoviebyYearFlux(year))
+                .collectList()
+                .block();
+
+        //then
+        assertEquals(10, movieList.size());
+        assertEquals(4, moviesRestClient.getCoalescedCallCount());
+        verify(exactly(1), getRequestedFor(urlEqualTo(MOVIE_BY_YEAR_QUERY_PARAM_V1+"?year="+year)));
+    }
+
+    @Test
+    void retrieveMoviesByIds() {
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")));
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/100"))
+                .atPriority(1)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieId.json")));
+
+        //when
+        MoviesByIdsResponse response = moviesRestClient.retrieveMoviesByIds(Arrays.asList(1, 2, 2, 3, 100), 2);
+
+        //then
+        assertEquals(3, response.getMovies().size());
+        assertEquals(2, response.getMovies().get(2).getMovie_id().intValue());
+        assertEquals(1, response.getFailures().size());
+        assertTrue(response.getFailures().containsKey(100));
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movie/2")));
+    }
+
+    @Test
+    void retrieveMoviesByIds_comparedToSequentialLoop() {
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withFixedDelay(200)));
+        List<Integer> movieIds = Flux.range(1, 10).collectList().block();
+
+        //when
+        long start = System.nanoTime();
+        movieIds.forEach(movieId -> moviesRestClient.retrieveMovieById(movieId));
+        long sequentialMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        start = System.nanoTime();
+        MoviesByIdsResponse response = moviesRestClient.retrieveMoviesByIds(movieIds, 10);
+        long bulkMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println("sequential : " + sequentialMillis + " ms, bulk : " + bulkMillis + " ms");
+
+        //then
+        assertEquals(10, response.getMovies().size());
+        assertTrue(sequentialMillis >= 2000);
+        assertTrue(bulkMillis < sequentialMillis / 2);
+    }
+
     @Test
     void retrieveMoviebyName() {
 
@@ -486,5 +665,91 @@ public class MoviesRestClientTest {
         verify(exactly(1),deleteRequestedFor(urlEqualTo(MOVIE_BY_NAME_QUERY_PARAM_V1+"?movie_name=Toys%20Story%205")));
 
     }
-}
 
+    @Test
+    void streamAllMovies_jsonArray() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        //when
+        List<Movie> movieList;
+        try (Stream<Movie> movieStream = moviesRestClient.streamAllMovies()) {
+            movieList = movieStream.collect(Collectors.toList());
+        }
+
+        //then
+        assertEquals(moviesRestClient.retrieveAllMovies(), movieList);
+    }
+
+    @Test
+    void streamAllMovies_ndjson() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, "application/x-ndjson")
+                        .withBodyFile("all-movies.ndjson")));
+
+        //when
+        Flux<Movie> movieFlux = moviesRestClient.streamAllMoviesFlux();
+
+        //then
+        assertEquals("Batman Begins", movieFlux.blockFirst().getName());
+        assertEquals(10, movieFlux.collectList().block().size());
+        verify(getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .withHeader(HttpHeaders.ACCEPT, containing("application/x-ndjson")));
+    }
+
+    @Test
+    void streamAllMovies_serverError() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES_V1))
+                .willReturn(serverError()));
+
+        //then
+        MovieErrorResponse movieErrorResponse = Assertions.assertThrows(MovieErrorResponse.class, () -> moviesRestClient.streamAllMovies().count());
+        assertEquals("Internal Server Error", movieErrorResponse.getMessage());
+    }
+
+    @Test
+    void retrieveMovieById_recordsMetrics() {
+        //given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        moviesRestClient = MoviesRestClient.builder()
+                .webClient(webClient)
+                .meterRegistry(meterRegistry)
+                .build();
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/1"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie.json")));
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/100"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieId.json")));
+
+        //when
+        moviesRestClient.retrieveMovieById(1);
+        Assertions.assertThrows(MovieErrorResponse.class, () -> moviesRestClient.retrieveMovieById(100));
+
+        //then
+        assertEquals(1, meterRegistry.get("movies.client.requests")
+                .tags("method", "retrieveMovieById", "outcome", "SUCCESS", "status", "2xx")
+                .timer().count());
+        assertEquals(1, meterRegistry.get("movies.client.errors")
+                .tags("method", "retrieveMovieById", "status", "404", "exception", "NotFound")
+                .counter().count());
+        assertEquals(0, meterRegistry.get("movies.client.requests.active")
+                .tags("method", "retrieveMovieById")
+                .gauge().value());
+    }
+}
@@ -7,6 +7,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -23,41 +26,51 @@ public class MoviesRestClient {
     }
 
     public List<Movie> retrieveAllMovies() {
+        return retrieveAllMoviesFlux()
+                .collectList()
+                .block();
+    }
+
+    /**
+     * Non blocking version of {@link #retrieveAllMovies()}.
+     * Errors are signalled as {@link MovieErrorResponse}.
+     */
+    public Flux<Movie> retrieveAllMoviesFlux() {
 
         //http://localhost:8081/movieservice/v1/allMovies
-        try {
         return webClient.get().uri(MoviesAppConstants.GET_ALL_MOVIES_V1)
                 .retrieve()
                 .bodyToFlux(Movie.class)
-                .collectList()
-                .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in retrieveAllMovies. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in retrieveAllMovies and the message is {} ", ex.getMessage() + ex);
-            throw new MovieErrorResponse(ex);
-        }
+                .onErrorMap(ex -> toMovieErrorResponse("retrieveAllMovies", ex));
     }
 
     public Movie retrieveMovieById(Integer movieId) {
+        return retrieveMovieByIdMono(movieId)
+                .block();
+    }
+
+    /**
+     * Non blocking version of {@link #retrieveMovieById(Integer)}.
+     */
+    public Mono<Movie> retrieveMovieByIdMono(Integer movieId) {
 
         //http://localhost:8081/movieservice/v1/movie/100
-        try {
-            return webClient.get().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId)
-                    .retrieve()
-                    .bodyToMono(Movie.class)
-                    .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in retrieveMovieById. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in retrieveMovieById and the message is {} ", ex);
-            throw new MovieErrorResponse(ex);
-        }
+        return webClient.get().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId)
+                .retrieve()
+                .bodyToMono(Movie.class)
+                .onErrorMap(ex -> toMovieErrorResponse("retrieveMovieById", ex));
     }
 
     public List<Movie> retrieveMoviebyName(String name) {
+        return retrieveMoviebyNameFlux(name)
+                .collectList()
+                .block();
+    }
+
+    /**
+     * Non blocking version of {@link #retrieveMoviebyName(String)}.
+     */
+    public Flux<Movie> retrieveMoviebyNameFlux(String name) {
 
 //        http://localhost:8081/movieservice/v1/movieName?movie_name=ABC
 
@@ -65,23 +78,22 @@ public class MoviesRestClient {
                 .queryParam("movie_name", name)
                 .buildAndExpand()
                 .toUriString();
-        try {
-            return webClient.get().uri(retrieveByNameUri)
-                    .retrieve()
-                    .bodyToFlux(Movie.class)
-                    .collectList()
-                    .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in retrieveMoviebyName. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in retrieveMoviebyName and the message is {} ", ex);
-            throw new MovieErrorResponse(ex);
-        }
-
+        return webClient.get().uri(retrieveByNameUri)
+                .retrieve()
+                .bodyToFlux(Movie.class)
+                .onErrorMap(ex -> toMovieErrorResponse("retrieveMoviebyName", ex));
     }
 
     public List<Movie> retrieveMoviebyYear(Integer movieYear) {
+        return retrieveMoviebyYearFlux(movieYear)
+                .collectList()
+                .block();
+    }
+
+    /**
+     * Non blocking version of {@link #retrieveMoviebyYear(Integer)}.
+     */
+    public Flux<Movie> retrieveMoviebyYearFlux(Integer movieYear) {
 
 //        http://localhost:8081/movieservice/v1/movieYear?year=1950
 
@@ -89,98 +101,95 @@ public class MoviesRestClient {
                 .queryParam("year", movieYear)
                 .buildAndExpand()
                 .toUriString();
-        try {
-            return webClient.get().uri(retrieveByNameUri)
-                    .retrieve()
-                    .bodyToFlux(Movie.class)
-                    .collectList()
-                    .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in retrieveMoviebyYear. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in retrieveMoviebyYear and the message is {} ", ex);
-            throw new MovieErrorResponse(ex);
-        }
-
+        return webClient.get().uri(retrieveByNameUri)
+                .retrieve()
+                .bodyToFlux(Movie.class)
+                .onErrorMap(ex -> toMovieErrorResponse("retrieveMoviebyYear", ex));
     }
 
     public Movie addMovie( Movie newMovie){
+        return addMovieMono(newMovie)
+                .block();
+    }
+
+    /**
+     * Non blocking version of {@link #addMovie(Movie)}.
+     */
+    public Mono<Movie> addMovieMono(Movie newMovie) {
 
         //http://localhost:8081/movieservice/v1/movie
-        try {
         return webClient.post().uri(MoviesAppConstants.ADD_MOVIE_V1)
                 .syncBody(newMovie)
                 .retrieve()
                 .bodyToMono(Movie.class)
-                .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in addMovie. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in addMovie and the message is {} ", ex);
-            throw new MovieErrorResponse(ex);
-        }
-
+                .onErrorMap(ex -> toMovieErrorResponse("addMovie", ex));
     }
 
 
     public Movie updateMovie(Integer movieId, Movie movie){
-        try {
-            return webClient.put().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId)
-                    .syncBody(movie)
-                    .retrieve()
-                    .bodyToMono(Movie.class)
-                    .block();
-        }catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in updateMovie. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in updateMovie and the message is {} ", ex);
-            throw new MovieErrorResponse(ex);
-        }
+        return updateMovieMono(movieId, movie)
+                .block();
+    }
 
+    /**
+     * Non blocking version of {@link #updateMovie(Integer, Movie)}.
+     */
+    public Mono<Movie> updateMovieMono(Integer movieId, Movie movie) {
+        return webClient.put().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId)
+                .syncBody(movie)
+                .retrieve()
+                .bodyToMono(Movie.class)
+                .onErrorMap(ex -> toMovieErrorResponse("updateMovie", ex));
     }
 
     public String deleteMovie(Integer movieId){
+        return deleteMovieMono(movieId)
+                .block();
+    }
 
-        try{
-            return webClient.delete().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-        }catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in deleteMovie. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in deleteMovie and the message is {} ", ex);
-            throw new MovieErrorResponse(ex);
-        }
+    /**
+     * Non blocking version of {@link #deleteMovie(Integer)}.
+     */
+    public Mono<String> deleteMovieMono(Integer movieId) {
+        return webClient.delete().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId)
+                .retrieve()
+                .bodyToMono(String.class)
+                .onErrorMap(ex -> toMovieErrorResponse("deleteMovie", ex));
     }
 
     public String deleteMovieByName(String movieName){
+        deleteMovieByNameMono(movieName)
+                .block();
+        return "Movie Deleted Successfully";
+    }
 
-        try{
-            String deleteMovieByNameURI = UriComponentsBuilder.fromUriString(MoviesAppConstants.MOVIE_BY_NAME_QUERY_PARAM_V1)
-                    .queryParam("movie_name", movieName)
-                    .buildAndExpand()
-                    .toUriString();
-
-             webClient.delete().uri(deleteMovieByNameURI)
-                    .retrieve()
-                    .bodyToMono(Void.class)
-                    .block();
-
-        }catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in deleteMovie. Status code is {} and the message is {} ", ex.getRawStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception in deleteMovie and the message is {} ", ex);
-            throw new MovieErrorResponse(ex);
-        }
+    /**
+     * Non blocking version of {@link #deleteMovieByName(String)}.
+     */
+    public Mono<Void> deleteMovieByNameMono(String movieName) {
+        String deleteMovieByNameURI = UriComponentsBuilder.fromUriString(MoviesAppConstants.MOVIE_BY_NAME_QUERY_PARAM_V1)
+                .queryParam("movie_name", movieName)
+                .buildAndExpand()
+                .toUriString();
 
-        return "Movie Deleted Successfully";
+        return webClient.delete().uri(deleteMovieByNameURI)
+                .retrieve()
+                .bodyToMono(Void.class)
+                .onErrorMap(ex -> toMovieErrorResponse("deleteMovieByName", ex));
+    }
+
+    /**
+     * Translates the error signal of a call into a {@link MovieErrorResponse}.
+     * Checked exceptions are wrapped the same way {@code block()} wraps them, so the blocking methods keep their error messages.
+     */
+    private MovieErrorResponse toMovieErrorResponse(String methodName, Throwable ex) {
+        if (ex instanceof WebClientResponseException) {
+            WebClientResponseException responseException = (WebClientResponseException) ex;
+            log.error("WebClientResponseException in {}. Status code is {} and the message is {} ", methodName, responseException.getRawStatusCode(), responseException.getResponseBodyAsString());
+            return new MovieErrorResponse(responseException.getStatusText(), responseException);
+        }
+        log.error("Exception in {} and the message is {} ", methodName, ex);
+        return new MovieErrorResponse(Exceptions.propagate(ex));
     }
 
 }
@@ -6,8 +6,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.net.URI;
 import java.util.List;
 
 import static com.learnwiremock.constants.MovieAppConstants.*;
@@ -27,65 +29,52 @@ public class MoviesRestClient {
      * @return
      */
     public List<Movie> retrieveAllMovies() {
-        String getAllMoviesUrl = GET_ALL_MOVIES_V1;
-        List<Movie> movieList;
-        try {
-            movieList = webClient.get().uri(getAllMoviesUrl)
-                    .retrieve() // actual call is made to the api
-                    .bodyToFlux(Movie.class) //body is converted to flux(Represents multiple items)
-                    .collectList() // collecting the httpResponse as a list\
-                    .block(); // This call makes the Webclient to behave as a synchronous client.
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException - Error Message is : {} ", ex, ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception - The Error Message is {} ", ex.getMessage());
-            throw new MovieErrorResponse(ex);
-        }
-        return movieList;
+        return retrieveAllMoviesFlux()
+                .collectList() // collecting the httpResponse as a list\
+                .block(); // This call makes the Webclient to behave as a synchronous client.
+    }
+
+    /**
+     * Retrieve all the movies from the service without blocking the caller thread.
+     *
+     * @return - Flux<Movie>, errors are signalled as {@link MovieErrorResponse}
+     */
+    public Flux<Movie> retrieveAllMoviesFlux() {
+        return webClient.get().uri(GET_ALL_MOVIES_V1)
+                .retrieve() // actual call is made to the api
+                .bodyToFlux(Movie.class) //body is converted to flux(Represents multiple items)
+                .onErrorMap(ex -> toMovieErrorResponse("retrieveAllMovies", ex));
     }
 
     public Movie retrieveMovieById(Integer movieId) {
-        String movieByIdURL =  MOVIE_BY_ID_PATH_PARAM_V1;
-        Movie movie;
-        try {
-            movie = webClient.get().uri(movieByIdURL, movieId) //mapping the movie id to the url
-                    .retrieve()
-                    .bodyToMono(Movie.class) //body is converted to Mono(Represents single item)
-                    .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException - Error Message is : {} ", ex, ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception - The Error Message is {} ", ex.getMessage());
-            throw new MovieErrorResponse(ex);
-        }
-        return movie;
+        return retrieveMovieByIdMono(movieId)
+                .block();
+    }
+
+    public Mono<Movie> retrieveMovieByIdMono(Integer movieId) {
+        return webClient.get().uri(MOVIE_BY_ID_PATH_PARAM_V1, movieId) //mapping the movie id to the url
+                .retrieve()
+                .bodyToMono(Movie.class) //body is converted to Mono(Represents single item)
+                .onErrorMap(ex -> toMovieErrorResponse("retrieveMovieById", ex));
     }
 
 
     public List<Movie> retrieveMovieByName(String movieName) {
+        return retrieveMovieByNameFlux(movieName)
+                .collectList()
+                .block();
+    }
 
-        List<Movie> movieList = null;
+    public Flux<Movie> retrieveMovieByNameFlux(String movieName) {
         String retrieveByNameUri = UriComponentsBuilder.fromUriString( MOVIE_BY_NAME_QUERY_PARAM_V1)
                 .queryParam("movie_name", movieName)
                 .buildAndExpand()
                 .toUriString();
 
-        try {
-            movieList = webClient.get().uri(retrieveByNameUri)
-                    .retrieve()
-                    .bodyToFlux(Movie.class)
-                    .collectList()
-                    .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in retrieveMovieByName - Error Message is : {} ", ex, ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception - The Error Message is {} ", ex.getMessage());
-            throw new MovieErrorResponse(ex);
-        }
-        return movieList;
+        return webClient.get().uri(retrieveByNameUri)
+                .retrieve()
+                .bodyToFlux(Movie.class)
+                .onErrorMap(ex -> toMovieErrorResponse("retrieveMovieByName", ex));
     }
 
 
@@ -96,26 +85,27 @@ public class MoviesRestClient {
      * @return - List<Movie>
      */
     public List<Movie> retreieveMovieByYear(Integer year) {
+        return retreieveMovieByYearFlux(year)
+                .collectList()
+                .block();
+    }
+
+    /**
+     * Non blocking version of {@link #retreieveMovieByYear(Integer)}.
+     *
+     * @param year - Integer (Example : 2012,2013 etc.,)
+     * @return - Flux<Movie>
+     */
+    public Flux<Movie> retreieveMovieByYearFlux(Integer year) {
         String retrieveByYearUri = UriComponentsBuilder.fromUriString( MOVIE_BY_YEAR_QUERY_PARAM_V1)
                 .queryParam("year", year)
                 .buildAndExpand()
                 .toUriString();
-        List<Movie> movieList;
-
-        try {
-            movieList = webClient.get().uri(retrieveByYearUri)
-                    .retrieve()
-                    .bodyToFlux(Movie.class)
-                    .collectList()
-                    .block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in retreieveMovieByYear - Error Message is : {} ", ex, ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception - The Error Message is {} ", ex.getMessage());
-            throw new MovieErrorResponse(ex);
-        }
-        return movieList;
+
+        return webClient.get().uri(retrieveByYearUri)
+                .retrieve()
+                .bodyToFlux(Movie.class)
+                .onErrorMap(ex -> toMovieErrorResponse("retreieveMovieByYear", ex));
     }
 
     /**
@@ -125,63 +115,56 @@ public class MoviesRestClient {
      * @return
      */
     public Movie addNewMovie(Movie newMovie) {
-        Movie movie;
-
-        try {
-            movie = webClient.post().uri( ADD_MOVIE_V1)
-                    .syncBody(newMovie)
-                    .retrieve()
-                    .bodyToMono(Movie.class)
-                    .block();
-            log.info("New Movie SuccessFully addded {} ", movie);
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException - Error Message is : {} , and the Error Response Body is {}", ex, ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception - The Error Message is {} ", ex.getMessage());
-            throw new MovieErrorResponse(ex);
-        }
-        return movie;
+        return addNewMovieMono(newMovie)
+                .block();
+    }
+
+    public Mono<Movie> addNewMovieMono(Movie newMovie) {
+        return webClient.post().uri( ADD_MOVIE_V1)
+                .syncBody(newMovie)
+                .retrieve()
+                .bodyToMono(Movie.class)
+                .doOnNext(movie -> log.info("New Movie SuccessFully addded {} ", movie))
+                .onErrorMap(ex -> toMovieErrorResponse("addNewMovie", ex));
     }
 
     public Movie updateMovie(Integer movieId, Movie movie) {
-        Movie updatedMovie;
-
-        try {
-            updatedMovie = webClient.put().uri( MOVIE_BY_ID_PATH_PARAM_V1, movieId)
-                    .syncBody(movie)
-                    .retrieve()
-                    .bodyToMono(Movie.class)
-                    .block();
-            log.info(" Movie SuccessFully updated {} ", updatedMovie);
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException - Error Message is : {}", ex, ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception - The Error Message is {} ", ex.getMessage());
-            throw new MovieErrorResponse(ex);
-        }
+        return updateMovieMono(movieId, movie)
+                .block();
+    }
 
-        return updatedMovie;
+    public Mono<Movie> updateMovieMono(Integer movieId, Movie movie) {
+        return webClient.put().uri( MOVIE_BY_ID_PATH_PARAM_V1, movieId)
+                .syncBody(movie)
+                .retrieve()
+                .bodyToMono(Movie.class)
+                .doOnNext(updatedMovie -> log.info(" Movie SuccessFully updated {} ", updatedMovie))
+                .onErrorMap(ex -> toMovieErrorResponse("updateMovie", ex));
     }
 
     public String deleteMovieById(Integer movieId) {
+        return deleteMovieByIdMono(movieId)
+                .block();
+    }
 
-       String response;
-        try {
-            response = webClient.delete().uri( MOVIE_BY_ID_PATH_PARAM_V1, movieId)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-        }catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException - Error Message is : {}", ex, ex.getResponseBodyAsString());
-            throw new MovieErrorResponse(ex.getStatusText(), ex);
-        } catch (Exception ex) {
-            log.error("Exception - The Error Message is {} ", ex.getMessage());
-            throw new MovieErrorResponse(ex);
-        }
-
-       return response;
+    public Mono<String> deleteMovieByIdMono(Integer movieId) {
+        return webClient.delete().uri( MOVIE_BY_ID_PATH_PARAM_V1, movieId)
+                .retrieve()
+                .bodyToMono(String.class)
+                .onErrorMap(ex -> toMovieErrorResponse("deleteMovieById", ex));
+    }
 
+    /**
+     * Translates the error signal of a call into a {@link MovieErrorResponse}.
+     * Checked exceptions are wrapped the same way {@code block()} wraps them, so the blocking methods keep their error messages.
+     */
+    private MovieErrorResponse toMovieErrorResponse(String methodName, Throwable ex) {
+        if (ex instanceof WebClientResponseException) {
+            WebClientResponseException responseException = (WebClientResponseException) ex;
+            log.error("WebClientResponseException in {} - Error Message is : {} , and the Error Response Body is {}", methodName, responseException, responseException.getResponseBodyAsString());
+            return new MovieErrorResponse(responseException.getStatusText(), responseException);
+        }
+        log.error("Exception in {} - The Error Message is {} ", methodName, ex.getMessage());
+        return new MovieErrorResponse(Exceptions.propagate(ex));
     }
 }